@@ -1,16 +1,31 @@
 package com.codetrimmer;
 
+import com.codetrimmer.cli.Launcher;
+import com.codetrimmer.daemon.DaemonClient;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.shell.command.annotation.CommandScan;
+
+import java.util.Arrays;
 
 /**
  * Main entry point for Code Trimmer application.
  * Spring Boot application that provides a shell interface for file cleanup operations.
  */
 @SpringBootApplication
+@CommandScan
 public class CodeTrimmerApplication {
 
   public static void main(String[] args) {
-    SpringApplication.run(CodeTrimmerApplication.class, args);
+    // The daemon client must not pay for Spring startup, which is what the daemon saves
+    if (args.length > 0 && args[0].equals("client")) {
+      System.exit(DaemonClient.run(Arrays.copyOfRange(args, 1, args.length), System.out, System.err));
+    }
+    // Scripted one-shot commands skip Spring Shell, which dominates their run time
+    if (Launcher.handles(args)) {
+      System.exit(Launcher.run(args, System.out, System.err));
+    }
+    // Commands report their outcome through ExitCodeGenerator beans
+    System.exit(SpringApplication.exit(SpringApplication.run(CodeTrimmerApplication.class, args)));
   }
 }
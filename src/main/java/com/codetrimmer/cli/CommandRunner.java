@@ -0,0 +1,187 @@
+package com.codetrimmer.cli;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.config.ConfigurationLoader;
+import com.codetrimmer.config.TrimmerConfig;
+import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.model.FileProcessingResult;
+import com.codetrimmer.model.ProcessingStatistics;
+import com.codetrimmer.service.FileChecker;
+import com.codetrimmer.service.FileProcessingService;
+import com.codetrimmer.service.StagedTrimmer;
+import com.codetrimmer.shell.TrimOptions;
+import com.codetrimmer.util.FileList;
+import org.springframework.beans.BeanUtils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs the {@code trim}, {@code check} and {@code trim-staged} commands from raw arguments,
+ * without Spring Shell, writing to the given streams.
+ *
+ * <p>Every run gets its own copy of the base configuration and its own services, so runs
+ * do not see each other's options or statistics and may execute concurrently. Relative
+ * paths in the options are resolved against the caller's working directory.
+ *
+ * <p>When created with a startup time, as by the {@link Launcher}, the summary lines also
+ * report how long the process took to start before running the command.
+ */
+public class CommandRunner {
+
+  private final CodeTrimmerConfig baseConfig;
+  private final ConfigurationLoader configLoader;
+  private final Duration startupTime;
+
+  public CommandRunner(CodeTrimmerConfig baseConfig, ConfigurationLoader configLoader) {
+    this(baseConfig, configLoader, null);
+  }
+
+  public CommandRunner(CodeTrimmerConfig baseConfig, ConfigurationLoader configLoader, Duration startupTime) {
+    this.baseConfig = baseConfig;
+    this.configLoader = configLoader;
+    this.startupTime = startupTime;
+  }
+
+  /**
+   * Runs one command.
+   *
+   * @param workingDirectory the directory relative paths refer to
+   * @param args the command name followed by its options
+   * @param out standard output
+   * @param err standard error
+   * @return the exit code: 0 on success, 1 if {@code check} found files that need trimming,
+   *     2 on errors
+   */
+  public int run(Path workingDirectory, List<String> args, PrintStream out, PrintStream err) {
+    if (args.isEmpty()) {
+      err.println("Usage: <trim|check|trim-staged> [options]");
+      return FileChecker.CheckReport.EXIT_ERROR;
+    }
+    try {
+      TrimOptions options = TrimOptions.parse(args.subList(1, args.size()));
+      Path directory = options.getDirectory() != null
+          ? workingDirectory.resolve(options.getDirectory()).normalize()
+          : workingDirectory;
+      CodeTrimmerConfig config = loadConfig(options, workingDirectory, directory);
+      return switch (args.get(0)) {
+        case "trim" -> trim(options, config, workingDirectory, directory, out, err);
+        case "check" -> check(options, config, workingDirectory, directory, out, err);
+        case "trim-staged" -> trimStaged(options, config, directory, out, err);
+        default -> throw new IllegalArgumentException("Unknown command: " + args.get(0));
+      };
+    } catch (IllegalArgumentException e) {
+      err.println(e.getMessage());
+    } catch (CodeTrimmerException e) {
+      err.println(e.getFormattedMessage());
+    }
+    return FileChecker.CheckReport.EXIT_ERROR;
+  }
+
+  /**
+   * Copies the base configuration and applies the given configuration file, or else the one
+   * found in the directory.
+   */
+  private CodeTrimmerConfig loadConfig(TrimOptions options, Path workingDirectory, Path directory) {
+    CodeTrimmerConfig config = new CodeTrimmerConfig();
+    BeanUtils.copyProperties(baseConfig, config);
+    TrimmerConfig fileConfig = options.getConfigFile() != null
+        ? configLoader.loadFromFile(workingDirectory.resolve(options.getConfigFile()))
+        : configLoader.loadConfiguration(directory.toString());
+    configLoader.applyConfiguration(fileConfig, config);
+    return config;
+  }
+
+  private int trim(TrimOptions options, CodeTrimmerConfig config, Path workingDirectory, Path directory,
+                   PrintStream out, PrintStream err) {
+    options.applyTo(config);
+    FileProcessingService service = new FileProcessingService(config);
+    List<FileProcessingResult> results = options.getFilesFrom() != null
+        ? service.processFileList(directory, readFileList(workingDirectory, options.getFilesFrom()))
+        : service.processDirectory(directory.toString());
+
+    int errors = 0;
+    for (FileProcessingResult result : results) {
+      if (result.getErrorMessage() != null && !result.getErrorMessage().isEmpty()) {
+        err.println(result.getFilePath() + ": error: " + result.getErrorMessage());
+        errors++;
+      } else if (result.isModified() && !options.isQuiet()) {
+        out.println((options.isDryRun() ? "Would modify: " : "Modified: ") + result.getFilePath());
+        out.print(result.getDiff());
+      }
+    }
+    if (!options.isQuiet()) {
+      ProcessingStatistics stats = service.getStatistics();
+      out.println("Files scanned: " + stats.getFilesScanned()
+          + ", modified: " + stats.getFilesModified()
+          + ", skipped: " + stats.getFilesSkipped()
+          + ", lines trimmed: " + stats.getLinesTrimmed()
+          + ", blank lines removed: " + stats.getBlankLinesRemoved()
+          + ", time: " + stats.getExecutionTimeMs() + "ms" + startupSuffix());
+    }
+    return errors > 0 ? FileChecker.CheckReport.EXIT_ERROR : FileChecker.CheckReport.EXIT_CLEAN;
+  }
+
+  private int check(TrimOptions options, CodeTrimmerConfig config, Path workingDirectory, Path directory,
+                    PrintStream out, PrintStream err) {
+    config.setInclude(options.getInclude() != null && !options.getInclude().isEmpty() ? options.getInclude() : "*");
+    if (options.getExclude() != null && !options.getExclude().isEmpty()) {
+      config.setExclude(options.getExclude());
+    }
+    config.setIncludeHidden(options.isIncludeHidden());
+    config.setNoLimits(true);
+
+    FileChecker checker = new FileChecker(config);
+    FileChecker.CheckReport report = options.getFilesFrom() != null
+        ? checker.checkFileList(directory, readFileList(workingDirectory, options.getFilesFrom()))
+        : checker.checkDirectory(directory.toString());
+    printReport(report, out, err);
+    if (!options.isQuiet()) {
+      out.println("Files checked: " + report.getFilesChecked()
+          + ", need trimming: " + report.getFindings().size()
+          + ", failed: " + report.getFailures().size() + startupSuffix());
+    }
+    return report.getExitCode();
+  }
+
+  private int trimStaged(TrimOptions options, CodeTrimmerConfig config, Path directory,
+                         PrintStream out, PrintStream err) {
+    config.setNoLimits(true);
+    FileChecker.CheckReport report = new StagedTrimmer(config).trimStaged(directory.toString(), !options.isDryRun());
+    if (options.isDryRun()) {
+      printReport(report, out, err);
+      return report.getExitCode();
+    }
+    for (FileChecker.Finding finding : report.getFindings()) {
+      out.println("Trimmed: " + finding.path());
+    }
+    for (FileChecker.Failure failure : report.getFailures()) {
+      err.println(failure.format());
+    }
+    return report.getFailures().isEmpty() ? FileChecker.CheckReport.EXIT_CLEAN : FileChecker.CheckReport.EXIT_ERROR;
+  }
+
+  private String startupSuffix() {
+    return startupTime != null ? ", startup: " + startupTime.toMillis() + "ms" : "";
+  }
+
+  private static void printReport(FileChecker.CheckReport report, PrintStream out, PrintStream err) {
+    for (FileChecker.Finding finding : report.getFindings()) {
+      out.println(finding.format());
+    }
+    for (FileChecker.Failure failure : report.getFailures()) {
+      err.println(failure.format());
+    }
+  }
+
+  private static List<Path> readFileList(Path workingDirectory, String filesFrom) {
+    try {
+      return FileList.read(workingDirectory.resolve(filesFrom));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Cannot read file list: " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.codetrimmer.cli;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.ConsoleAppender;
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.config.ConfigurationLoader;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Non-interactive entry point for one-shot {@code trim}, {@code check} and
+ * {@code trim-staged} calls from scripts and hooks.
+ *
+ * <p>Instead of booting Spring Shell with component scanning and auto-configuration, it
+ * binds {@link CodeTrimmerConfig} from {@code application.yaml} and the environment
+ * without creating an application context, and hands the arguments to a
+ * {@link CommandRunner}, which builds the services it needs on demand. Anything it does
+ * not handle, including report output and the {@code watch} command, goes through the
+ * full shell.
+ */
+public final class Launcher {
+
+  private static final Set<String> COMMANDS = Set.of("trim", "check", "trim-staged");
+  private static final Set<String> SHELL_ONLY_OPTIONS = Set.of(
+      "--report", "--report-output", "--report-endpoint");
+
+  private Launcher() {
+    // Utility class
+  }
+
+  /**
+   * Returns whether the arguments are a command the launcher runs without Spring Shell.
+   *
+   * @param args the program arguments
+   * @return true if {@link #run} handles them
+   */
+  public static boolean handles(String[] args) {
+    if (args.length == 0 || !COMMANDS.contains(args[0])) {
+      return false;
+    }
+    return Arrays.stream(args).noneMatch(arg -> SHELL_ONLY_OPTIONS.contains(arg) || arg.startsWith("--spring."));
+  }
+
+  /**
+   * Runs one command and reports how long the JVM and context took to start.
+   *
+   * @param args the command name followed by its options
+   * @param out standard output
+   * @param err standard error
+   * @return the exit code of the command
+   */
+  public static int run(String[] args, PrintStream out, PrintStream err) {
+    configureLogging();
+    CommandRunner runner = new CommandRunner(loadConfig(), new ConfigurationLoader(), startupTime());
+    return runner.run(Paths.get("").toAbsolutePath(), List.of(args), out, err);
+  }
+
+  /**
+   * Sends log messages at WARN and above to standard error. Without a Spring context Logback
+   * keeps its default setup, which logs everything to standard output, where it mixes with
+   * the command's output and ignores {@code --quiet}.
+   */
+  static void configureLogging() {
+    if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+      return;
+    }
+    context.reset();
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(context);
+    encoder.setPattern("%level %logger{0} - %msg%n");
+    encoder.start();
+    ConsoleAppender<ILoggingEvent> appender = new ConsoleAppender<>();
+    appender.setContext(context);
+    appender.setTarget("System.err");
+    appender.setEncoder(encoder);
+    appender.start();
+    Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    root.setLevel(Level.WARN);
+    root.addAppender(appender);
+  }
+
+  /**
+   * Binds {@link CodeTrimmerConfig} from {@code application.yaml} and the environment with
+   * the same relaxed rules as the Spring context, but without creating one.
+   */
+  static CodeTrimmerConfig loadConfig() {
+    StandardEnvironment environment = new StandardEnvironment();
+    try {
+      new YamlPropertySourceLoader().load("application.yaml", new ClassPathResource("application.yaml"))
+          .forEach(environment.getPropertySources()::addLast);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return Binder.get(environment).bind("codetrimmer", CodeTrimmerConfig.class).orElseGet(CodeTrimmerConfig::new);
+  }
+
+  /**
+   * Returns the time since the JVM was started, or null if the platform does not report it.
+   */
+  private static Duration startupTime() {
+    return ProcessHandle.current().info().startInstant()
+        .map(start -> Duration.between(start, Instant.now()))
+        .orElse(null);
+  }
+}
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration properties for Code Trimmer application.
  * Allows settings via application.properties or environment variables.
@@ -16,6 +19,7 @@ public class CodeTrimmerConfig {
   // File filtering
   private String include = "*";
   private String exclude = "";
+  private String excludeDirs = "";
   private boolean includeHidden = false;
   private boolean followSymlinks = false;
 
@@ -28,15 +32,29 @@ public class CodeTrimmerConfig {
   private long maxFileSize = 5242880; // 5MB in bytes
   private int maxFiles = 50;
   private boolean noLimits = false;
+  private boolean parallel = false;
+  private int threads = 0; // 0 = available processors
+  private boolean virtualThreads = false;
+  private int maxConcurrentIo = 256;
+  private long streamingThreshold = 16777216; // 16MB in bytes
+  private long watchDebounceMs = 300;
+  private int daemonWorkers = 4; // Requests the daemon runs at once
 
   // Operation modes
   private boolean dryRun = false;
   private boolean createBackups = true;
+  private boolean backupStore = false;
   private boolean failFast = false;
+  private boolean incremental = false;
+  private boolean syncWrites = false;
+
+  // Custom rules from .trimmerrc
+  private List<TrimmerConfig.TrimRule> rules = new ArrayList<>();
 
   // Output options
   private boolean verbose = false;
   private boolean quiet = false;
+  private boolean diff = false; // Dry runs only
   private boolean noColor = false;
   private boolean disableColorForPipe = true;
 }
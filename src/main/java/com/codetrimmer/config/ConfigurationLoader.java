@@ -164,6 +164,30 @@ public class ConfigurationLoader {
             );
         }
 
+        if (config.getThreads() < 0) {
+            throw new CodeTrimmerException(
+                ErrorCode.CT_0003,
+                "threads must be non-negative",
+                "Set threads to a positive value or 0 for available processors"
+            );
+        }
+
+        if (config.getMaxConcurrentIo() < 1) {
+            throw new CodeTrimmerException(
+                ErrorCode.CT_0003,
+                "maxConcurrentIo must be at least 1",
+                "Set maxConcurrentIo to the number of files that may be in flight at once"
+            );
+        }
+
+        if (config.getStreamingThreshold() < 0) {
+            throw new CodeTrimmerException(
+                ErrorCode.CT_0003,
+                "streamingThreshold must be non-negative",
+                "Set streamingThreshold to a size in bytes, or 0 to stream every file"
+            );
+        }
+
         // Validate custom rules
         for (TrimmerConfig.TrimRule rule : config.getRules()) {
             validateRule(rule);
@@ -213,6 +237,7 @@ public class ConfigurationLoader {
     public void applyConfiguration(TrimmerConfig source, CodeTrimmerConfig target) {
         target.setInclude(source.getInclude());
         target.setExclude(source.getExclude());
+        target.setExcludeDirs(source.getExcludeDirs());
         target.setIncludeHidden(source.isIncludeHidden());
         target.setFollowSymlinks(source.isFollowSymlinks());
         target.setMaxConsecutiveBlankLines(source.getMaxConsecutiveBlankLines());
@@ -221,11 +246,20 @@ public class ConfigurationLoader {
         target.setMaxFileSize(source.getMaxFileSize());
         target.setMaxFiles(source.getMaxFiles());
         target.setNoLimits(source.isNoLimits());
+        target.setParallel(source.isParallel());
+        target.setThreads(source.getThreads());
+        target.setVirtualThreads(source.isVirtualThreads());
+        target.setMaxConcurrentIo(source.getMaxConcurrentIo());
+        target.setStreamingThreshold(source.getStreamingThreshold());
         target.setDryRun(source.isDryRun());
         target.setCreateBackups(source.isCreateBackups());
+        target.setBackupStore(source.isBackupStore());
         target.setFailFast(source.isFailFast());
+        target.setIncremental(source.isIncremental());
+        target.setSyncWrites(source.isSyncWrites());
         target.setVerbose(source.isVerbose());
         target.setQuiet(source.isQuiet());
         target.setNoColor(source.isNoColor());
+        target.setRules(source.getRules());
     }
 }
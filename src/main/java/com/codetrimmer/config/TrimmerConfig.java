@@ -11,6 +11,7 @@ public class TrimmerConfig {
 
     private String include = "*";
     private String exclude = "";
+    private String excludeDirs = "";
     private boolean includeHidden = false;
     private boolean followSymlinks = false;
     private int maxConsecutiveBlankLines = 2;
@@ -19,9 +20,17 @@ public class TrimmerConfig {
     private long maxFileSize = 5242880;
     private int maxFiles = 50;
     private boolean noLimits = false;
+    private boolean parallel = false;
+    private int threads = 0;
+    private boolean virtualThreads = false;
+    private int maxConcurrentIo = 256;
+    private long streamingThreshold = 16777216;
     private boolean dryRun = false;
     private boolean createBackups = true;
+    private boolean backupStore = false;
     private boolean failFast = false;
+    private boolean incremental = false;
+    private boolean syncWrites = false;
     private boolean verbose = false;
     private boolean quiet = false;
     private boolean noColor = false;
@@ -46,6 +55,14 @@ public class TrimmerConfig {
         this.exclude = exclude;
     }
 
+    public String getExcludeDirs() {
+        return excludeDirs;
+    }
+
+    public void setExcludeDirs(String excludeDirs) {
+        this.excludeDirs = excludeDirs;
+    }
+
     public boolean isIncludeHidden() {
         return includeHidden;
     }
@@ -110,6 +127,46 @@ public class TrimmerConfig {
         this.noLimits = noLimits;
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getMaxConcurrentIo() {
+        return maxConcurrentIo;
+    }
+
+    public void setMaxConcurrentIo(int maxConcurrentIo) {
+        this.maxConcurrentIo = maxConcurrentIo;
+    }
+
+    public long getStreamingThreshold() {
+        return streamingThreshold;
+    }
+
+    public void setStreamingThreshold(long streamingThreshold) {
+        this.streamingThreshold = streamingThreshold;
+    }
+
     public boolean isDryRun() {
         return dryRun;
     }
@@ -126,6 +183,14 @@ public class TrimmerConfig {
         this.createBackups = createBackups;
     }
 
+    public boolean isBackupStore() {
+        return backupStore;
+    }
+
+    public void setBackupStore(boolean backupStore) {
+        this.backupStore = backupStore;
+    }
+
     public boolean isFailFast() {
         return failFast;
     }
@@ -134,6 +199,22 @@ public class TrimmerConfig {
         this.failFast = failFast;
     }
 
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isSyncWrites() {
+        return syncWrites;
+    }
+
+    public void setSyncWrites(boolean syncWrites) {
+        this.syncWrites = syncWrites;
+    }
+
     public boolean isVerbose() {
         return verbose;
     }
@@ -0,0 +1,82 @@
+package com.codetrimmer.daemon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thin client that forwards its arguments to a running {@link TrimmerDaemon} and relays the
+ * response. It uses nothing but the JDK, so it is started before Spring and answers in the
+ * time it takes to start a bare JVM.
+ */
+public final class DaemonClient {
+
+  /** Exit code when no daemon is listening, distinct from the commands' own codes. */
+  public static final int EXIT_NO_DAEMON = 3;
+
+  private DaemonClient() {
+    // Utility class
+  }
+
+  /**
+   * Sends a request and relays the response to the given streams.
+   *
+   * @param args {@code [--socket <path>]} followed by the command and its options
+   * @param out standard output
+   * @param err standard error
+   * @return the exit code of the command, or {@link #EXIT_NO_DAEMON}
+   */
+  public static int run(String[] args, PrintStream out, PrintStream err) {
+    List<String> request = new ArrayList<>(Arrays.asList(args));
+    Path socket = DaemonProtocol.defaultSocket();
+    if (request.size() >= 2 && request.get(0).equals("--socket")) {
+      socket = Paths.get(request.get(1));
+      request = request.subList(2, request.size());
+    }
+
+    SocketChannel channel;
+    try {
+      channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+    } catch (IOException e) {
+      err.println("No Code Trimmer daemon is listening on " + socket
+          + ". Start one with: java -jar code-trimmer.jar daemon");
+      return EXIT_NO_DAEMON;
+    }
+
+    try (channel) {
+      OutputStream requestStream = Channels.newOutputStream(channel);
+      DaemonProtocol.writeRequest(requestStream, System.getProperty("user.dir"), request);
+      return relay(new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+          StandardCharsets.UTF_8)), out, err);
+    } catch (IOException e) {
+      err.println("Lost connection to the Code Trimmer daemon: " + e.getMessage());
+      return 2;
+    }
+  }
+
+  private static int relay(BufferedReader response, PrintStream out, PrintStream err) throws IOException {
+    for (String line = response.readLine(); line != null; line = response.readLine()) {
+      String text = line.length() > 2 ? line.substring(2) : "";
+      switch (line.isEmpty() ? ' ' : line.charAt(0)) {
+        case DaemonProtocol.STDOUT -> out.println(text);
+        case DaemonProtocol.STDERR -> err.println(text);
+        case DaemonProtocol.EXIT -> {
+          return Integer.parseInt(text);
+        }
+        default -> throw new IOException("Malformed response line: " + line);
+      }
+    }
+    throw new IOException("Daemon closed the connection before the command finished");
+  }
+}
@@ -0,0 +1,115 @@
+package com.codetrimmer.daemon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format shared by the daemon and its client.
+ *
+ * <p>A request is a sequence of NUL-terminated UTF-8 strings: the argument count, the
+ * client's working directory, then the arguments. The response is a sequence of lines,
+ * each starting with a channel marker: {@code 1 } for standard output, {@code 2 } for
+ * standard error, and a final {@code x <code>} carrying the exit code. The format is plain
+ * enough to drive from {@code nc -U} or {@code socat}.
+ */
+public final class DaemonProtocol {
+
+  /** Environment variable overriding the default socket path. */
+  public static final String SOCKET_ENV = "CODE_TRIMMER_SOCKET";
+
+  private static final String RUNTIME_DIRECTORY_ENV = "XDG_RUNTIME_DIR";
+  private static final String SOCKET_NAME = "daemon.sock";
+
+  /** Marker of a standard output line. */
+  static final char STDOUT = '1';
+  /** Marker of a standard error line. */
+  static final char STDERR = '2';
+  /** Marker of the final exit code line. */
+  static final char EXIT = 'x';
+
+  private DaemonProtocol() {
+    // Utility class
+  }
+
+  /**
+   * Returns the socket path used when none is given: {@code $CODE_TRIMMER_SOCKET}, else a
+   * directory under {@code $XDG_RUNTIME_DIR}, which is private to the user, or else a
+   * per-user directory under the temporary directory.
+   *
+   * @return the socket path
+   */
+  public static Path defaultSocket() {
+    String configured = System.getenv(SOCKET_ENV);
+    if (configured != null && !configured.isEmpty()) {
+      return Paths.get(configured);
+    }
+    String runtimeDirectory = System.getenv(RUNTIME_DIRECTORY_ENV);
+    if (runtimeDirectory != null && !runtimeDirectory.isEmpty()) {
+      return Paths.get(runtimeDirectory, "code-trimmer", SOCKET_NAME);
+    }
+    return Paths.get(System.getProperty("java.io.tmpdir"),
+        "code-trimmer-" + System.getProperty("user.name"), SOCKET_NAME);
+  }
+
+  /**
+   * Writes a request.
+   *
+   * @param out the connection
+   * @param workingDirectory the directory relative paths in the arguments refer to
+   * @param args the command and its options
+   * @throws IOException if writing fails
+   */
+  static void writeRequest(OutputStream out, String workingDirectory, List<String> args) throws IOException {
+    writeToken(out, String.valueOf(args.size()));
+    writeToken(out, workingDirectory);
+    for (String arg : args) {
+      writeToken(out, arg);
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads a request.
+   *
+   * @param in the connection
+   * @return the working directory followed by the arguments
+   * @throws IOException if the request is truncated or malformed
+   */
+  static List<String> readRequest(InputStream in) throws IOException {
+    int count;
+    try {
+      count = Integer.parseInt(readToken(in));
+    } catch (NumberFormatException e) {
+      throw new IOException("Malformed request", e);
+    }
+    List<String> tokens = new ArrayList<>();
+    for (int i = 0; i <= count; i++) {
+      tokens.add(readToken(in));
+    }
+    return tokens;
+  }
+
+  private static void writeToken(OutputStream out, String token) throws IOException {
+    out.write(token.getBytes(StandardCharsets.UTF_8));
+    out.write(0);
+  }
+
+  private static String readToken(InputStream in) throws IOException {
+    ByteArrayOutputStream token = new ByteArrayOutputStream();
+    for (int b = in.read(); b != 0; b = in.read()) {
+      if (b < 0) {
+        throw new EOFException("Truncated request");
+      }
+      token.write(b);
+    }
+    return token.toString(StandardCharsets.UTF_8);
+  }
+}
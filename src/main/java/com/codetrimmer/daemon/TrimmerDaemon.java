@@ -0,0 +1,242 @@
+package com.codetrimmer.daemon;
+
+import com.codetrimmer.cli.CommandRunner;
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.config.ConfigurationLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived server that runs trim and check requests sent over a Unix domain socket, so
+ * callers such as git hooks and editors pay the JVM and Spring startup once rather than per
+ * call, and run on code the JIT has already compiled.
+ *
+ * <p>Each connection carries one request in the {@link DaemonProtocol} format and is
+ * handled by a {@link CommandRunner} on a fixed pool of {@code daemonWorkers} threads;
+ * connections beyond that wait in line, since each request may start a processing pool
+ * of its own. Besides the runner's commands, the
+ * daemon answers {@code ping} and shuts down on {@code stop}. The socket is created in a
+ * directory only its owner can enter, and the daemon refuses to start in an existing
+ * directory that others could enter.
+ */
+@Component
+public class TrimmerDaemon {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TrimmerDaemon.class);
+  private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+  private final CommandRunner runner;
+  private final int workerCount;
+  private final CountDownLatch ready = new CountDownLatch(1);
+  private volatile ServerSocketChannel server;
+
+  public TrimmerDaemon(CodeTrimmerConfig config, ConfigurationLoader configLoader) {
+    this.runner = new CommandRunner(config, configLoader);
+    this.workerCount = Math.max(1, config.getDaemonWorkers());
+  }
+
+  /**
+   * Accepts requests until {@link #stop()} is called or a {@code stop} request arrives.
+   *
+   * @param socket the socket path
+   * @throws IOException if the socket cannot be created or another daemon is listening on it
+   */
+  public void serve(Path socket) throws IOException {
+    bind(socket);
+    ExecutorService workers = Executors.newFixedThreadPool(workerCount, daemonThreads());
+    LOGGER.info("Code Trimmer daemon listening on {}", socket);
+    ready.countDown();
+    try {
+      while (true) {
+        SocketChannel client = server.accept();
+        workers.execute(() -> handle(client));
+      }
+    } catch (ClosedChannelException e) {
+      LOGGER.info("Code Trimmer daemon stopped");
+    } finally {
+      workers.shutdown();
+      Files.deleteIfExists(socket);
+    }
+  }
+
+  /**
+   * Waits until {@link #serve(Path)} is listening. The socket file appears before the socket
+   * accepts connections, so callers starting a daemon wait for this rather than for the file.
+   *
+   * @param timeout the longest time to wait
+   * @param unit the unit of the timeout
+   * @return true if the daemon is listening, false if the timeout elapsed first
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+    return ready.await(timeout, unit);
+  }
+
+  /**
+   * Stops accepting requests. Requests already running are completed.
+   */
+  public void stop() {
+    try {
+      if (server != null) {
+        server.close();
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Error closing daemon socket", e);
+    }
+  }
+
+  private void bind(Path socket) throws IOException {
+    secureDirectory(socket.toAbsolutePath().getParent());
+    if (Files.exists(socket)) {
+      if (isListening(socket)) {
+        throw new IOException("A daemon is already listening on " + socket);
+      }
+      Files.delete(socket); // Left behind by a daemon that did not shut down cleanly
+    }
+    server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    server.bind(UnixDomainSocketAddress.of(socket));
+  }
+
+  /**
+   * Creates the socket directory so only its owner can enter it, or checks that an existing
+   * one is such a directory, since anyone who can enter it could connect to the daemon and
+   * run commands as its owner.
+   *
+   * @param directory the directory holding the socket
+   * @throws IOException if the directory is a link, belongs to another user or is open to others
+   */
+  private static void secureDirectory(Path directory) throws IOException {
+    if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.createDirectories(directory);
+      return;
+    }
+    if (Files.notExists(directory, LinkOption.NOFOLLOW_LINKS)) {
+      Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+    }
+    PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class,
+        LinkOption.NOFOLLOW_LINKS);
+    UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+        .lookupPrincipalByName(System.getProperty("user.name"));
+    if (!attributes.isDirectory() || !attributes.owner().equals(user)
+        || !attributes.permissions().equals(OWNER_ONLY)) {
+      throw new IOException("Socket directory " + directory
+          + " must be a directory owned by " + user.getName() + " with mode 0700");
+    }
+  }
+
+  private static boolean isListening(Path socket) {
+    try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private void handle(SocketChannel client) {
+    try (client;
+         InputStream in = Channels.newInputStream(client);
+         OutputStream out = Channels.newOutputStream(client)) {
+      List<String> request = DaemonProtocol.readRequest(in);
+      Path workingDirectory = Paths.get(request.get(0));
+      List<String> args = request.subList(1, request.size());
+      int exitCode;
+      try (PrintStream stdout = channel(out, DaemonProtocol.STDOUT);
+           PrintStream stderr = channel(out, DaemonProtocol.STDERR)) {
+        exitCode = execute(workingDirectory, args, stdout, stderr);
+      }
+      writeLine(out, DaemonProtocol.EXIT, String.valueOf(exitCode));
+      if (!args.isEmpty() && args.get(0).equals("stop")) {
+        stop();
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Error handling daemon request", e);
+    }
+  }
+
+  private int execute(Path workingDirectory, List<String> args, PrintStream out, PrintStream err) {
+    String command = args.isEmpty() ? "" : args.get(0);
+    if (command.equals("ping") || command.equals("stop")) {
+      out.println(command.equals("ping") ? "pong" : "stopping");
+      return 0;
+    }
+    return runner.run(workingDirectory, args, out, err);
+  }
+
+  /**
+   * Returns a stream that sends each line written to it as one response line on a channel.
+   */
+  private static PrintStream channel(OutputStream out, char marker) {
+    return new PrintStream(new OutputStream() {
+      private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+      @Override
+      public void write(int b) throws IOException {
+        if (b == '\n') {
+          flushLine();
+        } else {
+          line.write(b);
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        if (line.size() > 0) {
+          flushLine();
+        }
+      }
+
+      private void flushLine() throws IOException {
+        String text = line.toString(StandardCharsets.UTF_8);
+        writeLine(out, marker, text.endsWith("\r") ? text.substring(0, text.length() - 1) : text);
+        line.reset();
+      }
+    }, true, StandardCharsets.UTF_8);
+  }
+
+  private static void writeLine(OutputStream out, char marker, String text) throws IOException {
+    synchronized (out) {
+      out.write((marker + " " + text + "\n").getBytes(StandardCharsets.UTF_8));
+      out.flush();
+    }
+  }
+
+  private static ThreadFactory daemonThreads() {
+    AtomicInteger counter = new AtomicInteger();
+    return task -> {
+      Thread thread = new Thread(task, "trimmer-daemon-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -1,8 +1,12 @@
 package com.codetrimmer.model;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
  * Utility class for detecting binary files.
@@ -10,37 +14,94 @@ import java.nio.file.Path;
 public final class BinaryFileDetector {
 
   private static final int BUFFER_SIZE = 8192;
-  private static final byte[] BINARY_MARKERS = {
-    0x00, // NULL byte - strong indicator of binary
-  };
-
   private BinaryFileDetector() {
     // Utility class
   }
 
   /**
    * Detects if a file is binary by checking for null bytes in the first 8KB.
+   * Only that prefix is read, regardless of the file size.
    *
    * @param path the file path to check
    * @return true if the file appears to be binary, false if it appears to be text
    */
   public static boolean isBinary(Path path) {
-    try {
-      byte[] buffer = Files.readAllBytes(path);
-      int bytesRead = Math.min(buffer.length, BUFFER_SIZE);
-
-      for (int i = 0; i < bytesRead; i++) {
-        if (buffer[i] == 0x00) {
-          return true; // Null byte indicates binary
-        }
-      }
-      return false;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return isBinary(readPrefix(channel));
     } catch (IOException e) {
       // If we can't read it, assume it's binary to be safe
       return true;
     }
   }
 
+  /**
+   * Detects if a sniffed prefix belongs to a binary file.
+   *
+   * @param prefix bytes returned by {@link #readPrefix(ReadableByteChannel)}
+   * @return true if the prefix contains a null byte
+   */
+  public static boolean isBinary(byte[] prefix) {
+    int bytesRead = Math.min(prefix.length, BUFFER_SIZE);
+    for (int i = 0; i < bytesRead; i++) {
+      if (prefix[i] == 0x00) {
+        return true; // Null byte indicates binary
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reads the bytes used for binary detection from the current channel position.
+   * The channel is left positioned after the prefix, so callers can keep the
+   * returned bytes and continue reading the rest of the file without re-reading them.
+   *
+   * @param channel the channel to read from
+   * @return up to 8KB of content; shorter only when the end of the file was reached
+   * @throws IOException if reading fails
+   */
+  public static byte[] readPrefix(ReadableByteChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    int read = 0;
+    while (buffer.hasRemaining() && read >= 0) {
+      read = channel.read(buffer);
+    }
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
+  /**
+   * Reads the rest of a file after its sniffed prefix, reusing the prefix bytes.
+   *
+   * @param channel the channel positioned after the prefix
+   * @param prefix the bytes already read
+   * @return the full file content
+   * @throws IOException if reading fails or the file is too large to hold in memory
+   */
+  public static byte[] readRemaining(FileChannel channel, byte[] prefix) throws IOException {
+    if (prefix.length < BUFFER_SIZE) {
+      return prefix; // The prefix already holds the whole file
+    }
+    long size = channel.size();
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new IOException("File too large to load into memory: " + size + " bytes");
+    }
+    byte[] bytes = Arrays.copyOf(prefix, (int) Math.max(size, prefix.length));
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, prefix.length, bytes.length - prefix.length);
+    int read = 0;
+    while (buffer.hasRemaining() && read >= 0) {
+      read = channel.read(buffer);
+    }
+    return buffer.position() == bytes.length ? bytes : Arrays.copyOf(bytes, buffer.position());
+  }
+
+  /**
+   * Returns the number of bytes sniffed by {@link #readPrefix(ReadableByteChannel)}.
+   *
+   * @return prefix size in bytes
+   */
+  public static int prefixSize() {
+    return BUFFER_SIZE;
+  }
+
   /**
    * Checks if a file is likely to be a common binary file type based on extension.
    *
@@ -0,0 +1,27 @@
+package com.codetrimmer.model;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * A file selected for processing, carrying the attributes read while discovering it
+ * so later stages do not need to stat the file again.
+ *
+ * @param path the file path
+ * @param size the file size in bytes
+ * @param lastModified the last modification time
+ */
+public record FileEntry(Path path, long size, FileTime lastModified) {
+
+  /**
+   * Creates an entry from attributes already read for the path.
+   *
+   * @param path the file path
+   * @param attrs the file attributes
+   * @return the entry
+   */
+  public static FileEntry of(Path path, BasicFileAttributes attrs) {
+    return new FileEntry(path, attrs.size(), attrs.lastModifiedTime());
+  }
+}
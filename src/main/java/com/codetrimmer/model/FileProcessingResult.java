@@ -12,6 +12,7 @@ public final class FileProcessingResult {
   private final int linesTrimmed;
   private final int blankLinesRemoved;
   private final String errorMessage;
+  private final String diff;
 
   private FileProcessingResult(Builder builder) {
     this.filePath = builder.filePath;
@@ -21,6 +22,7 @@ public final class FileProcessingResult {
     this.linesTrimmed = builder.linesTrimmed;
     this.blankLinesRemoved = builder.blankLinesRemoved;
     this.errorMessage = builder.errorMessage;
+    this.diff = builder.diff;
   }
 
   public static class Builder {
@@ -31,6 +33,7 @@ public final class FileProcessingResult {
     private int linesTrimmed = 0;
     private int blankLinesRemoved = 0;
     private String errorMessage = "";
+    private String diff = "";
 
     public Builder(String filePath) {
       this.filePath = filePath;
@@ -66,6 +69,11 @@ public final class FileProcessingResult {
       return this;
     }
 
+    public Builder diff(String diff) {
+      this.diff = diff;
+      return this;
+    }
+
     public FileProcessingResult build() {
       return new FileProcessingResult(this);
     }
@@ -100,6 +108,15 @@ public final class FileProcessingResult {
     return errorMessage;
   }
 
+  /**
+   * Returns the unified diff of the changes a dry run would make.
+   *
+   * @return the diff, or an empty string if none was requested
+   */
+  public String getDiff() {
+    return diff;
+  }
+
   public boolean hasError() {
     return errorMessage != null && !errorMessage.isEmpty();
   }
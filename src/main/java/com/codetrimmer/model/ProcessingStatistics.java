@@ -6,6 +6,7 @@ import lombok.Data;
 
 /**
  * Statistics tracking for file processing operations.
+ * Counter updates are synchronized so files can be processed concurrently.
  */
 @Data
 @Builder
@@ -23,6 +24,9 @@ public class ProcessingStatistics {
   private int filesSkippedPermission;
   private int filesSkippedSize;
   private int filesSkippedOther;
+  private int peakConcurrency;
+  private int indexHits;
+  private int indexMisses;
 
   public ProcessingStatistics() {
     this.startTime = System.currentTimeMillis();
@@ -49,23 +53,50 @@ public class ProcessingStatistics {
     return (endTime - startTime) / 1000.0;
   }
 
-  public void incrementFilesScanned() {
+  public synchronized void incrementFilesScanned() {
     this.filesScanned++;
   }
 
-  public void incrementFilesModified() {
+  public synchronized void incrementFilesModified() {
     this.filesModified++;
   }
 
-  public void incrementFilesSkipped() {
+  public synchronized void incrementFilesSkipped() {
     this.filesSkipped++;
   }
 
-  public void addLinesTrimmed(int count) {
+  public synchronized void incrementFilesSkippedBinary() {
+    this.filesSkipped++;
+    this.filesSkippedBinary++;
+  }
+
+  public synchronized void incrementFilesSkippedPermission() {
+    this.filesSkipped++;
+    this.filesSkippedPermission++;
+  }
+
+  public synchronized void addLinesTrimmed(int count) {
     this.linesTrimmed += count;
   }
 
-  public void addBlankLinesRemoved(int count) {
+  public synchronized void addBlankLinesRemoved(int count) {
     this.blankLinesRemoved += count;
   }
+
+  public synchronized void incrementIndexHits() {
+    this.indexHits++;
+  }
+
+  public synchronized void incrementIndexMisses() {
+    this.indexMisses++;
+  }
+
+  /**
+   * Records the number of files processed at the same time, keeping the highest value seen.
+   *
+   * @param concurrency files in flight during a concurrent run
+   */
+  public synchronized void recordConcurrency(int concurrency) {
+    this.peakConcurrency = Math.max(this.peakConcurrency, concurrency);
+  }
 }
@@ -0,0 +1,140 @@
+package com.codetrimmer.service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed store for the backups of modified files, kept under the processed
+ * directory instead of as {@code .bak} files next to each source file.
+ *
+ * <p>Each original is stored once in {@code .codetrimmer/objects}, named by the SHA-256 of its
+ * content, so a file that goes back to an earlier state, or identical files, share one object.
+ * An object is a hard link to the original it was taken from where the file system allows,
+ * since the original is replaced rather than written to; an original with other hard links is
+ * written in place instead, so its object is a copy. Which object holds the previous
+ * content of which file is recorded in the {@link RunJournal} of each run.
+ */
+final class BackupStore {
+
+  private static final String OBJECTS_DIRECTORY = "objects";
+
+  private final Path root;
+  private final Map<Path, Path> files = new ConcurrentHashMap<>();
+  private final Set<Path> created = ConcurrentHashMap.newKeySet();
+
+  private BackupStore(Path root) {
+    this.root = root;
+  }
+
+  /**
+   * Starts storing the backups of one run.
+   *
+   * @param root the processed directory, which holds the store
+   * @return the store for this run
+   */
+  static BackupStore open(Path root) {
+    return new BackupStore(root);
+  }
+
+  /**
+   * Stores the content of a file that is about to be replaced, unless an object with that
+   * content already exists.
+   *
+   * @param file the file to back up, still holding its original content
+   * @param hash the SHA-256 of that content
+   * @return the object holding the content
+   */
+  Path backUp(Path file, String hash) throws IOException {
+    Path object = objectPath(root, hash);
+    if (Files.exists(object) && Files.isSameFile(object, file)) {
+      // Linked by a run that stopped before replacing the file, which may now be written in place
+      copy(file, object);
+    } else if (!Files.exists(object)) {
+      Files.createDirectories(object.getParent());
+      try {
+        if (!FileReplacer.isSingleLink(file)) {
+          throw new FileSystemException(file.toString(), null, "File has other hard links");
+        }
+        Files.createLink(object, file);
+        created.add(object);
+      } catch (FileAlreadyExistsException e) {
+        // Stored concurrently by a file with the same content
+      } catch (UnsupportedOperationException | FileSystemException e) {
+        copy(file, object);
+        created.add(object);
+      }
+    }
+    files.put(file, object);
+    return object;
+  }
+
+  /**
+   * Drops the backup of a file whose replacement failed. An object this run linked to the
+   * file is deleted, since the file stays in place and could later be edited through it.
+   *
+   * @param file the file that was not replaced
+   */
+  void discard(Path file) throws IOException {
+    Path object = files.remove(file);
+    if (object != null && created.contains(object) && !files.containsValue(object)) {
+      created.remove(object);
+      Files.deleteIfExists(object);
+    }
+  }
+
+  /**
+   * Checks whether a backup is an object in a store rather than a {@code .bak} file.
+   *
+   * @param root the directory holding the store
+   * @param backup the backup
+   * @return true if the backup is a stored object
+   */
+  static boolean isObject(Path root, Path backup) {
+    Path objects = root.toAbsolutePath().normalize().resolve(FileIndex.STATE_DIRECTORY).resolve(OBJECTS_DIRECTORY);
+    return backup.toAbsolutePath().normalize().startsWith(objects);
+  }
+
+  /**
+   * Deletes the given objects unless a run journal still refers to them.
+   *
+   * @param root the directory holding the store and the journals
+   * @param objects the objects of restored backups
+   */
+  static void release(Path root, Collection<Path> objects) throws IOException {
+    Map<Path, Integer> referenced = RunJournal.countReferences(root, new HashSet<>(objects));
+    for (Path object : objects) {
+      if (!referenced.containsKey(object)) {
+        Files.deleteIfExists(object);
+      }
+    }
+  }
+
+  private static Path objectPath(Path root, String hash) {
+    return root.resolve(FileIndex.STATE_DIRECTORY).resolve(OBJECTS_DIRECTORY)
+        .resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+  }
+
+  private static void copy(Path file, Path object) throws IOException {
+    Path temp = Files.createTempFile(object.getParent(), object.getFileName().toString(), ".tmp");
+    try {
+      Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+      try {
+        Files.move(temp, object, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, object, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+}
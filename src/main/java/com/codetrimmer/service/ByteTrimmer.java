@@ -0,0 +1,277 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Applies the same rules as {@link FileTrimmer} directly to UTF-8 encoded bytes.
+ *
+ * <p>Every rule concerns ASCII bytes, plus the NEL, LINE SEPARATOR and PARAGRAPH SEPARATOR
+ * characters whose UTF-8 encodings are matched as byte sequences, so valid UTF-8 never needs
+ * to be decoded. The output is byte-identical to encoding the result of {@link FileTrimmer}.
+ * Content that {@link #isValidUtf8(byte[])} does not accept must go through the
+ * {@code String} path instead, which reports malformed input.
+ */
+final class ByteTrimmer {
+
+  private final byte[] content;
+  private final CodeTrimmerConfig config;
+
+  ByteTrimmer(byte[] content, CodeTrimmerConfig config) {
+    this.content = content;
+    this.config = config;
+  }
+
+  /**
+   * Applies all trimming rules to the content in a single pass.
+   *
+   * @return trim result; its content is the input array itself when nothing changed
+   */
+  Result trim() {
+    return new Pass(null).run();
+  }
+
+  /**
+   * Applies all trimming rules to the content, recording the line edits they make as
+   * {@link FileTrimmer#trim(EditScript)} does.
+   *
+   * @param script receives the edits that turn the content into the trimmed content
+   * @return trim result; its content is the input array itself when nothing changed
+   */
+  Result trim(EditScript script) {
+    return new Pass(script).run();
+  }
+
+  /**
+   * Scans the content for the first rule violation without building any output, in the same
+   * order as {@link FileTrimmer#check()}.
+   *
+   * @return check result with the first offending line, if any
+   */
+  FileTrimmer.CheckResult check() {
+    return new LineCheck(new Bytes(), config).run();
+  }
+
+  /**
+   * Checks that bytes are well-formed UTF-8, rejecting overlong forms, surrogates and code
+   * points above U+10FFFF as the JDK's strict decoder does.
+   *
+   * @param bytes the bytes to check
+   * @return true if the bytes are valid UTF-8
+   */
+  static boolean isValidUtf8(byte[] bytes) {
+    int i = 0;
+    while (i < bytes.length) {
+      if (bytes[i] >= 0) {
+        i++;
+        continue;
+      }
+      int length = validSequenceLength(bytes, i);
+      if (length == 0) {
+        return false;
+      }
+      i += length;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the length of the multi-byte sequence starting at an index, or 0 if it is malformed.
+   */
+  private static int validSequenceLength(byte[] bytes, int start) {
+    int lead = bytes[start] & 0xFF;
+    int length = sequenceLength(lead);
+    if (length == 0 || start + length > bytes.length || !isValidSecondByte(lead, bytes[start + 1] & 0xFF)) {
+      return 0;
+    }
+    for (int i = start + 2; i < start + length; i++) {
+      if ((bytes[i] & 0xC0) != 0x80) {
+        return 0;
+      }
+    }
+    return length;
+  }
+
+  private static int sequenceLength(int lead) {
+    if (lead < 0xC2 || lead > 0xF4) {
+      return 0; // Continuation byte, overlong two-byte form, or beyond U+10FFFF
+    }
+    return lead < 0xE0 ? 2 : lead < 0xF0 ? 3 : 4;
+  }
+
+  /**
+   * Checks the second byte of a sequence, whose range is narrower after leads that could
+   * otherwise encode overlong forms, surrogates or code points beyond U+10FFFF.
+   */
+  private static boolean isValidSecondByte(int lead, int second) {
+    int min = lead == 0xE0 ? 0xA0 : lead == 0xF0 ? 0x90 : 0x80;
+    int max = lead == 0xED ? 0x9F : lead == 0xF4 ? 0x8F : 0xBF;
+    return second >= min && second <= max;
+  }
+
+  private static int endWithoutNewlines(byte[] bytes, int end) {
+    while (end > 0 && bytes[end - 1] == '\n') {
+      end--;
+    }
+    return end;
+  }
+
+  /**
+   * The content as bytes. Bytes of multi-byte characters are never whitespace or blank, and
+   * ranges are only decoded when they are turned into text.
+   */
+  private final class Bytes implements LineContent {
+
+    @Override
+    public int length() {
+      return content.length;
+    }
+
+    @Override
+    public int nextLineFeed(int from) {
+      for (int i = from; i < content.length; i++) {
+        if (content[i] == '\n') {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public boolean isLineFeed(int index) {
+      return content[index] == '\n';
+    }
+
+    @Override
+    public int regexLineEnd(int start, int end) {
+      if (end - start >= 2 && content[end - 2] == (byte) 0xC2 && content[end - 1] == (byte) 0x85) {
+        return end - 2;
+      }
+      if (end - start >= 3 && content[end - 3] == (byte) 0xE2 && content[end - 2] == (byte) 0x80
+          && (content[end - 1] == (byte) 0xA8 || content[end - 1] == (byte) 0xA9)) {
+        return end - 3;
+      }
+      return end;
+    }
+
+    @Override
+    public int whitespaceStart(int start, int end) {
+      int pos = end;
+      while (pos > start && FileTrimmer.isWhitespace((char) content[pos - 1])) {
+        pos--;
+      }
+      return pos;
+    }
+
+    @Override
+    public boolean isBlank(int start, int end) {
+      for (int i = start; i < end; i++) {
+        if ((content[i] & 0xFF) > ' ') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public String text(int start, int end) {
+      return new String(content, start, end - start, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * State of a single trimming pass over the content.
+   */
+  private final class Pass extends LinePass {
+    private final byte[] original = ByteTrimmer.this.content;
+    private byte[] out;
+    private int length;
+    private int copied;
+
+    Pass(EditScript script) {
+      super(new Bytes(), ByteTrimmer.this.config, script);
+    }
+
+    Result run() {
+      visitLines();
+      byte[] result = finish();
+      boolean changed = result != original && !Arrays.equals(result, original);
+      return new Result(changed ? result : original, getLinesTrimmed(), getBlankLinesRemoved(), changed);
+    }
+
+    /**
+     * Removes a range from the output, materializing it on the first change.
+     */
+    @Override
+    protected void drop(int from, int to) {
+      if (out == null) {
+        out = new byte[original.length + 1];
+      }
+      append(from);
+      copied = to;
+    }
+
+    private void append(int to) {
+      System.arraycopy(original, copied, out, length, to - copied);
+      length += to - copied;
+      copied = to;
+    }
+
+    private byte[] finish() {
+      if (out == null) {
+        if (!config.isEnsureFinalNewline()) {
+          return original;
+        }
+        int end = endWithoutNewlines(original, original.length);
+        if (end == original.length - 1) {
+          return original;
+        }
+        byte[] result = Arrays.copyOf(original, end + 1);
+        result[end] = '\n';
+        return result;
+      }
+
+      append(original.length);
+      if (config.isEnsureFinalNewline()) {
+        length = endWithoutNewlines(out, length);
+        out[length++] = '\n';
+      }
+      return Arrays.copyOf(out, length);
+    }
+  }
+
+  /**
+   * Result of a byte-level trimming operation.
+   */
+  static final class Result {
+    private final byte[] content;
+    private final int linesTrimmed;
+    private final int blankLinesRemoved;
+    private final boolean changed;
+
+    Result(byte[] content, int linesTrimmed, int blankLinesRemoved, boolean changed) {
+      this.content = content;
+      this.linesTrimmed = linesTrimmed;
+      this.blankLinesRemoved = blankLinesRemoved;
+      this.changed = changed;
+    }
+
+    byte[] getContent() {
+      return content;
+    }
+
+    int getLinesTrimmed() {
+      return linesTrimmed;
+    }
+
+    int getBlankLinesRemoved() {
+      return blankLinesRemoved;
+    }
+
+    boolean isChanged() {
+      return changed;
+    }
+  }
+}
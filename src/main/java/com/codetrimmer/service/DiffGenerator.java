@@ -8,11 +8,40 @@ import java.util.List;
 /**
  * Service for generating unified diff output.
  * Shows line-by-line changes in dry-run mode.
+ *
+ * <p>Lines are compared with Myers' O(ND) algorithm in its linear-space form: the middle
+ * snake of each region is found by searching forward and backward at once, and the two
+ * halves are diffed recursively, so memory stays proportional to the input and the hunks
+ * are minimal. Lines are interned to integers first, so the search compares ints rather
+ * than strings. A region whose edit distance exceeds the configured bound is split at a
+ * likely point instead of being searched further, which caps the time spent on heavily
+ * edited or unrelated content at the cost of hunks that may be slightly larger than minimal.
+ *
+ * <p>When the trimmer recorded an {@link EditScript}, the diff is rendered from it directly
+ * and no lines are compared.
  */
 @Service
 public class DiffGenerator {
 
     private static final int CONTEXT_LINES = 3;
+    private static final int DEFAULT_MAX_EDIT_DISTANCE = 1024;
+    private static final String NO_NEWLINE = "\\ No newline at end of file\n";
+
+    private final int maxEditDistance;
+
+    public DiffGenerator() {
+        this(DEFAULT_MAX_EDIT_DISTANCE);
+    }
+
+    /**
+     * Creates a generator with a bound on the edit distance searched per region.
+     *
+     * @param maxEditDistance the largest number of inserted plus deleted lines to search
+     *     for in one region before treating it as replaced
+     */
+    public DiffGenerator(int maxEditDistance) {
+        this.maxEditDistance = Math.max(1, maxEditDistance);
+    }
 
     /**
      * Generates a unified diff between original and modified content.
@@ -27,270 +56,203 @@ public class DiffGenerator {
             return "";
         }
 
-        String[] originalLines = originalContent.split("\n", -1);
-        String[] modifiedLines = modifiedContent.split("\n", -1);
+        String[] originalLines = splitLines(originalContent);
+        String[] modifiedLines = splitLines(modifiedContent);
+        boolean[] removed = new boolean[originalLines.length];
+        boolean[] added = new boolean[modifiedLines.length];
+        new MyersDiff(originalLines, modifiedLines, removed, added, maxEditDistance).run();
 
         StringBuilder diff = new StringBuilder();
         diff.append("--- a/").append(fileName).append("\n");
         diff.append("+++ b/").append(fileName).append("\n");
-
-        List<DiffHunk> hunks = computeHunks(originalLines, modifiedLines);
-
-        for (DiffHunk hunk : hunks) {
-            diff.append(hunk.toString());
-        }
-
+        appendHunks(diff, originalLines, modifiedLines, changes(removed, added));
         return diff.toString();
     }
 
     /**
-     * Computes diff hunks between two line arrays.
+     * Generates a unified diff from the edit script recorded while trimming the content.
+     * The script already says which lines changed, so the hunks are built in one pass over
+     * the lines without comparing any of them.
      *
-     * @param original original lines
-     * @param modified modified lines
-     * @return list of diff hunks
-     */
-    private List<DiffHunk> computeHunks(String[] original, String[] modified) {
-        List<DiffHunk> hunks = new ArrayList<>();
-        List<DiffLine> allChanges = computeLCS(original, modified);
-
-        if (allChanges.isEmpty()) {
-            return hunks;
-        }
-
-        HunkBuilder hunkBuilder = new HunkBuilder(allChanges, CONTEXT_LINES);
-        return hunkBuilder.buildHunks(this::createHunk);
-    }
-
-    /**
-     * Helper class to build diff hunks with reduced complexity.
+     * @param originalContent the original file content
+     * @param script the edits that turn the original content into the modified content
+     * @param fileName the file name for the diff header
+     * @return unified diff as string
      */
-    private static class HunkBuilder {
-        private final List<DiffLine> allChanges;
-        private final int contextLines;
-        private int hunkStart = -1;
-        private List<DiffLine> currentHunkLines = new ArrayList<>();
-        private int lastChangeIndex;
-
-        HunkBuilder(List<DiffLine> allChanges, int contextLines) {
-            this.allChanges = allChanges;
-            this.contextLines = contextLines;
-            this.lastChangeIndex = -contextLines - 1;
-        }
-
-        List<DiffHunk> buildHunks(HunkCreator creator) {
-            List<DiffHunk> hunks = new ArrayList<>();
-            for (int i = 0; i < allChanges.size(); i++) {
-                DiffLine line = allChanges.get(i);
-                processLine(hunks, line, i, creator);
-            }
-            if (!currentHunkLines.isEmpty()) {
-                hunks.add(creator.create(currentHunkLines, hunkStart));
-            }
-            return hunks;
+    public String generateDiff(String originalContent, EditScript script, String fileName) {
+        if (script.isEmpty()) {
+            return "";
         }
 
-        private void processLine(List<DiffHunk> hunks, DiffLine line, int i, HunkCreator creator) {
-            if (line.type != DiffLine.Type.CONTEXT) {
-                handleChangeLine(hunks, i, creator);
-                lastChangeIndex = i;
+        String[] originalLines = splitLines(originalContent);
+        int modifiedCount = modifiedCount(originalLines.length, script);
+        String[] modifiedLines = new String[modifiedCount];
+        boolean[] removed = new boolean[originalLines.length];
+        boolean[] added = new boolean[modifiedCount];
+        int i = 0;
+        int j = 0;
+        for (EditScript.Edit edit : script.getEdits()) {
+            while (i < edit.line()) {
+                modifiedLines[j++] = originalLines[i++];
             }
-            if (hunkStart != -1) {
-                handleHunkLine(hunks, line, i, creator);
+            if (edit.operation() != EditScript.Operation.INSERT) {
+                removed[i++] = true;
             }
-        }
-
-        private void handleChangeLine(List<DiffHunk> hunks, int i, HunkCreator creator) {
-            if (hunkStart == -1 || i - lastChangeIndex > contextLines * 2) {
-                if (!currentHunkLines.isEmpty()) {
-                    hunks.add(creator.create(currentHunkLines, hunkStart));
-                    currentHunkLines = new ArrayList<>();
-                }
-                int contextStart = Math.max(0, i - contextLines);
-                hunkStart = contextStart;
-                for (int j = contextStart; j < i; j++) {
-                    currentHunkLines.add(allChanges.get(j));
-                }
+            if (edit.operation() != EditScript.Operation.DELETE) {
+                added[j] = true;
+                modifiedLines[j++] = edit.text();
             }
         }
-
-        private void handleHunkLine(List<DiffHunk> hunks, DiffLine line, int i, HunkCreator creator) {
-            if (line.type != DiffLine.Type.CONTEXT || i - lastChangeIndex <= contextLines) {
-                currentHunkLines.add(line);
-            } else if (i - lastChangeIndex == contextLines + 1) {
-                hunks.add(creator.create(currentHunkLines, hunkStart));
-                currentHunkLines = new ArrayList<>();
-                hunkStart = -1;
-            }
+        while (i < originalLines.length) {
+            modifiedLines[j++] = originalLines[i++];
         }
-    }
 
-    @FunctionalInterface
-    private interface HunkCreator {
-        DiffHunk create(List<DiffLine> lines, int startLine);
+        StringBuilder diff = new StringBuilder();
+        diff.append("--- a/").append(fileName).append("\n");
+        diff.append("+++ b/").append(fileName).append("\n");
+        appendHunks(diff, originalLines, modifiedLines, changes(removed, added));
+        return diff.toString();
     }
 
     /**
-     * Computes longest common subsequence based diff.
-     *
-     * @param original original lines
-     * @param modified modified lines
-     * @return list of diff lines
+     * Counts the lines left after applying an edit script.
      */
-    private List<DiffLine> computeLCS(String[] original, String[] modified) {
-        List<DiffLine> result = new ArrayList<>();
-        int origIdx = 0;
-        int modIdx = 0;
-
-        // Simple diff algorithm - compare line by line
-        while (origIdx < original.length || modIdx < modified.length) {
-            if (origIdx >= original.length) {
-                // Only additions remain
-                result.add(new DiffLine(DiffLine.Type.ADDED, modified[modIdx], modIdx + 1));
-                modIdx++;
-            } else if (modIdx >= modified.length) {
-                // Only deletions remain
-                result.add(new DiffLine(DiffLine.Type.REMOVED, original[origIdx], origIdx + 1));
-                origIdx++;
-            } else if (original[origIdx].equals(modified[modIdx])) {
-                // Lines match
-                result.add(new DiffLine(DiffLine.Type.CONTEXT, original[origIdx], origIdx + 1));
-                origIdx++;
-                modIdx++;
-            } else {
-                // Lines differ - check if it's a modification or insertion/deletion
-                int lookAhead = findNextMatch(original, modified, origIdx, modIdx);
-                if (lookAhead == CHANGE_MODIFICATION) {
-                    // Line was modified
-                    result.add(new DiffLine(DiffLine.Type.REMOVED, original[origIdx], origIdx + 1));
-                    result.add(new DiffLine(DiffLine.Type.ADDED, modified[modIdx], modIdx + 1));
-                    origIdx++;
-                    modIdx++;
-                } else if (lookAhead == CHANGE_DELETION) {
-                    // Line was deleted
-                    result.add(new DiffLine(DiffLine.Type.REMOVED, original[origIdx], origIdx + 1));
-                    origIdx++;
-                } else {
-                    // Line was added
-                    result.add(new DiffLine(DiffLine.Type.ADDED, modified[modIdx], modIdx + 1));
-                    modIdx++;
-                }
+    private static int modifiedCount(int originalCount, EditScript script) {
+        int count = originalCount;
+        for (EditScript.Edit edit : script.getEdits()) {
+            if (edit.operation() == EditScript.Operation.DELETE) {
+                count--;
+            } else if (edit.operation() == EditScript.Operation.INSERT) {
+                count++;
             }
         }
-
-        return result;
+        return count;
     }
 
     /**
-     * Change type indicators for diff algorithm.
-     */
-    private static final int CHANGE_MODIFICATION = 1;
-    private static final int CHANGE_DELETION = 2;
-    private static final int CHANGE_ADDITION = 3;
-
-    /**
-     * Finds the next matching line to determine change type.
+     * Splits content into lines that keep their line feed, so a last line without one
+     * differs from the same text with one.
      *
-     * @param original original lines
-     * @param modified modified lines
-     * @param origIdx current original index
-     * @param modIdx current modified index
-     * @return CHANGE_MODIFICATION, CHANGE_DELETION, or CHANGE_ADDITION
+     * @param content the content
+     * @return the lines; none for empty content
      */
-    private int findNextMatch(String[] original, String[] modified, int origIdx, int modIdx) {
-        // Look ahead to find if next original matches current modified
-        if (origIdx + 1 < original.length && original[origIdx + 1].equals(modified[modIdx])) {
-            return CHANGE_DELETION;
+    private static String[] splitLines(String content) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            lines.add(content.substring(start, end + 1));
+            start = end + 1;
         }
-        // Look ahead to find if current original matches next modified
-        if (modIdx + 1 < modified.length && original[origIdx].equals(modified[modIdx + 1])) {
-            return CHANGE_ADDITION;
+        if (start < content.length()) {
+            lines.add(content.substring(start));
         }
-        return CHANGE_MODIFICATION;
+        return lines.toArray(new String[0]);
     }
 
     /**
-     * Creates a diff hunk from lines.
+     * Collects the runs of removed and added lines marked by a comparison.
      *
-     * @param lines the diff lines
-     * @param startLine the starting line number
-     * @return the diff hunk
+     * @param removed flags for the original lines that were removed
+     * @param added flags for the modified lines that were added
+     * @return the changes, in file order
      */
-    private DiffHunk createHunk(List<DiffLine> lines, int startLine) {
-        int origStart = startLine + 1;
-        int origCount = 0;
-        int modStart = startLine + 1;
-        int modCount = 0;
-
-        for (DiffLine line : lines) {
-            if (line.type == DiffLine.Type.REMOVED) {
-                origCount++;
-            } else if (line.type == DiffLine.Type.ADDED) {
-                modCount++;
+    private static List<Change> changes(boolean[] removed, boolean[] added) {
+        List<Change> changes = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < removed.length || j < added.length) {
+            if (isSet(removed, i) || isSet(added, j)) {
+                int originalStart = i;
+                int modifiedStart = j;
+                while (isSet(removed, i)) {
+                    i++;
+                }
+                while (isSet(added, j)) {
+                    j++;
+                }
+                changes.add(new Change(originalStart, i, modifiedStart, j));
             } else {
-                origCount++;
-                modCount++;
+                i++;
+                j++;
             }
         }
+        return changes;
+    }
 
-        return new DiffHunk(origStart, origCount, modStart, modCount, lines);
+    private static boolean isSet(boolean[] flags, int index) {
+        return index < flags.length && flags[index];
     }
 
     /**
-     * Represents a single line in a diff.
+     * Writes the hunks for a list of changes, merging changes whose context would touch or
+     * overlap.
+     *
+     * @param diff the output
+     * @param original original lines
+     * @param modified modified lines
+     * @param changes the changes, in file order
      */
-    private static class DiffLine {
-        enum Type {
-            CONTEXT, ADDED, REMOVED
-        }
-
-        final Type type;
-        final String content;
-        final int lineNumber;
-
-        DiffLine(Type type, String content, int lineNumber) {
-            this.type = type;
-            this.content = content;
-            this.lineNumber = lineNumber;
-        }
+    private static void appendHunks(StringBuilder diff, String[] original, String[] modified,
+                                    List<Change> changes) {
+        int first = 0;
+        while (first < changes.size()) {
+            int last = first;
+            while (last + 1 < changes.size()
+                && changes.get(last + 1).originalStart() - changes.get(last).originalEnd() <= CONTEXT_LINES * 2) {
+                last++;
+            }
 
-        @Override
-        public String toString() {
-            return switch (type) {
-                case ADDED -> "+" + content;
-                case REMOVED -> "-" + content;
-                case CONTEXT -> " " + content;
-            };
+            Change head = changes.get(first);
+            Change tail = changes.get(last);
+            int leading = Math.min(CONTEXT_LINES, head.originalStart());
+            int trailing = Math.min(CONTEXT_LINES, original.length - tail.originalEnd());
+            int originalStart = head.originalStart() - leading;
+            int modifiedStart = head.modifiedStart() - leading;
+            int originalCount = tail.originalEnd() + trailing - originalStart;
+            int modifiedCount = tail.modifiedEnd() + trailing - modifiedStart;
+
+            diff.append("@@ -").append(hunkStart(originalStart, originalCount)).append(",").append(originalCount);
+            diff.append(" +").append(hunkStart(modifiedStart, modifiedCount)).append(",").append(modifiedCount);
+            diff.append(" @@\n");
+            int next = originalStart;
+            for (int c = first; c <= last; c++) {
+                Change change = changes.get(c);
+                appendLines(diff, ' ', original, next, change.originalStart());
+                appendLines(diff, '-', original, change.originalStart(), change.originalEnd());
+                appendLines(diff, '+', modified, change.modifiedStart(), change.modifiedEnd());
+                next = change.originalEnd();
+            }
+            appendLines(diff, ' ', original, next, tail.originalEnd() + trailing);
+            first = last + 1;
         }
     }
 
     /**
-     * Represents a diff hunk with context.
+     * Returns the 1-based start line of a hunk side; an empty side names the line before it.
      */
-    private static class DiffHunk {
-        final int origStart;
-        final int origCount;
-        final int modStart;
-        final int modCount;
-        final List<DiffLine> lines;
-
-        DiffHunk(int origStart, int origCount, int modStart, int modCount, List<DiffLine> lines) {
-            this.origStart = origStart;
-            this.origCount = origCount;
-            this.modStart = modStart;
-            this.modCount = modCount;
-            this.lines = lines;
-        }
+    private static int hunkStart(int start, int count) {
+        return count == 0 ? start : start + 1;
+    }
 
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            sb.append("@@ -").append(origStart).append(",").append(origCount);
-            sb.append(" +").append(modStart).append(",").append(modCount).append(" @@\n");
-            for (DiffLine line : lines) {
-                sb.append(line).append("\n");
+    private static void appendLines(StringBuilder diff, char prefix, String[] lines, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String line = lines[i];
+            diff.append(prefix).append(line);
+            if (!line.endsWith("\n")) {
+                diff.append("\n").append(NO_NEWLINE);
             }
-            return sb.toString();
         }
     }
+
+    /**
+     * A run of removed original lines replaced by a run of added lines; either may be empty.
+     *
+     * @param originalStart first removed original line, 0-based
+     * @param originalEnd end of the removed lines, exclusive
+     * @param modifiedStart first added modified line, 0-based
+     * @param modifiedEnd end of the added lines, exclusive
+     */
+    private record Change(int originalStart, int originalEnd, int modifiedStart, int modifiedEnd) {
+    }
 }
@@ -0,0 +1,111 @@
+package com.codetrimmer.service;
+
+/**
+ * Records the line edits of a {@link LinePass} into an edit script. Only changed lines are
+ * turned into text.
+ *
+ * <p>Lines are recorded as the pass visits them. The final newline rule strips every
+ * trailing line feed and adds one back, which in line terms drops the kept lines at the end
+ * that hold only a line feed and terminates the last line; the recorder tracks those lines
+ * so it can apply the rule to the script once the pass is done.
+ */
+final class EditRecorder {
+
+  private final LineContent content;
+  private final EditScript script;
+  private int line; // The line being visited
+  private boolean keptText; // Whether a line other than a lone line feed was kept
+  private int newlineRun = -1; // First of the lone line feeds kept after the last text line
+  private boolean keptBeforeRun;
+  private String unterminated; // New text of a kept last line without a line feed
+
+  EditRecorder(LineContent content, EditScript script) {
+    this.content = content;
+    this.script = script;
+  }
+
+  void dropped(int start, int next) {
+    if (start < next) {
+      script.delete(line++);
+    }
+  }
+
+  /**
+   * Records a kept line, whose new text is {@code [start, keep)} followed by
+   * {@code [tail, next)}.
+   */
+  void kept(int start, int keep, int tail, int next) {
+    if (start == next) {
+      return; // The empty segment after a final line feed is not a line
+    }
+    String text = keep < tail ? content.text(start, keep) + content.text(tail, next) : null;
+    if (text != null && text.isEmpty()) {
+      script.delete(line++);
+      return;
+    }
+    if (text != null) {
+      script.replace(line, text);
+    }
+    if (isNewlineOnly(text, start, next)) {
+      keptNewline();
+    } else {
+      newlineRun = -1;
+      keptText = true;
+      if (!content.isLineFeed(next - 1)) {
+        unterminated = text != null ? text : content.text(start, next);
+      }
+    }
+    line++;
+  }
+
+  /**
+   * Tells whether a kept line holds only a line feed, given its new text if it changed.
+   */
+  private boolean isNewlineOnly(String text, int start, int next) {
+    return text != null ? text.equals("\n") : next - start == 1 && content.isLineFeed(start);
+  }
+
+  private void keptNewline() {
+    if (newlineRun < 0) {
+      newlineRun = line;
+      keptBeforeRun = keptText;
+    }
+  }
+
+  /**
+   * Applies the final newline rule to the recorded lines, once all lines are visited.
+   */
+  void finish() {
+    if (newlineRun >= 0) {
+      // All of them go, unless nothing else is left and the first one is the final newline
+      deleteFrom(keptBeforeRun ? newlineRun : newlineRun + 1);
+    } else if (unterminated != null) {
+      script.replace(line - 1, unterminated + "\n");
+    } else if (!keptText) {
+      keepLoneLineFeed();
+    }
+  }
+
+  /**
+   * Turns the content into a lone line feed, which the first line can be, since nothing
+   * else is left.
+   */
+  private void keepLoneLineFeed() {
+    if (line == 0) {
+      script.insert(0, "\n");
+      return;
+    }
+    script.truncate(0);
+    if (!content.isLineFeed(0)) {
+      script.replace(0, "\n");
+    }
+    deleteFrom(1);
+  }
+
+  private void deleteFrom(int first) {
+    script.truncate(first);
+    for (int i = first; i < line; i++) {
+      script.delete(i);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.codetrimmer.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Line edits that turn a file's original content into its trimmed content.
+ *
+ * <p>The trimmers record the script as they go when given one, since they already know which
+ * lines they trimmed and which they dropped, so {@link DiffGenerator} can render a diff from
+ * it without comparing lines. Edits are kept in line order with at most one edit per line;
+ * recording a line again replaces its earlier edit.
+ */
+public final class EditScript {
+
+  private final List<Edit> edits = new ArrayList<>();
+
+  /**
+   * Returns the edits in line order.
+   *
+   * @return the edits
+   */
+  public List<Edit> getEdits() {
+    return Collections.unmodifiableList(edits);
+  }
+
+  public boolean isEmpty() {
+    return edits.isEmpty();
+  }
+
+  void delete(int line) {
+    add(new Edit(line, Operation.DELETE, null));
+  }
+
+  void replace(int line, String text) {
+    add(new Edit(line, Operation.REPLACE, text));
+  }
+
+  /**
+   * Inserts a line before an original line, or after the last one when {@code line} is the
+   * number of original lines.
+   */
+  void insert(int line, String text) {
+    edits.add(new Edit(line, Operation.INSERT, text));
+  }
+
+  /**
+   * Drops the edits of a line and all lines after it, for the end of file rules, which
+   * revisit the last lines once the whole content has been seen.
+   */
+  void truncate(int line) {
+    while (!edits.isEmpty() && edits.get(edits.size() - 1).line() >= line) {
+      edits.remove(edits.size() - 1);
+    }
+  }
+
+  private void add(Edit edit) {
+    if (!edits.isEmpty()) {
+      Edit last = edits.get(edits.size() - 1);
+      if (last.line() == edit.line() && last.operation() != Operation.INSERT) {
+        edits.remove(edits.size() - 1);
+      }
+    }
+    edits.add(edit);
+  }
+
+  /**
+   * What an edit does to its line.
+   */
+  public enum Operation {
+    DELETE,
+    REPLACE,
+    INSERT
+  }
+
+  /**
+   * One line edit.
+   *
+   * @param line the 0-based original line
+   * @param operation what happens to the line
+   * @param text the new line, with its line feed if it has one; null for deletions
+   */
+  public record Edit(int line, Operation operation, String text) {
+  }
+}
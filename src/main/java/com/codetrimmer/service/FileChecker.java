@@ -0,0 +1,241 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.error.ErrorCode;
+import com.codetrimmer.model.BinaryFileDetector;
+import com.codetrimmer.model.FileEntry;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service for checking files against the whitespace rules without modifying them.
+ *
+ * <p>Files are selected exactly as for trimming, but each one is only scanned up to its first
+ * violation and no trimmed output is built. Files above the streaming threshold go through the
+ * streaming trimmer with no output, which does not track line numbers, so their violation is
+ * reported on line 0.
+ */
+@Service
+public class FileChecker {
+
+  private final CodeTrimmerConfig config;
+  private final FileDiscovery discovery;
+
+  public FileChecker(CodeTrimmerConfig config) {
+    this.config = config;
+    this.discovery = new FileDiscovery(config);
+  }
+
+  /**
+   * Checks all files in a directory recursively.
+   *
+   * @param directory the directory to check
+   * @return the violations found and the files that could not be checked
+   */
+  public CheckReport checkDirectory(String directory) {
+    Path dirPath = Paths.get(directory);
+    if (!Files.isDirectory(dirPath)) {
+      throw new CodeTrimmerException(
+          ErrorCode.CT_0010,
+          "Directory not found: " + directory,
+          "Verify the directory path exists"
+      );
+    }
+
+    List<FileEntry> files;
+    try {
+      files = discovery.discover(dirPath);
+    } catch (IOException e) {
+      throw new CodeTrimmerException(ErrorCode.CT_0014, e);
+    }
+
+    return check(files);
+  }
+
+  /**
+   * Checks an explicit list of files, such as the files staged for a commit. The files are
+   * filtered as in a directory run, apart from the file count limit.
+   *
+   * @param root the directory the paths are relative to
+   * @param paths the files to check
+   * @return the violations found and the files that could not be checked
+   */
+  public CheckReport checkFileList(Path root, List<Path> paths) {
+    return check(discovery.selectFiles(root, paths));
+  }
+
+  private CheckReport check(List<FileEntry> files) {
+    CheckReport report = new CheckReport();
+    for (FileEntry file : files) {
+      try {
+        checkEntry(file, report);
+      } catch (IOException e) {
+        report.addFailure(file.path().toString(), describe(e));
+      }
+    }
+    return report;
+  }
+
+  private void checkEntry(FileEntry entry, CheckReport report) throws IOException {
+    try (FileChannel channel = FileChannel.open(entry.path(), StandardOpenOption.READ)) {
+      byte[] prefix = BinaryFileDetector.readPrefix(channel);
+      if (BinaryFileDetector.isBinary(prefix)) {
+        return;
+      }
+      report.incrementFilesChecked();
+      FileTrimmer.CheckResult result = entry.size() > config.getStreamingThreshold()
+          ? checkStream(channel, prefix)
+          : checkContent(BinaryFileDetector.readRemaining(channel, prefix));
+      if (result.needsTrimming()) {
+        report.addFinding(entry.path().toString(), result.getViolation(), result.getFirstLine());
+      }
+    }
+  }
+
+  /**
+   * Scans file content without decoding it. Content that is not valid UTF-8 is handed to the
+   * strict decoder, which reports it the same way trimming does.
+   *
+   * @param bytes the file content
+   * @return check result
+   */
+  private FileTrimmer.CheckResult checkContent(byte[] bytes) throws CharacterCodingException {
+    if (ByteTrimmer.isValidUtf8(bytes)) {
+      return new ByteTrimmer(bytes, config).check();
+    }
+    String content = StandardCharsets.UTF_8.newDecoder()
+        .decode(ByteBuffer.wrap(bytes))
+        .toString();
+    return new FileTrimmer(content, config).check();
+  }
+
+  /**
+   * Checks a large file through a fixed-size buffer, reporting the kind of the first change
+   * the trimmer would make without its line.
+   */
+  private FileTrimmer.CheckResult checkStream(FileChannel channel, byte[] prefix) throws IOException {
+    StreamingTrimmer.Result result = new StreamingTrimmer(config).trim(channel, prefix, null, null);
+    if (!result.isChanged()) {
+      return new FileTrimmer.CheckResult(null, 0);
+    }
+    FileTrimmer.Violation violation = result.getLinesTrimmed() > 0
+        ? FileTrimmer.Violation.TRAILING_WHITESPACE
+        : result.getBlankLinesRemoved() > 0
+            ? FileTrimmer.Violation.EXCESS_BLANK_LINES
+            : FileTrimmer.Violation.FINAL_NEWLINE;
+    return new FileTrimmer.CheckResult(violation, 0);
+  }
+
+  private String describe(IOException e) {
+    if (e instanceof AccessDeniedException) {
+      return "No read permission";
+    }
+    if (e instanceof CharacterCodingException) {
+      return "Not valid UTF-8";
+    }
+    return e.getMessage();
+  }
+
+  /**
+   * A file that needs trimming.
+   *
+   * @param path the file
+   * @param violation the first change found
+   * @param line the 1-based line of that change, or 0 if it was not tracked
+   */
+  public record Finding(String path, FileTrimmer.Violation violation, int line) {
+
+    /**
+     * Formats the finding as {@code path:line: violation}, which editors and CI tools parse.
+     *
+     * @return the report line
+     */
+    public String format() {
+      return path + ":" + line + ": " + violation.getCode();
+    }
+  }
+
+  /**
+   * A file that could not be checked.
+   *
+   * @param path the file
+   * @param reason why it could not be checked
+   */
+  public record Failure(String path, String reason) {
+
+    /**
+     * Formats the failure as {@code path: error: reason}.
+     *
+     * @return the report line
+     */
+    public String format() {
+      return path + ": error: " + reason;
+    }
+  }
+
+  /**
+   * Result of checking a directory.
+   */
+  public static class CheckReport {
+    /** Exit code when every file passes. */
+    public static final int EXIT_CLEAN = 0;
+    /** Exit code when at least one file needs trimming. */
+    public static final int EXIT_VIOLATIONS = 1;
+    /** Exit code when at least one file could not be checked. */
+    public static final int EXIT_ERROR = 2;
+
+    private final List<Finding> findings = new ArrayList<>();
+    private final List<Failure> failures = new ArrayList<>();
+    private int filesChecked;
+
+    public List<Finding> getFindings() {
+      return findings;
+    }
+
+    public void addFinding(String path, FileTrimmer.Violation violation, int line) {
+      findings.add(new Finding(path, violation, line));
+    }
+
+    public List<Failure> getFailures() {
+      return failures;
+    }
+
+    public void addFailure(String path, String reason) {
+      failures.add(new Failure(path, reason));
+    }
+
+    public int getFilesChecked() {
+      return filesChecked;
+    }
+
+    public void incrementFilesChecked() {
+      filesChecked++;
+    }
+
+    /**
+     * Returns the process exit code for this result. A file that could not be checked
+     * outranks violations, since the tree may hold more than were found.
+     *
+     * @return 0 if clean, 1 if files need trimming, 2 if files could not be checked
+     */
+    public int getExitCode() {
+      if (!failures.isEmpty()) {
+        return EXIT_ERROR;
+      }
+      return findings.isEmpty() ? EXIT_CLEAN : EXIT_VIOLATIONS;
+    }
+  }
+}
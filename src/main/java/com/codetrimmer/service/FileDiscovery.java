@@ -0,0 +1,362 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.error.ErrorCode;
+import com.codetrimmer.model.BinaryFileDetector;
+import com.codetrimmer.model.FileEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Walks a directory tree and selects the files to process.
+ * Files are filtered using the attributes the walk already read, so each entry costs
+ * a single stat; only symbolic links are stat'ed again to resolve their target.
+ * Hidden and excluded directories are pruned so their contents are never listed, as is the
+ * tool's own state directory, and {@code .bak} backups are never selected.
+ */
+final class FileDiscovery {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileDiscovery.class);
+  private static final String BACKUP_EXTENSION = ".bak";
+
+  private final CodeTrimmerConfig config;
+
+  FileDiscovery(CodeTrimmerConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Retrieves all files matching filter criteria from the directory tree.
+   *
+   * @param root the root directory
+   * @return entries to process, sorted by path
+   * @throws IOException if the root directory cannot be walked
+   */
+  List<FileEntry> discover(Path root) throws IOException {
+    return discover(root, entry -> true);
+  }
+
+  /**
+   * Retrieves the files matching filter criteria that are also accepted by a caller-supplied
+   * check. Rejected files do not count towards the file limit.
+   *
+   * @param root the root directory
+   * @param accept check applied to each selected file, such as an incremental index lookup
+   * @return entries to process, sorted by path
+   * @throws IOException if the root directory cannot be walked
+   */
+  List<FileEntry> discover(Path root, Predicate<FileEntry> accept) throws IOException {
+    return discover(root, accept, config.isNoLimits() ? Long.MAX_VALUE : config.getMaxFiles());
+  }
+
+  /**
+   * Retrieves the files matching filter criteria that are also accepted by a caller-supplied
+   * check, stopping the walk once a given number of files has been accepted.
+   *
+   * @param root the root directory
+   * @param accept check applied to each selected file
+   * @param limit the most files to retrieve
+   * @return entries to process, sorted by path
+   * @throws IOException if the root directory cannot be walked
+   */
+  List<FileEntry> discover(Path root, Predicate<FileEntry> accept, long limit) throws IOException {
+    List<FileEntry> files = new ArrayList<>();
+    if (limit <= 0) {
+      return files;
+    }
+    List<PathMatcher> excludedDirs = compileDirectoryPatterns();
+    FileFilter filter = FileFilter.compile(config.getInclude(), config.getExclude());
+
+    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (!dir.equals(root) && isPruned(root.relativize(dir), excludedDirs)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        FileEntry entry = select(file, attrs, root.relativize(file), filter);
+        if (entry != null && accept.test(entry)) {
+          files.add(entry);
+        }
+        return files.size() >= limit ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        LOGGER.warn("Error checking file: " + file, exc);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    files.sort(Comparator.comparing(FileEntry::path));
+    return files;
+  }
+
+  /**
+   * Selects the files of an explicit list that match the filter criteria, as if the list had
+   * been found by walking the root. Files in pruned directories, files outside the root and
+   * files that no longer exist are left out; the file count limit does not apply.
+   *
+   * @param root the directory the list is relative to
+   * @param paths the listed files
+   * @return entries to process, sorted by path
+   */
+  List<FileEntry> selectFiles(Path root, List<Path> paths) {
+    return selector(root).select(paths);
+  }
+
+  /**
+   * Compiles the filters once for repeated selections below the same root, such as the
+   * batches of changed files in watch mode.
+   *
+   * @param root the directory selected paths are relative to
+   * @return the selector
+   */
+  Selector selector(Path root) {
+    return new Selector(root, compileDirectoryPatterns(),
+        FileFilter.compile(config.getInclude(), config.getExclude()));
+  }
+
+  /**
+   * Filters compiled for one root, selecting files as {@link #selectFiles} does.
+   */
+  final class Selector {
+
+    private final Path root;
+    private final Path base;
+    private final List<PathMatcher> excludedDirs;
+    private final FileFilter filter;
+
+    private Selector(Path root, List<PathMatcher> excludedDirs, FileFilter filter) {
+      this.root = root;
+      this.base = root.toAbsolutePath().normalize();
+      this.excludedDirs = excludedDirs;
+      this.filter = filter;
+    }
+
+    /**
+     * Selects the listed files that match the filter criteria.
+     *
+     * @param paths the files, relative to the root or absolute
+     * @return entries to process, sorted by path
+     */
+    List<FileEntry> select(List<Path> paths) {
+      List<FileEntry> files = new ArrayList<>();
+      for (Path path : paths) {
+        Path file = root.resolve(path);
+        Path relative = relativize(file);
+        if (relative.startsWith("..") || isInPrunedDirectory(relative, excludedDirs)) {
+          continue;
+        }
+        try {
+          BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class,
+              LinkOption.NOFOLLOW_LINKS);
+          FileEntry entry = FileDiscovery.this.select(file, attrs, relative, filter);
+          if (entry != null) {
+            files.add(entry);
+          }
+        } catch (NoSuchFileException e) {
+          // Deleted since it was listed
+        } catch (IOException e) {
+          LOGGER.warn("Error checking file: " + file, e);
+        }
+      }
+      files.sort(Comparator.comparing(FileEntry::path));
+      return files;
+    }
+
+    /**
+     * Determines if a directory below the root is skipped by a walk, together with
+     * everything below it.
+     *
+     * @param dir the directory, relative to the root or absolute
+     * @return true if the directory or one of its parents below the root is pruned
+     */
+    boolean isPruned(Path dir) {
+      Path relative = relativize(root.resolve(dir));
+      if (relative.toString().isEmpty()) {
+        return false;
+      }
+      return relative.startsWith("..") || isInPrunedDirectory(relative, excludedDirs)
+          || FileDiscovery.this.isPruned(relative, excludedDirs);
+    }
+
+    private Path relativize(Path file) {
+      return base.relativize(file.toAbsolutePath().normalize());
+    }
+  }
+
+  /**
+   * Returns a check of whether a path would be selected by a walk, judged by the path alone:
+   * it is not below a pruned directory, not hidden or a backup, has no binary extension and passes the
+   * include and exclude filters. Used for content that does not come from the file system,
+   * such as staged blobs, which have no file attributes to check.
+   *
+   * @return check applied to paths relative to the root
+   */
+  Predicate<Path> pathFilter() {
+    List<PathMatcher> excludedDirs = compileDirectoryPatterns();
+    FileFilter filter = FileFilter.compile(config.getInclude(), config.getExclude());
+    return relative -> !isInPrunedDirectory(relative, excludedDirs)
+        && !isSkippedName(relative.getFileName().toString())
+        && !BinaryFileDetector.isBinaryByExtension(relative)
+        && filter.accepts(relative);
+  }
+
+  private boolean isInPrunedDirectory(Path relative, List<PathMatcher> excludedDirs) {
+    for (int i = 1; i < relative.getNameCount(); i++) {
+      if (isPruned(relative.subpath(0, i), excludedDirs)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Determines if a directory should be skipped together with everything below it.
+   *
+   * @param relative the directory path relative to the walk root
+   * @param excludedDirs compiled directory exclude patterns
+   * @return true if the directory is the tool's state directory, hidden, or matches an exclude pattern
+   */
+  private boolean isPruned(Path relative, List<PathMatcher> excludedDirs) {
+    Path name = relative.getFileName();
+    if (relative.getNameCount() == 1 && name.toString().equals(FileIndex.STATE_DIRECTORY)) {
+      return true;
+    }
+    if (!config.isIncludeHidden() && name.toString().startsWith(".")) {
+      return true;
+    }
+    for (PathMatcher matcher : excludedDirs) {
+      if (matcher.matches(name) || matcher.matches(relative)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Compiles the directory exclude list into glob matchers.
+   * Patterns are matched against the directory name and its path relative to the root.
+   *
+   * @return the matchers, empty when no directories are excluded
+   * @throws CodeTrimmerException if a pattern is not a valid glob
+   */
+  private List<PathMatcher> compileDirectoryPatterns() {
+    List<PathMatcher> matchers = new ArrayList<>();
+    for (String pattern : parseFilterList(config.getExcludeDirs())) {
+      if (pattern.isEmpty()) {
+        continue;
+      }
+      try {
+        matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+      } catch (PatternSyntaxException e) {
+        throw new CodeTrimmerException(
+            ErrorCode.CT_0003,
+            "Invalid directory pattern '" + pattern + "': " + e.getDescription(),
+            "Fix the wildcard syntax in excludeDirs"
+        );
+      }
+    }
+    return matchers;
+  }
+
+  /**
+   * Determines if a file should be processed based on filter criteria.
+   *
+   * @param path the file path
+   * @param attrs the attributes read by the walk, not following links
+   * @param relative the file path relative to the walk root
+   * @param filter the compiled include/exclude filter
+   * @return the entry to process, or null if the file is filtered out
+   */
+  private FileEntry select(Path path, BasicFileAttributes attrs, Path relative, FileFilter filter) {
+    if (isSkippedName(path.getFileName().toString())) {
+      return null;
+    }
+
+    BasicFileAttributes target = attrs.isSymbolicLink() ? resolveLink(path) : attrs;
+    if (target == null || !target.isRegularFile()) {
+      return null;
+    }
+
+    // Check file size
+    if (!config.isNoLimits() && target.size() > config.getMaxFileSize()) {
+      return null;
+    }
+
+    // Check binary files by extension; content is sniffed when the file is read
+    if (BinaryFileDetector.isBinaryByExtension(path)) {
+      return null;
+    }
+
+    // Check include/exclude filters
+    return filter.accepts(relative) ? FileEntry.of(path, target) : null;
+  }
+
+  /**
+   * Checks for hidden files, unless they are included, and for backups left by earlier runs,
+   * which would otherwise be trimmed like the files they back up.
+   *
+   * @param filename the file name
+   * @return true if the file is skipped by name
+   */
+  private boolean isSkippedName(String filename) {
+    return (!config.isIncludeHidden() && filename.startsWith(".")) || filename.endsWith(BACKUP_EXTENSION);
+  }
+
+  /**
+   * Reads the attributes of a symbolic link's target.
+   *
+   * @param link the link
+   * @return the target's attributes, or null if links are not followed or the target is unreadable
+   */
+  private BasicFileAttributes resolveLink(Path link) {
+    if (!config.isFollowSymlinks()) {
+      return null;
+    }
+    try {
+      return Files.readAttributes(link, BasicFileAttributes.class);
+    } catch (IOException e) {
+      LOGGER.warn("Error checking file: " + link, e);
+      return null;
+    }
+  }
+
+  /**
+   * Parses a comma-separated filter list.
+   *
+   * @param filterString the filter string
+   * @return array of filter items
+   */
+  private String[] parseFilterList(String filterString) {
+    if (filterString == null || filterString.trim().isEmpty()) {
+      return new String[]{};
+    }
+    return Arrays.stream(filterString.split(","))
+        .map(String::trim)
+        .toArray(String[]::new);
+  }
+}
@@ -0,0 +1,159 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.error.ErrorCode;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled include/exclude filter, built once per run instead of re-parsing the
+ * comma-separated lists for every file.
+ *
+ * <p>Plain patterns such as {@code js}, {@code .min.js}, {@code *.md} or {@code Makefile}
+ * are looked up in hash sets. Only patterns with wildcards fall back to glob matching:
+ * against the file name, or against the path relative to the root when the pattern
+ * contains a {@code /}. Matching is case-insensitive.
+ */
+final class FileFilter {
+
+  private static final String GLOB_CHARS = "*?[{";
+
+  private final PatternSet include;
+  private final PatternSet exclude;
+
+  private FileFilter(PatternSet include, PatternSet exclude) {
+    this.include = include;
+    this.exclude = exclude;
+  }
+
+  /**
+   * Compiles include and exclude lists.
+   *
+   * @param include comma-separated include patterns
+   * @param exclude comma-separated exclude patterns
+   * @return the compiled filter
+   * @throws CodeTrimmerException if a wildcard pattern is not a valid glob
+   */
+  static FileFilter compile(String include, String exclude) {
+    return new FileFilter(PatternSet.parse(include), PatternSet.parse(exclude));
+  }
+
+  /**
+   * Checks if a file passes the include/exclude filters.
+   *
+   * @param relativePath the file path relative to the walk root
+   * @return true if the file should be processed
+   */
+  boolean accepts(Path relativePath) {
+    String name = relativePath.getFileName().toString().toLowerCase(Locale.ROOT);
+    return !exclude.matches(name, relativePath) && include.matches(name, relativePath);
+  }
+
+  /**
+   * One compiled list of patterns.
+   */
+  private static final class PatternSet {
+    private boolean matchAll;
+    private final Set<String> suffixes = new HashSet<>();
+    private final Set<String> names = new HashSet<>();
+    private final List<PathMatcher> nameGlobs = new ArrayList<>();
+    private final List<PathMatcher> pathGlobs = new ArrayList<>();
+
+    static PatternSet parse(String patterns) {
+      PatternSet set = new PatternSet();
+      if (patterns != null) {
+        for (String pattern : patterns.split(",")) {
+          String trimmed = pattern.trim().toLowerCase(Locale.ROOT);
+          if (!trimmed.isEmpty()) {
+            set.add(trimmed);
+          }
+        }
+      }
+      return set;
+    }
+
+    private void add(String pattern) {
+      if ("*".equals(pattern)) {
+        matchAll = true;
+      } else if (pattern.startsWith("*.") && isPlain(pattern.substring(1))) {
+        suffixes.add(pattern.substring(1));
+      } else if (!isPlain(pattern)) {
+        addGlob(pattern);
+      } else if (pattern.startsWith(".")) {
+        suffixes.add(pattern);
+      } else {
+        // Bare patterns match an extension, or the whole name of a file without one
+        suffixes.add("." + pattern);
+        names.add(pattern);
+      }
+    }
+
+    private void addGlob(String pattern) {
+      try {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        (pattern.contains("/") ? pathGlobs : nameGlobs).add(matcher);
+      } catch (PatternSyntaxException e) {
+        throw new CodeTrimmerException(
+            ErrorCode.CT_0003,
+            "Invalid file pattern '" + pattern + "': " + e.getDescription(),
+            "Fix the wildcard syntax in include/exclude"
+        );
+      }
+    }
+
+    private static boolean isPlain(String pattern) {
+      for (int i = 0; i < pattern.length(); i++) {
+        if (GLOB_CHARS.indexOf(pattern.charAt(i)) >= 0 || pattern.charAt(i) == '/') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean matches(String name, Path relativePath) {
+      if (matchAll || matchesPlain(name)) {
+        return true;
+      }
+      if (!nameGlobs.isEmpty() && anyMatch(nameGlobs, Path.of(name))) {
+        return true;
+      }
+      return !pathGlobs.isEmpty()
+          && anyMatch(pathGlobs, Path.of(relativePath.toString().toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Looks up every suffix starting at a dot, so {@code a.min.js} checks
+     * {@code .min.js} and {@code .js}.
+     */
+    private boolean matchesPlain(String name) {
+      int dot = name.indexOf('.');
+      if (dot < 0) {
+        return names.contains(name);
+      }
+      while (dot >= 0) {
+        if (suffixes.contains(name.substring(dot))) {
+          return true;
+        }
+        dot = name.indexOf('.', dot + 1);
+      }
+      return false;
+    }
+
+    private static boolean anyMatch(List<PathMatcher> matchers, Path path) {
+      for (PathMatcher matcher : matchers) {
+        if (matcher.matches(path)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.config.TrimmerConfig;
+import com.codetrimmer.model.FileEntry;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent record of the files that were clean after the last run, used by incremental mode.
+ *
+ * <p>Each entry holds a file's size, modification time and the SHA-256 of its clean content.
+ * A file whose size and modification time still match is skipped without being read; a file
+ * whose stat changed but whose content hashes to the recorded value is known to be clean
+ * without being trimmed. The whole index is discarded when the settings that decide what a
+ * clean file looks like change, which the index tracks with a configuration fingerprint.
+ *
+ * <p>The index is stored in {@code .codetrimmer/index.json} under the processed directory.
+ */
+final class FileIndex {
+
+  /** Directory holding the tool's own state; discovery never descends into it. */
+  static final String STATE_DIRECTORY = ".codetrimmer";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileIndex.class);
+  private static final String INDEX_FILE = "index.json";
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * Files modified this close to the moment the index was saved are not trusted by stat alone,
+   * since a later edit within the same timestamp tick would leave size and mtime unchanged.
+   */
+  private static final long RACY_WINDOW_MS = 2000;
+
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  private final Path root;
+  private final Path indexPath;
+  private final String fingerprint;
+  private final Map<String, Entry> previous;
+  private final long trustedBeforeNanos;
+  private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+  private FileIndex(Path root, String fingerprint, Map<String, Entry> previous, long savedAt) {
+    this.root = root;
+    this.indexPath = root.resolve(STATE_DIRECTORY).resolve(INDEX_FILE);
+    this.fingerprint = fingerprint;
+    this.previous = previous;
+    this.trustedBeforeNanos = TimeUnit.MILLISECONDS.toNanos(savedAt - RACY_WINDOW_MS);
+  }
+
+  /**
+   * Loads the index stored under a directory. A missing or unreadable index, or one written
+   * with different trimming settings, yields an empty index.
+   *
+   * @param root the processed directory
+   * @param config the current configuration
+   * @return the index for this run
+   */
+  static FileIndex load(Path root, CodeTrimmerConfig config) {
+    String fingerprint = fingerprint(config);
+    Path indexPath = root.resolve(STATE_DIRECTORY).resolve(INDEX_FILE);
+    if (Files.isRegularFile(indexPath)) {
+      try {
+        IndexFile stored = MAPPER.readValue(indexPath.toFile(), IndexFile.class);
+        if (stored.version() == FORMAT_VERSION && fingerprint.equals(stored.configFingerprint())
+            && stored.files() != null) {
+          return new FileIndex(root, fingerprint, stored.files(), stored.savedAt());
+        }
+        LOGGER.info("Configuration changed since the last run, rebuilding file index");
+      } catch (IOException e) {
+        LOGGER.warn("Ignoring unreadable file index: " + indexPath, e);
+      }
+    }
+    return new FileIndex(root, fingerprint, Map.of(), 0);
+  }
+
+  /**
+   * Checks whether a file is unchanged since it was last recorded clean, and if so carries
+   * its entry over to this run.
+   *
+   * @param file the discovered file
+   * @return true if size and modification time match a trusted entry
+   */
+  boolean isUnchanged(FileEntry file) {
+    String key = key(file.path());
+    Entry entry = previous.get(key);
+    if (entry == null || entry.size() != file.size()) {
+      return false;
+    }
+    long modified = modifiedNanos(file);
+    if (entry.modified() != modified || modified >= trustedBeforeNanos) {
+      return false;
+    }
+    current.put(key, entry);
+    return true;
+  }
+
+  /**
+   * Checks whether a file's content is what was recorded clean, whatever its stat says.
+   *
+   * @param file the discovered file
+   * @param hash the hash of the file's current content
+   * @return true if the content hash matches the recorded one
+   */
+  boolean isKnownClean(FileEntry file, String hash) {
+    Entry entry = previous.get(key(file.path()));
+    return entry != null && entry.hash().equals(hash);
+  }
+
+  /**
+   * Records a file as clean for the next run.
+   *
+   * @param file the file's attributes after this run
+   * @param hash the hash of its clean content
+   */
+  void record(FileEntry file, String hash) {
+    current.put(key(file.path()), new Entry(file.size(), modifiedNanos(file), hash));
+  }
+
+  /**
+   * Carries the stored entries of files this run found but did not process, such as files
+   * beyond the file limit, over to this run, so that saving does not drop them. Files that
+   * were processed keep the entries this run recorded.
+   *
+   * @param files the files found by this run
+   */
+  void keepUnprocessed(List<FileEntry> files) {
+    for (FileEntry file : files) {
+      String key = key(file.path());
+      Entry entry = previous.get(key);
+      if (entry != null) {
+        current.putIfAbsent(key, entry);
+      }
+    }
+  }
+
+  /**
+   * Writes the entries recorded in this run, replacing the stored index.
+   */
+  void save() {
+    IndexFile index = new IndexFile(FORMAT_VERSION, fingerprint, System.currentTimeMillis(),
+        new TreeMap<>(current));
+    try {
+      Files.createDirectories(indexPath.getParent());
+      // A unique name keeps concurrent runs on the same tree from writing into each other's file
+      Path temp = Files.createTempFile(indexPath.getParent(), INDEX_FILE, ".tmp");
+      try {
+        MAPPER.writeValue(temp.toFile(), index);
+        try {
+          Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Could not save file index: " + indexPath, e);
+    }
+  }
+
+  /**
+   * Hashes file content for the index.
+   *
+   * @param content the raw file bytes
+   * @return hex-encoded SHA-256 digest
+   */
+  static String hash(byte[] content) {
+    return HexFormat.of().formatHex(sha256().digest(content));
+  }
+
+  /**
+   * Creates a digest for hashing content that is read in chunks.
+   *
+   * @return a new digest, finished with {@link #hash(MessageDigest)}
+   */
+  static MessageDigest newDigest() {
+    return sha256();
+  }
+
+  /**
+   * Completes a digest created by {@link #newDigest()}.
+   *
+   * @param digest the digest, updated with the full content
+   * @return hex-encoded SHA-256 digest
+   */
+  static String hash(MessageDigest digest) {
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Hashes the content of a file, reading it in chunks.
+   *
+   * @param file the file
+   * @return hex-encoded SHA-256 digest
+   */
+  static String hash(Path file) throws IOException {
+    MessageDigest digest = sha256();
+    try (InputStream in = Files.newInputStream(file)) {
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return hash(digest);
+  }
+
+  /**
+   * Computes the fingerprint of the settings that decide whether a file is clean: the
+   * whitespace rules and any custom rules.
+   *
+   * @param config the configuration
+   * @return hex-encoded digest of those settings
+   */
+  static String fingerprint(CodeTrimmerConfig config) {
+    StringBuilder settings = new StringBuilder()
+        .append("maxConsecutiveBlankLines=").append(config.getMaxConsecutiveBlankLines()).append('\n')
+        .append("ensureFinalNewline=").append(config.isEnsureFinalNewline()).append('\n')
+        .append("trimTrailingWhitespace=").append(config.isTrimTrailingWhitespace()).append('\n');
+    List<TrimmerConfig.TrimRule> rules = config.getRules();
+    if (rules != null) {
+      for (TrimmerConfig.TrimRule rule : rules) {
+        settings.append("rule=").append(rule.getName())
+            .append('\0').append(rule.getPattern())
+            .append('\0').append(rule.getReplacement())
+            .append('\0').append(rule.getAction())
+            .append('\0').append(rule.isEnabled()).append('\n');
+      }
+    }
+    return hash(settings.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String key(Path path) {
+    return root.relativize(path).toString().replace('\\', '/');
+  }
+
+  private static long modifiedNanos(FileEntry file) {
+    return file.lastModified().to(TimeUnit.NANOSECONDS);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * On-disk form of the index.
+   */
+  record IndexFile(int version, String configFingerprint, long savedAt, Map<String, Entry> files) {
+  }
+
+  /**
+   * State of one file when it was last recorded clean.
+   *
+   * @param size file size in bytes
+   * @param modified modification time in nanoseconds since the epoch
+   * @param hash SHA-256 of the clean content
+   */
+  record Entry(long size, long modified, String hash) {
+  }
+}
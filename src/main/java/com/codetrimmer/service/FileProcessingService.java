@@ -2,6 +2,7 @@ package com.codetrimmer.service;
 
 import com.codetrimmer.config.CodeTrimmerConfig;
 import com.codetrimmer.model.BinaryFileDetector;
+import com.codetrimmer.model.FileEntry;
 import com.codetrimmer.model.FileProcessingResult;
 import com.codetrimmer.model.ProcessingStatistics;
 import org.slf4j.Logger;
@@ -9,16 +10,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 /**
  * Service for processing files and applying whitespace cleanup rules.
@@ -27,13 +32,23 @@ import java.util.stream.Stream;
 public class FileProcessingService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FileProcessingService.class);
+  private static final String BINARY_FILE = "Binary file";
 
   private final CodeTrimmerConfig config;
   private final ProcessingStatistics statistics;
+  private final FileDiscovery discovery;
+  private final FileReplacer replacer;
+  private final DiffGenerator diffGenerator = new DiffGenerator();
+  private Path root; // Processed directory of the run in progress
+  private FileIndex index; // Incremental index of the run in progress, or null
+  private RunJournal journal; // Journal of the run in progress, or null
+  private BackupStore backupStore; // Backup store of the run in progress, or null
 
   public FileProcessingService(CodeTrimmerConfig config) {
     this.config = config;
     this.statistics = new ProcessingStatistics();
+    this.discovery = new FileDiscovery(config);
+    this.replacer = new FileReplacer(config);
   }
 
   /**
@@ -51,11 +66,21 @@ public class FileProcessingService {
         throw new IllegalArgumentException("Path is not a directory: " + directory);
       }
 
-      List<Path> files = getFilesForProcessing(dirPath);
-      results.addAll(processFiles(files));
+      index = config.isIncremental() ? FileIndex.load(dirPath, config) : null;
+      // Binary files are only recognised once read, so the file limit is applied while processing
+      List<FileEntry> files = discovery.discover(dirPath, this::needsProcessing, Long.MAX_VALUE);
+      results.addAll(processFiles(dirPath, files, config.isNoLimits() ? Long.MAX_VALUE : config.getMaxFiles()));
+
+      // A dry run leaves the tree as it was, so the index is left as it was too
+      if (index != null && !config.isDryRun()) {
+        index.keepUnprocessed(files);
+        index.save();
+      }
 
     } catch (IOException e) {
       LOGGER.error("Error processing directory: " + directory, e);
+    } finally {
+      index = null;
     }
 
     statistics.endProcessing();
@@ -63,168 +88,142 @@ public class FileProcessingService {
   }
 
   /**
-   * Retrieves all files matching filter criteria from the directory tree.
+   * Processes an explicit list of files, such as the files staged for a commit, in a single
+   * run. The files are filtered as in a directory run, apart from the file count limit.
+   * The incremental index is not used, since it describes whole directories.
    *
-   * @param dirPath the root directory
-   * @return list of paths to process
+   * @param root the directory the paths are relative to
+   * @param paths the files to process
+   * @return list of processing results
    */
-  private List<Path> getFilesForProcessing(Path dirPath) throws IOException {
-    List<Path> files = new ArrayList<>();
-
-    try (Stream<Path> walkStream = Files.walk(dirPath)) {
-      walkStream
-          .filter(Files::isRegularFile)
-          .filter(this::shouldProcessFile)
-          .limit(config.isNoLimits() ? Long.MAX_VALUE : config.getMaxFiles())
-          .collect(Collectors.toCollection(() -> files));
-    }
-
-    return files;
+  public List<FileProcessingResult> processFileList(Path root, List<Path> paths) {
+    List<FileProcessingResult> results = processFiles(root, discovery.selectFiles(root, paths), Long.MAX_VALUE);
+    statistics.endProcessing();
+    return results;
   }
 
   /**
-   * Determines if a file should be processed based on filter criteria.
+   * Creates a watcher that trims files below a directory as they change, with the filters
+   * compiled for this run. Statistics accumulate over the batches it processes.
    *
-   * @param path the file path
-   * @return true if the file should be processed
+   * @param root the directory to watch
+   * @return the watcher, which processes nothing until it is run
+   * @throws IOException if the directory cannot be watched
    */
-  private boolean shouldProcessFile(Path path) {
-    try {
-      String filename = path.getFileName().toString();
-
-      // Check hidden files
-      if (!config.isIncludeHidden() && filename.startsWith(".")) {
-        return false;
-      }
-
-      // Check symbolic links
-      if (!config.isFollowSymlinks() && Files.isSymbolicLink(path)) {
-        return false;
-      }
-
-      // Check file size
-      if (!config.isNoLimits()) {
-        long size = Files.size(path);
-        if (size > config.getMaxFileSize()) {
-          return false;
-        }
-      }
-
-      // Check binary files
-      if (BinaryFileDetector.isBinaryByExtension(path) || BinaryFileDetector.isBinary(path)) {
-        return false;
-      }
-
-      // Check extension filters
-      return matchesExtensionFilter(filename);
+  public FileWatcher watch(Path root) throws IOException {
+    return new FileWatcher(root, discovery.selector(root), files -> processFiles(root, files, Long.MAX_VALUE),
+        config.getWatchDebounceMs());
+  }
 
-    } catch (IOException e) {
-      LOGGER.warn("Error checking file: " + path, e);
+  /**
+   * Looks a discovered file up in the incremental index, if the run has one.
+   *
+   * @param entry the discovered file
+   * @return false if the file is unchanged since the last clean run and can be skipped
+   */
+  private boolean needsProcessing(FileEntry entry) {
+    if (index == null) {
+      return true;
+    }
+    if (index.isUnchanged(entry)) {
+      statistics.incrementIndexHits();
       return false;
     }
+    statistics.incrementIndexMisses();
+    return true;
   }
 
   /**
-   * Checks if a file extension matches the include/exclude filters.
+   * Processes a list of files as one run. When backups are made, the replaced files are
+   * recorded in a run journal under the root, and the backups go to the backup store there if
+   * {@code backupStore} is set. If {@code syncWrites} is set the replaced files are flushed to
+   * disk in one batch. Dry runs with {@code diff} set carry the diff of each file in its result.
    *
-   * @param filename the filename to check
-   * @return true if the file should be processed
+   * @param root the processed directory
+   * @param files the files to process
+   * @param limit the most files to process, not counting binary files
+   * @return list of processing results, in the same order as {@code files}
    */
-  private boolean matchesExtensionFilter(String filename) {
-    String[] includeList = parseFilterList(config.getInclude());
-    String[] excludeList = parseFilterList(config.getExclude());
-
-    // Check if any exclude pattern matches
-    for (String exclude : excludeList) {
-      if (matches(filename, exclude)) {
-        return false;
+  private List<FileProcessingResult> processFiles(Path root, List<FileEntry> files, long limit) {
+    boolean backingUp = config.isCreateBackups() && !config.isDryRun();
+    this.root = root;
+    journal = backingUp ? RunJournal.create(root) : null;
+    backupStore = backingUp && config.isBackupStore() ? BackupStore.open(root) : null;
+    try {
+      List<FileProcessingResult> results = processWithinLimit(files, limit);
+      if (config.isSyncWrites()) {
+        replacer.syncWritten();
       }
+      return results;
+    } finally {
+      closeJournal();
+      backupStore = null;
     }
+  }
 
-    // Check if include is "*" (all files)
-    if (includeList.length == 1 && "*".equals(includeList[0])) {
-      return true;
+  private void closeJournal() {
+    if (journal == null) {
+      return;
     }
-
-    // Check if any include pattern matches
-    for (String include : includeList) {
-      if (matches(filename, include)) {
-        return true;
-      }
+    try {
+      journal.close();
+    } catch (IOException e) {
+      LOGGER.warn("Could not close run journal " + journal.getRunId(), e);
     }
-
-    return false;
+    journal = null;
   }
 
   /**
-   * Checks if a filename matches a filter pattern.
+   * Processes files in path order until the limit is reached. Each batch holds as many files as
+   * the limit has left, so binary files, which are only recognised when read, give their slot
+   * to a file in the next batch and no file is read twice.
    *
-   * @param filename the filename to check
-   * @param pattern the pattern (e.g., "js", "*.js", "test-*.js")
-   * @return true if the filename matches
+   * @param files the files to process
+   * @param limit the most files to process, not counting binary files
+   * @return list of processing results, in the same order as {@code files}
    */
-  private boolean matches(String filename, String pattern) {
-    if ("*".equals(pattern)) {
-      return true;
-    }
-
-    filename = filename.toLowerCase();
-    pattern = pattern.toLowerCase();
-
-    if (!pattern.startsWith(".") && filename.contains(".")) {
-      // Pattern is an extension without dot, match extension
-      return filename.endsWith("." + pattern);
-    } else if (pattern.startsWith(".")) {
-      // Pattern includes dot
-      return filename.endsWith(pattern);
-    } else {
-      // Direct match
-      return filename.equals(pattern);
+  private List<FileProcessingResult> processWithinLimit(List<FileEntry> files, long limit) {
+    List<FileProcessingResult> results = new ArrayList<>();
+    long remaining = limit;
+    int next = 0;
+    boolean stopped = false;
+    while (remaining > 0 && next < files.size() && !stopped) {
+      List<FileEntry> batch = files.subList(next, next + (int) Math.min(remaining, files.size() - next));
+      next += batch.size();
+      List<FileProcessingResult> batchResults = processAll(batch);
+      for (FileProcessingResult result : batchResults) {
+        remaining -= BINARY_FILE.equals(result.getSkipReason()) ? 0 : 1;
+        stopped |= config.isFailFast() && result.hasError();
+      }
+      stopped |= batchResults.size() < batch.size(); // Fail-fast left files unprocessed
+      results.addAll(batchResults);
     }
+    return results;
   }
 
   /**
-   * Processes a list of files.
+   * Processes a list of files sequentially, on a worker pool in parallel mode, or on
+   * virtual threads bounded by {@code maxConcurrentIo} in virtual-thread mode.
    *
    * @param files the files to process
-   * @return list of processing results
+   * @return list of processing results, in the same order as {@code files}
    */
-  private List<FileProcessingResult> processFiles(List<Path> files) {
+  private List<FileProcessingResult> processAll(List<FileEntry> files) {
+    if (config.isVirtualThreads() && files.size() > 1) {
+      return processConcurrently(files, ParallelFileProcessor.newVirtualThreadExecutor(),
+          new Semaphore(Math.max(1, config.getMaxConcurrentIo())));
+    }
+    if (config.isParallel() && files.size() > 1) {
+      return processConcurrently(files, ParallelFileProcessor.newWorkerPool(config.getThreads()), null);
+    }
+
     List<FileProcessingResult> results = new ArrayList<>();
 
-    for (Path file : files) {
+    for (FileEntry file : files) {
       try {
-        statistics.incrementFilesScanned();
-
-        // Check permissions
-        if (!Files.isReadable(file)) {
-          results.add(new FileProcessingResult.Builder(file.toString())
-              .skipped(true)
-              .skipReason("No read permission")
-              .build());
-          statistics.incrementFilesSkipped();
-          continue;
-        }
-
-        if (!Files.isWritable(file)) {
-          results.add(new FileProcessingResult.Builder(file.toString())
-              .skipped(true)
-              .skipReason("No write permission")
-              .build());
-          statistics.incrementFilesSkipped();
-          continue;
-        }
-
-        results.add(processFile(file));
-
+        results.add(processEntry(file));
       } catch (Exception e) {
-        LOGGER.error("Error processing file: " + file, e);
-        results.add(new FileProcessingResult.Builder(file.toString())
-            .skipped(true)
-            .skipReason("Error: " + e.getMessage())
-            .error(e.getMessage())
-            .build());
-        statistics.incrementFilesSkipped();
+        results.add(failedResult(file, e));
 
         if (config.isFailFast()) {
           break;
@@ -236,79 +235,256 @@ public class FileProcessingService {
   }
 
   /**
-   * Processes a single file.
+   * Processes files on an executor and records the concurrency that was reached.
+   *
+   * @param files the files to process
+   * @param executor the executor, shut down once processing completes
+   * @param permits optional bound on files in flight, or null for none
+   * @return list of processing results, in the same order as {@code files}
+   */
+  private List<FileProcessingResult> processConcurrently(List<FileEntry> files, ExecutorService executor,
+                                                         Semaphore permits) {
+    ParallelFileProcessor processor = new ParallelFileProcessor(config.isFailFast(), permits);
+    List<FileProcessingResult> results = processor.run(executor, files, this::processEntry, this::failedResult);
+    statistics.recordConcurrency(processor.getPeakConcurrency());
+    return results;
+  }
+
+  /**
+   * Reads and processes a single discovered file.
+   *
+   * @param entry the file to process
+   * @return processing result
+   */
+  private FileProcessingResult processEntry(FileEntry entry) throws IOException {
+    statistics.incrementFilesScanned();
+    Path path = entry.path();
+
+    // Read permission is checked by opening the file rather than with a separate access call
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+    } catch (AccessDeniedException e) {
+      return permissionDenied(path, "No read permission");
+    }
+
+    byte[] bytes;
+    try (channel) {
+      byte[] prefix = BinaryFileDetector.readPrefix(channel);
+      if (BinaryFileDetector.isBinary(prefix)) {
+        statistics.incrementFilesSkippedBinary();
+        return new FileProcessingResult.Builder(path.toString())
+            .skipped(true)
+            .skipReason(BINARY_FILE)
+            .build();
+      }
+      if (entry.size() > config.getStreamingThreshold()) {
+        return processStream(entry, channel, prefix);
+      }
+      bytes = BinaryFileDetector.readRemaining(channel, prefix);
+    }
+    return processFile(entry, bytes);
+  }
+
+  /**
+   * Builds the result for a file that failed to process.
+   *
+   * @param entry the file that failed
+   * @param e the failure
+   * @return skipped result carrying the error message
+   */
+  private FileProcessingResult failedResult(FileEntry entry, Exception e) {
+    LOGGER.error("Error processing file: " + entry.path(), e);
+    statistics.incrementFilesSkipped();
+    return new FileProcessingResult.Builder(entry.path().toString())
+        .skipped(true)
+        .skipReason("Error: " + e.getMessage())
+        .error(e.getMessage())
+        .build();
+  }
+
+  private FileProcessingResult permissionDenied(Path path, String reason) {
+    statistics.incrementFilesSkippedPermission();
+    return new FileProcessingResult.Builder(path.toString())
+        .skipped(true)
+        .skipReason(reason)
+        .build();
+  }
+
+  /**
+   * Trims the content of a single file and writes it back if it changed.
    *
-   * @param path the file to process
+   * @param entry the file to process
+   * @param bytes the file content
    * @return processing result
    */
-  private FileProcessingResult processFile(Path path) throws IOException {
-    String originalContent = Files.readString(path, StandardCharsets.UTF_8);
+  private FileProcessingResult processFile(FileEntry entry, byte[] bytes) throws IOException {
+    Path path = entry.path();
 
-    // Apply trimming rules
-    FileTrimmer trimmer = new FileTrimmer(originalContent, config);
-    FileTrimmer.TrimResult trimResult = trimmer.trim();
+    // In incremental mode a file whose content was recorded clean needs no trimming
+    String hash = index != null ? FileIndex.hash(bytes) : null;
+    if (hash != null && index.isKnownClean(entry, hash)) {
+      return unchanged(entry, hash);
+    }
 
-    // Check if content changed
-    if (trimResult.getContent().equals(originalContent)) {
-      return new FileProcessingResult.Builder(path.toString())
-          .modified(false)
-          .build();
+    // Apply trimming rules, recording the edits when a dry run shows them as a diff
+    EditScript script = config.isDryRun() && config.isDiff() ? new EditScript() : null;
+    ByteTrimmer.Result trimResult = trim(bytes, script);
+
+    if (!trimResult.isChanged()) {
+      return unchanged(entry, hash);
+    }
+
+    // Write permission only matters for files that need changes
+    if (!Files.isWritable(path)) {
+      return permissionDenied(path, "No write permission");
     }
 
     // If dry-run mode, just report what would change
     if (config.isDryRun()) {
-      return new FileProcessingResult.Builder(path.toString())
-          .modified(true)
-          .linesTrimmed(trimResult.getLinesTrimmed())
-          .blankLinesRemoved(trimResult.getBlankLinesRemoved())
+      return modified(path, trimResult.getLinesTrimmed(), trimResult.getBlankLinesRemoved())
+          .diff(script != null ? renderDiff(path, bytes, script) : "")
           .build();
     }
+    return writeTrimmed(path, bytes, hash, trimResult);
+  }
+
+  /**
+   * Builds the result for a file that needs no changes, recording it in the incremental
+   * index if there is one.
+   *
+   * @param entry the file
+   * @param hash the SHA-256 of its content; only needed with an index
+   * @return unmodified result
+   */
+  private FileProcessingResult unchanged(FileEntry entry, String hash) {
+    if (index != null) {
+      index.record(entry, hash);
+    }
+    return new FileProcessingResult.Builder(entry.path().toString())
+        .modified(false)
+        .build();
+  }
+
+  private FileProcessingResult.Builder modified(Path path, int linesTrimmed, int blankLinesRemoved) {
+    return new FileProcessingResult.Builder(path.toString())
+        .modified(true)
+        .linesTrimmed(linesTrimmed)
+        .blankLinesRemoved(blankLinesRemoved);
+  }
+
+  private void countModified(int linesTrimmed, int blankLinesRemoved) {
+    statistics.incrementFilesModified();
+    statistics.addLinesTrimmed(linesTrimmed);
+    statistics.addBlankLinesRemoved(blankLinesRemoved);
+  }
 
-    // Create backup
-    if (config.isCreateBackups()) {
-      Path backupPath = Paths.get(path.toString() + ".bak");
-      Files.writeString(backupPath, originalContent, StandardCharsets.UTF_8);
+  /**
+   * Trims file content without decoding it. Content that is not plainly valid UTF-8 goes
+   * through the {@code String} trimmer, whose strict decoder reports malformed input.
+   *
+   * @param bytes the file content
+   * @param script receives the line edits, or null if they are not needed
+   * @return trim result holding the trimmed bytes
+   */
+  private ByteTrimmer.Result trim(byte[] bytes, EditScript script) throws IOException {
+    if (ByteTrimmer.isValidUtf8(bytes)) {
+      return new ByteTrimmer(bytes, config).trim(script);
     }
+    String originalContent = StandardCharsets.UTF_8.newDecoder()
+        .decode(ByteBuffer.wrap(bytes))
+        .toString();
+    FileTrimmer.TrimResult trimResult = new FileTrimmer(originalContent, config).trim(script);
+    boolean changed = !trimResult.getContent().equals(originalContent);
+    return new ByteTrimmer.Result(changed ? trimResult.getContent().getBytes(StandardCharsets.UTF_8) : bytes,
+        trimResult.getLinesTrimmed(), trimResult.getBlankLinesRemoved(), changed);
+  }
 
-    // Write modified content
+  /**
+   * Renders the diff of a file from the edits recorded while trimming it, naming the file
+   * relative to the processed directory.
+   *
+   * @param path the file
+   * @param bytes the original content, which trimming has checked to be valid UTF-8
+   * @param script the recorded edits
+   * @return the unified diff
+   */
+  private String renderDiff(Path path, byte[] bytes, EditScript script) {
+    Path base = root.toAbsolutePath().normalize();
+    Path file = path.toAbsolutePath().normalize();
+    String name = (file.startsWith(base) ? base.relativize(file) : file).toString().replace('\\', '/');
+    return diffGenerator.generateDiff(new String(bytes, StandardCharsets.UTF_8), script, name);
+  }
+
+  /**
+   * Backs up a file and replaces it with the trimmed content. The content is written to a
+   * sibling temp file that is then moved over the original, so a failed or interrupted write
+   * leaves the original intact.
+   *
+   * @param path the file to write
+   * @param bytes the original content
+   * @param hash the SHA-256 of the original content if incremental mode computed it, or null
+   * @param trimResult the trimmed content
+   * @return processing result
+   */
+  private FileProcessingResult writeTrimmed(Path path, byte[] bytes, String hash, ByteTrimmer.Result trimResult)
+      throws IOException {
+    // The run journal records content hashes, which incremental mode has already computed
+    String originalHash = journal == null ? null : hash != null ? hash : FileIndex.hash(bytes);
+    byte[] trimmed = trimResult.getContent();
+    String trimmedHash = index != null || journal != null ? FileIndex.hash(trimmed) : null;
+    Path temp = FileReplacer.newTempFile(path);
     try {
-      Files.writeString(path, trimResult.getContent(), StandardCharsets.UTF_8);
-      statistics.incrementFilesModified();
-      statistics.addLinesTrimmed(trimResult.getLinesTrimmed());
-      statistics.addBlankLinesRemoved(trimResult.getBlankLinesRemoved());
-
-      return new FileProcessingResult.Builder(path.toString())
-          .modified(true)
-          .linesTrimmed(trimResult.getLinesTrimmed())
-          .blankLinesRemoved(trimResult.getBlankLinesRemoved())
-          .build();
+      Files.write(temp, trimmed);
+      replacer.replace(temp, path, originalHash, trimmedHash, journal, backupStore);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
 
-    } catch (IOException e) {
-      // Try to restore from backup
-      if (config.isCreateBackups()) {
-        Path backupPath = Paths.get(path.toString() + ".bak");
-        if (Files.exists(backupPath)) {
-          Files.copy(backupPath, path, StandardCopyOption.REPLACE_EXISTING);
-          Files.delete(backupPath);
-        }
-      }
-      throw e;
+    if (index != null) {
+      index.record(FileEntry.of(path, Files.readAttributes(path, BasicFileAttributes.class)), trimmedHash);
     }
+    countModified(trimResult.getLinesTrimmed(), trimResult.getBlankLinesRemoved());
+    return modified(path, trimResult.getLinesTrimmed(), trimResult.getBlankLinesRemoved()).build();
   }
 
   /**
-   * Parses a comma-separated filter list.
+   * Trims a large file through a fixed-size buffer and atomically replaces it if it changed.
    *
-   * @param filterString the filter string
-   * @return array of filter items
+   * @param entry the file to process
+   * @param channel the open file, positioned after the sniffed prefix; closed before replacing
+   * @param prefix the bytes already read
+   * @return processing result
    */
-  private String[] parseFilterList(String filterString) {
-    if (filterString == null || filterString.trim().isEmpty()) {
-      return new String[]{};
+  private FileProcessingResult processStream(FileEntry entry, FileChannel channel, byte[] prefix)
+      throws IOException {
+    Path path = entry.path();
+    boolean writable = Files.isWritable(path);
+    MessageDigest digest = index != null || journal != null ? FileIndex.newDigest() : null;
+    StreamingTrimmer.Result trimResult = new StreamingTrimmer(config)
+        .trim(channel, prefix, writable && !config.isDryRun() ? path : null, digest);
+    channel.close();
+    String hash = digest != null ? FileIndex.hash(digest) : null;
+
+    if (!trimResult.isChanged()) {
+      return unchanged(entry, hash);
+    }
+
+    if (!writable) {
+      return permissionDenied(path, "No write permission");
+    }
+
+    if (!config.isDryRun()) {
+      Path temp = trimResult.getTempFile();
+      try {
+        // The output is cut back as it is written, so its hash is taken once it is complete
+        replacer.replace(temp, path, hash, journal != null ? FileIndex.hash(temp) : null, journal, backupStore);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      countModified(trimResult.getLinesTrimmed(), trimResult.getBlankLinesRemoved());
     }
-    return Arrays.stream(filterString.split(","))
-        .map(String::trim)
-        .toArray(String[]::new);
+    return modified(path, trimResult.getLinesTrimmed(), trimResult.getBlankLinesRemoved()).build();
   }
 
   public ProcessingStatistics getStatistics() {
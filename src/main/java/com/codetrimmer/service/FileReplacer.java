@@ -0,0 +1,222 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Replaces files with their trimmed content, which is written to a sibling temp file first
+ * so a failed or interrupted write leaves the original intact. Files are backed up before
+ * they are replaced when backups are enabled.
+ *
+ * <p>A symbolic link is left in place and the file it points to is replaced. A file with
+ * other hard links is written in place instead, since replacing it would detach it from its
+ * other names.
+ */
+final class FileReplacer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileReplacer.class);
+
+  private final CodeTrimmerConfig config;
+  private final Queue<Path> written = new ConcurrentLinkedQueue<>(); // Replaced files awaiting sync
+
+  FileReplacer(CodeTrimmerConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Creates a hidden temp file next to a file, or next to the file a symbolic link points to,
+   * on the same file system so it can be moved over the file atomically.
+   *
+   * @param target the file the temp file will replace
+   * @return the empty temp file
+   */
+  static Path newTempFile(Path target) throws IOException {
+    Path file = target.toRealPath();
+    return Files.createTempFile(file.getParent(), "." + file.getFileName() + ".", ".tmp");
+  }
+
+  /**
+   * Backs the target up if backups are enabled, then replaces it with a temp file. The backup
+   * is removed again if the replacement fails, since the target was not touched.
+   *
+   * @param temp the fully written temp file, in the same directory as the target
+   * @param target the file to replace
+   * @param originalHash the SHA-256 of the target's content, which keys it in the backup
+   *     store; only needed when the run has a journal
+   * @param trimmedHash the SHA-256 of the temp file's content; only needed when the run has
+   *     a journal
+   * @param journal the journal of the run, or null
+   * @param backupStore the backup store of the run, or null to back up to {@code .bak} files
+   */
+  void replace(Path temp, Path target, String originalHash, String trimmedHash, RunJournal journal,
+               BackupStore backupStore) throws IOException {
+    Path file = target.toRealPath();
+    // Decided before the backup, which may add a hard link of its own
+    boolean inPlace = !isSingleLink(file);
+    if (!config.isCreateBackups()) {
+      moveOver(temp, file, inPlace);
+      return;
+    }
+    Path backupPath;
+    if (backupStore != null) {
+      backupPath = backupStore.backUp(file, originalHash);
+      try {
+        moveOver(temp, file, inPlace);
+      } catch (IOException e) {
+        backupStore.discard(file);
+        throw e;
+      }
+    } else {
+      backupPath = Paths.get(target.toString() + ".bak");
+      backUp(file, backupPath, inPlace);
+      try {
+        moveOver(temp, file, inPlace);
+      } catch (IOException e) {
+        Files.deleteIfExists(backupPath);
+        throw e;
+      }
+    }
+    if (journal != null) {
+      try {
+        journal.recordModified(target, backupPath, originalHash, trimmedHash);
+      } catch (IOException e) {
+        // The file is already replaced and its backup is in place
+        LOGGER.warn("Could not record " + target + " in run journal " + journal.getRunId(), e);
+      }
+    }
+  }
+
+  /**
+   * Backs up a file that is about to be replaced. Replacing moves a new file over the
+   * original instead of writing into it, so the backup can be a hard link to the original
+   * and no content is copied. File systems without hard links, and files with other hard
+   * links, which are written in place rather than replaced, get a copy.
+   *
+   * @param path the file to back up, with symbolic links resolved
+   * @param backupPath the backup location, replaced if it exists
+   * @param copy whether the file will be written in place, so the backup must be a copy
+   */
+  private void backUp(Path path, Path backupPath, boolean copy) throws IOException {
+    Files.deleteIfExists(backupPath);
+    if (copy) {
+      Files.copy(path, backupPath, StandardCopyOption.REPLACE_EXISTING);
+      return;
+    }
+    try {
+      Files.createLink(backupPath, path);
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      Files.copy(path, backupPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Checks that a file has no other hard links, where the file system reports link counts.
+   *
+   * @param path the file
+   * @return false if the file is known to have more than one link
+   */
+  static boolean isSingleLink(Path path) throws IOException {
+    if (!path.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+      return true;
+    }
+    return ((Number) Files.getAttribute(path, "unix:nlink")).intValue() == 1;
+  }
+
+  /**
+   * Moves a fully written temp file over its target and records the target for syncing.
+   *
+   * @param temp the temp file, in the same directory as the target
+   * @param target the file to replace, with symbolic links resolved
+   * @param inPlace whether the target has other hard links
+   */
+  private void moveOver(Path temp, Path target, boolean inPlace) throws IOException {
+    replaceFile(temp, target, inPlace);
+    if (config.isSyncWrites()) {
+      written.add(target);
+    }
+  }
+
+  /**
+   * Moves a fully written temp file over its target, keeping the target's permissions, or
+   * writes its content into the target if the target has other hard links.
+   * The modification time is left to advance, so build tools see the change.
+   *
+   * @param temp the temp file from {@link #newTempFile(Path)}
+   * @param target the file to replace, with symbolic links resolved
+   * @param inPlace whether the target has other hard links
+   */
+  static void replaceFile(Path temp, Path target, boolean inPlace) throws IOException {
+    if (inPlace) {
+      writeInPlace(temp, target);
+      return;
+    }
+    if (target.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+    }
+    try {
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Overwrites a file with the content of another, keeping the file itself, so that all of
+   * its names see the new content. Unlike a replace this is not atomic.
+   *
+   * @param source the file holding the content
+   * @param target the file to overwrite
+   */
+  static void writeInPlace(Path source, Path target) throws IOException {
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+         FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+             StandardOpenOption.TRUNCATE_EXISTING)) {
+      long size = in.size();
+      long copied = 0;
+      while (copied < size) {
+        copied += in.transferTo(copied, size - copied, out);
+      }
+    }
+  }
+
+  /**
+   * Forces the files replaced since the last call, and the directories holding them, to
+   * disk. Failures are logged rather than reported per file, since the files themselves
+   * were written.
+   */
+  void syncWritten() {
+    Set<Path> directories = new HashSet<>();
+    Path file;
+    while ((file = written.poll()) != null) {
+      force(file);
+      Path parent = file.toAbsolutePath().getParent();
+      if (parent != null && directories.add(parent)) {
+        force(parent);
+      }
+    }
+  }
+
+  private void force(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Directories cannot be opened on every platform; their entries are then synced with the files
+      LOGGER.debug("Cannot sync " + path, e);
+    }
+  }
+}
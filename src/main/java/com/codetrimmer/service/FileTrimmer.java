@@ -18,154 +18,223 @@ public class FileTrimmer {
   /**
    * Applies all trimming rules to the content.
    *
+   * <p>The content is walked once with a line cursor. Trailing whitespace, excess
+   * blank lines and the final newline are all handled in that pass, and output is
+   * only copied once the first change is found, so clean files are returned as-is.
+   *
    * @return trim result with modified content and statistics
    */
   public TrimResult trim() {
-    String result = content;
-    int linesTrimmed = 0;
-    int blankLinesRemoved = 0;
+    return new Pass(null).run();
+  }
 
-    // Trim trailing whitespace from lines
-    if (config.isTrimTrailingWhitespace()) {
-      int[] trimStats = trimTrailingWhitespace(result);
-      result = (String) getTrimmedContent(result);
-      linesTrimmed = trimStats[0];
-    }
+  /**
+   * Applies all trimming rules to the content, recording the line edits they make.
+   *
+   * @param script receives the edits that turn the content into the trimmed content
+   * @return trim result with modified content and statistics
+   */
+  public TrimResult trim(EditScript script) {
+    return new Pass(script).run();
+  }
 
-    // Reduce excessive blank lines
-    int blankLinesStats = reduceConsecutiveBlankLines(result);
-    result = reduceBlankLines(result);
-    blankLinesRemoved = blankLinesStats;
+  /**
+   * Scans the content for the first rule violation, stopping there without building any
+   * output. Lines are checked in order, the final newline last; the result needs trimming
+   * exactly when {@link #trim()} would change the content.
+   *
+   * @return check result with the first offending line, if any
+   */
+  public CheckResult check() {
+    return new LineCheck(new Chars(), config).run();
+  }
 
-    // Ensure final newline
-    if (config.isEnsureFinalNewline()) {
-      result = ensureFinalNewline(result);
+  private static int endWithoutNewlines(CharSequence text) {
+    int end = text.length();
+    while (end > 0 && text.charAt(end - 1) == '\n') {
+      end--;
     }
-
-    return new TrimResult(result, linesTrimmed, blankLinesRemoved);
+    return end;
   }
 
   /**
-   * Trims trailing whitespace from all lines.
+   * Checks whether a character is matched by the regex class {@code \s}.
    *
-   * @param text the text to process
-   * @return array with [linesTrimmed, lines]
+   * @param c the character
+   * @return true for space, tab, line feed, vertical tab, form feed or carriage return
    */
-  private int[] trimTrailingWhitespace(String text) {
-    String[] lines = text.split("\n", -1);
-    int trimmedCount = 0;
-
-    for (int i = 0; i < lines.length; i++) {
-      String trimmed = lines[i].replaceAll("\\s+$", "");
-      if (!trimmed.equals(lines[i])) {
-        trimmedCount++;
-      }
-      lines[i] = trimmed;
-    }
-
-    return new int[]{trimmedCount};
+  static boolean isWhitespace(char c) {
+    return c == ' ' || (c >= '\t' && c <= '\r');
   }
 
   /**
-   * Gets trimmed content after removing trailing whitespace.
+   * Checks whether a character is a line terminator that {@code $} matches before
+   * but {@code \s} does not consume.
    *
-   * @param text the text to process
-   * @return the trimmed content
+   * @param c the character
+   * @return true for NEL, LINE SEPARATOR and PARAGRAPH SEPARATOR
    */
-  private Object getTrimmedContent(String text) {
-    String[] lines = text.split("\n", -1);
-    StringBuilder result = new StringBuilder();
-
-    for (int i = 0; i < lines.length; i++) {
-      String trimmed = lines[i].replaceAll("\\s+$", "");
-      result.append(trimmed);
-      if (i < lines.length - 1) {
-        result.append("\n");
-      }
-    }
-
-    return result.toString();
+  static boolean isUnicodeLineTerminator(char c) {
+    return c == '\u0085' || c == '\u2028' || c == '\u2029';
   }
 
   /**
-   * Counts and prepares for reducing consecutive blank lines.
-   *
-   * @param text the text to process
-   * @return number of blank lines that will be removed
+   * The content as characters.
    */
-  private int reduceConsecutiveBlankLines(String text) {
-    String[] lines = text.split("\n", -1);
-    int maxBlank = config.getMaxConsecutiveBlankLines();
-    int removedCount = 0;
-    int consecutiveBlank = 0;
-
-    for (String line : lines) {
-      if (line.trim().isEmpty()) {
-        consecutiveBlank++;
-        if (consecutiveBlank > maxBlank) {
-          removedCount++;
+  private final class Chars implements LineContent {
+
+    @Override
+    public int length() {
+      return content.length();
+    }
+
+    @Override
+    public int nextLineFeed(int from) {
+      return content.indexOf('\n', from);
+    }
+
+    @Override
+    public boolean isLineFeed(int index) {
+      return content.charAt(index) == '\n';
+    }
+
+    @Override
+    public int regexLineEnd(int start, int end) {
+      if (end > start && isUnicodeLineTerminator(content.charAt(end - 1))) {
+        return end - 1;
+      }
+      return end;
+    }
+
+    @Override
+    public int whitespaceStart(int start, int end) {
+      int pos = end;
+      while (pos > start && isWhitespace(content.charAt(pos - 1))) {
+        pos--;
+      }
+      return pos;
+    }
+
+    @Override
+    public boolean isBlank(int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (content.charAt(i) > ' ') {
+          return false;
         }
-      } else {
-        consecutiveBlank = 0;
       }
+      return true;
     }
 
-    return removedCount;
+    @Override
+    public String text(int start, int end) {
+      return content.substring(start, end);
+    }
   }
 
   /**
-   * Reduces consecutive blank lines to the maximum allowed.
-   *
-   * @param text the text to process
-   * @return text with reduced blank lines
+   * State of a single trimming pass over the content.
    */
-  private String reduceBlankLines(String text) {
-    String[] lines = text.split("\n", -1);
-    int maxBlank = config.getMaxConsecutiveBlankLines();
-    StringBuilder result = new StringBuilder();
-    int consecutiveBlank = 0;
-
-    for (int i = 0; i < lines.length; i++) {
-      String line = lines[i];
-
-      if (line.trim().isEmpty()) {
-        consecutiveBlank++;
-        if (consecutiveBlank <= maxBlank) {
-          result.append(line);
-          if (i < lines.length - 1) {
-            result.append("\n");
-          }
-        }
-      } else {
-        consecutiveBlank = 0;
-        result.append(line);
-        if (i < lines.length - 1) {
-          result.append("\n");
+  private final class Pass extends LinePass {
+    private final String original = FileTrimmer.this.content;
+    private StringBuilder out;
+    private int copied;
+
+    Pass(EditScript script) {
+      super(new Chars(), FileTrimmer.this.config, script);
+    }
+
+    TrimResult run() {
+      visitLines();
+      return new TrimResult(finish(), getLinesTrimmed(), getBlankLinesRemoved());
+    }
+
+    /**
+     * Removes a range from the output, materializing it on the first change.
+     */
+    @Override
+    protected void drop(int from, int to) {
+      if (out == null) {
+        out = new StringBuilder(original.length());
+      }
+      out.append(original, copied, from);
+      copied = to;
+    }
+
+    private String finish() {
+      if (out == null) {
+        if (!config.isEnsureFinalNewline()) {
+          return original;
         }
+        int end = endWithoutNewlines(original);
+        return end == original.length() - 1 ? original : original.substring(0, end) + "\n";
       }
+
+      out.append(original, copied, original.length());
+      if (config.isEnsureFinalNewline()) {
+        out.setLength(endWithoutNewlines(out));
+        out.append('\n');
+      }
+      return out.toString();
+    }
+  }
+
+  /**
+   * Kind of change that {@link #check()} found first.
+   */
+  public enum Violation {
+    TRAILING_WHITESPACE("trailing-whitespace"),
+    EXCESS_BLANK_LINES("excess-blank-lines"),
+    FINAL_NEWLINE("final-newline");
+
+    private final String code;
+
+    Violation(String code) {
+      this.code = code;
     }
 
-    return result.toString();
+    /**
+     * Returns the stable identifier printed by the {@code check} command.
+     *
+     * @return the violation code
+     */
+    public String getCode() {
+      return code;
+    }
   }
 
   /**
-   * Ensures the file ends with exactly one newline.
-   *
-   * @param text the text to process
-   * @return text with single final newline
+   * Result of a check-only scan.
    */
-  private String ensureFinalNewline(String text) {
-    if (text == null || text.isEmpty()) {
-      return "\n";
+  public static class CheckResult {
+    private final Violation violation;
+    private final int firstLine;
+
+    public CheckResult(Violation violation, int firstLine) {
+      this.violation = violation;
+      this.firstLine = firstLine;
     }
 
-    // Remove all trailing newlines
-    while (text.endsWith("\n")) {
-      text = text.substring(0, text.length() - 1);
+    public boolean needsTrimming() {
+      return violation != null;
     }
 
-    // Add single newline
-    return text + "\n";
+    /**
+     * Returns the kind of the first change found.
+     *
+     * @return the violation, or null if the content is clean
+     */
+    public Violation getViolation() {
+      return violation;
+    }
+
+    /**
+     * Returns the 1-based number of the first line that would change.
+     *
+     * @return the line number, or 0 if the content is clean
+     */
+    public int getFirstLine() {
+      return firstLine;
+    }
   }
 
   /**
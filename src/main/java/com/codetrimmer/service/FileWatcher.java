@@ -0,0 +1,182 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.model.FileEntry;
+import com.codetrimmer.model.FileProcessingResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Trims files below a directory as they are saved, using a {@link WatchService}.
+ *
+ * <p>Directories are registered once, skipping the ones a walk would prune, and new
+ * directories are registered as they appear. Events are collected until none arrive for
+ * the debounce period, so a burst of saves, or an editor writing a file in several steps,
+ * is trimmed once per file. Only the changed files are selected and processed; the tree is
+ * never walked again. Backup files are ignored, as are the trimmer's own writes once the
+ * file is clean.
+ */
+public class FileWatcher implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileWatcher.class);
+  private static final String BACKUP_EXTENSION = ".bak";
+
+  private final FileDiscovery.Selector selector;
+  private final Function<List<FileEntry>, List<FileProcessingResult>> processor;
+  private final long debounceMs;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+
+  FileWatcher(Path root, FileDiscovery.Selector selector,
+              Function<List<FileEntry>, List<FileProcessingResult>> processor, long debounceMs)
+      throws IOException {
+    this.selector = selector;
+    this.processor = processor;
+    this.debounceMs = Math.max(1, debounceMs);
+    this.watchService = root.getFileSystem().newWatchService();
+    register(root);
+  }
+
+  /**
+   * Processes changed files until the watcher is closed or the thread is interrupted.
+   *
+   * @param listener receives the results of each batch that selected at least one file
+   * @throws InterruptedException if the thread is interrupted while waiting for changes
+   */
+  public void run(Consumer<List<FileProcessingResult>> listener) throws InterruptedException {
+    Set<Path> pending = new LinkedHashSet<>();
+    try {
+      while (true) {
+        collect(watchService.take(), pending);
+        // Wait out the burst, so files saved repeatedly are processed once
+        WatchKey key;
+        while ((key = watchService.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+          collect(key, pending);
+        }
+        List<FileEntry> files = selector.select(new ArrayList<>(pending));
+        pending.clear();
+        if (!files.isEmpty()) {
+          listener.accept(processor.apply(files));
+        }
+      }
+    } catch (ClosedWatchServiceException e) {
+      // Closed by another thread
+    }
+  }
+
+  /**
+   * Returns the number of directories being watched.
+   */
+  public int getWatchedDirectoryCount() {
+    return directories.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+
+  /**
+   * Adds the files named by a key's events to the pending set and registers new directories.
+   */
+  private void collect(WatchKey key, Set<Path> pending) {
+    Path dir = directories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (dir == null) {
+        continue;
+      }
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // Events were lost, so every file directly in the directory may have changed
+        LOGGER.warn("Watch events lost in {}, checking its files", dir);
+        addFiles(dir, pending);
+        continue;
+      }
+      Path path = dir.resolve((Path) event.context());
+      if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+        registerNew(path, pending);
+      } else if (!path.getFileName().toString().endsWith(BACKUP_EXTENSION)) {
+        pending.add(path);
+      }
+    }
+    if (!key.reset()) {
+      directories.remove(key);
+    }
+  }
+
+  /**
+   * Registers a directory created after watching started, and picks up the files written
+   * to it before it was registered.
+   */
+  private void registerNew(Path dir, Set<Path> pending) {
+    try {
+      for (Path added : register(dir)) {
+        addFiles(added, pending);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Cannot watch directory: " + dir, e);
+    }
+  }
+
+  /**
+   * Registers a directory and the directories below it that a walk would not prune.
+   *
+   * @return the registered directories
+   */
+  private List<Path> register(Path start) throws IOException {
+    List<Path> registered = new ArrayList<>();
+    if (selector.isPruned(start)) {
+      return registered;
+    }
+    Files.walkFileTree(start, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        if (!dir.equals(start) && selector.isPruned(dir)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        directories.put(key, dir);
+        registered.add(dir);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        LOGGER.warn("Cannot watch directory: " + file, exc);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return registered;
+  }
+
+  private void addFiles(Path dir, Set<Path> pending) {
+    try (Stream<Path> files = Files.list(dir)) {
+      files.filter(file -> !file.getFileName().toString().endsWith(BACKUP_EXTENSION))
+          .forEach(pending::add);
+    } catch (IOException e) {
+      LOGGER.warn("Cannot list directory: " + dir, e);
+    }
+  }
+}
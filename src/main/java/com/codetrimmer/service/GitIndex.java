@@ -0,0 +1,304 @@
+package com.codetrimmer.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads and rewrites staged content through a fixed number of {@code git} processes,
+ * however many files are staged: one lists the staged files, one streams all their blobs,
+ * and fixed blobs are written back by one {@code hash-object} and one {@code update-index}.
+ *
+ * <p>Processes inherit the environment, so inside a hook they see the index git is
+ * committing from, including the temporary index of {@code git commit <paths>}. Process
+ * input is passed through files in a scratch directory, which {@link #close()} removes, and
+ * error output is written to files too, so a chatty git process can never block on it.
+ */
+final class GitIndex implements AutoCloseable {
+
+  private static final String REGULAR_FILE = "100644";
+  private static final String EXECUTABLE_FILE = "100755";
+
+  private final Path topLevel;
+  private final Path scratch;
+
+  private GitIndex(Path topLevel, Path scratch) {
+    this.topLevel = topLevel;
+    this.scratch = scratch;
+  }
+
+  /**
+   * Opens the index of the repository containing a directory.
+   *
+   * @param directory a directory inside the work tree
+   * @return the index
+   * @throws IOException if the directory is not in a work tree or git cannot be run
+   */
+  static GitIndex open(Path directory) throws IOException {
+    byte[] output = run(directory, null, "rev-parse", "--show-toplevel");
+    Path topLevel = Paths.get(new String(output, StandardCharsets.UTF_8).trim());
+    return new GitIndex(topLevel, Files.createTempDirectory("code-trimmer-index"));
+  }
+
+  /**
+   * Returns the root of the work tree, which staged paths are relative to.
+   *
+   * @return the top-level directory
+   */
+  Path getTopLevel() {
+    return topLevel;
+  }
+
+  /**
+   * Lists the regular files whose staged content differs from {@code HEAD}. Deleted files,
+   * symbolic links and submodules are left out, and renames are listed as additions.
+   *
+   * @return the staged files, in index order
+   * @throws IOException if git fails or prints a path that is not valid UTF-8
+   */
+  List<StagedFile> stagedFiles() throws IOException {
+    byte[] output = run(topLevel, null, "diff", "--cached", "--raw", "-z", "--no-renames",
+        "--no-abbrev", "--diff-filter=d");
+    List<StagedFile> files = new ArrayList<>();
+    int start = 0;
+    String meta = null;
+    for (int i = 0; i < output.length; i++) {
+      if (output[i] != 0) {
+        continue;
+      }
+      String token = decode(Arrays.copyOfRange(output, start, i));
+      start = i + 1;
+      if (meta == null) {
+        meta = token;
+        continue;
+      }
+      // Raw entries read ":<old mode> <new mode> <old id> <new id> <status>"
+      String[] fields = meta.substring(1).split(" ");
+      if (fields[1].equals(REGULAR_FILE) || fields[1].equals(EXECUTABLE_FILE)) {
+        files.add(new StagedFile(fields[1], fields[3], token));
+      }
+      meta = null;
+    }
+    return files;
+  }
+
+  /**
+   * Streams the staged content of files through a single {@code cat-file --batch} process.
+   *
+   * @param files the files to read
+   * @param visitor called with each file and its content, in list order
+   * @throws IOException if git fails or the visitor throws
+   */
+  void readBlobs(List<StagedFile> files, BlobVisitor visitor) throws IOException {
+    StringBuilder ids = new StringBuilder();
+    for (StagedFile file : files) {
+      ids.append(file.objectId()).append('\n');
+    }
+    Path input = writeScratch("blob-ids", ids.toString().getBytes(StandardCharsets.US_ASCII));
+
+    Path errors = writeScratch("cat-file-errors", new byte[0]);
+    Process process = start(topLevel, input, errors, "cat-file", "--batch");
+    boolean complete = false;
+    try (InputStream in = new BufferedInputStream(process.getInputStream())) {
+      for (StagedFile file : files) {
+        visitor.visit(file, readBlob(in, file));
+      }
+      complete = true;
+    } finally {
+      if (!complete) {
+        process.destroy();
+      }
+    }
+    await(process, errors, "cat-file");
+  }
+
+  /**
+   * Writes blobs to the object database with a single {@code hash-object} process. No
+   * filters are applied, since staged content has already been through them.
+   *
+   * @param contents the blob contents
+   * @return the object ids, in the same order
+   * @throws IOException if git fails
+   */
+  List<String> writeBlobs(List<byte[]> contents) throws IOException {
+    StringBuilder paths = new StringBuilder();
+    for (int i = 0; i < contents.size(); i++) {
+      paths.append(writeScratch("blob-" + i, contents.get(i))).append('\n');
+    }
+    Path input = writeScratch("blob-paths", paths.toString().getBytes(StandardCharsets.UTF_8));
+
+    byte[] output = run(topLevel, input, "hash-object", "-w", "--no-filters", "--stdin-paths");
+    List<String> ids = List.of(new String(output, StandardCharsets.US_ASCII).split("\n"));
+    if (ids.size() != contents.size()) {
+      throw new IOException("git hash-object returned " + ids.size() + " ids for " + contents.size() + " blobs");
+    }
+    return ids;
+  }
+
+  /**
+   * Points index entries at new blobs with a single {@code update-index} process.
+   *
+   * @param files the entries to update, carrying their new object ids
+   * @throws IOException if git fails
+   */
+  void updateIndex(List<StagedFile> files) throws IOException {
+    ByteArrayOutputStream info = new ByteArrayOutputStream();
+    for (StagedFile file : files) {
+      info.writeBytes((file.mode() + " " + file.objectId() + "\t" + file.path())
+          .getBytes(StandardCharsets.UTF_8));
+      info.write(0);
+    }
+    run(topLevel, writeScratch("index-info", info.toByteArray()), "update-index", "-z", "--index-info");
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (Stream<Path> files = Files.walk(scratch)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * Reads one {@code cat-file --batch} record: a header line, the content and a newline.
+   */
+  private static byte[] readBlob(InputStream in, StagedFile file) throws IOException {
+    String header = readLine(in);
+    String[] fields = header.split(" ");
+    if (fields.length != 3 || !fields[1].equals("blob")) {
+      throw new IOException("Cannot read staged content of " + file.path() + ": " + header);
+    }
+    long size = Long.parseLong(fields[2]);
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new IOException("Staged content of " + file.path() + " is too large to trim in memory");
+    }
+    byte[] content = in.readNBytes((int) size);
+    if (content.length != size || in.read() != '\n') {
+      throw new IOException("Truncated staged content of " + file.path());
+    }
+    return content;
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    for (int b = in.read(); b != '\n'; b = in.read()) {
+      if (b < 0) {
+        throw new IOException("git cat-file ended early");
+      }
+      line.write(b);
+    }
+    return line.toString(StandardCharsets.US_ASCII);
+  }
+
+  private static String decode(byte[] bytes) throws IOException {
+    try {
+      return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+    } catch (CharacterCodingException e) {
+      throw new IOException("Staged path is not valid UTF-8", e);
+    }
+  }
+
+  private Path writeScratch(String name, byte[] content) throws IOException {
+    return Files.write(scratch.resolve(name), content);
+  }
+
+  /**
+   * Runs a git command to completion.
+   *
+   * @param directory the working directory
+   * @param input file to use as standard input, or null for none
+   * @param args the git subcommand and its arguments
+   * @return everything the command wrote to standard output
+   * @throws IOException if git cannot be started or exits with an error
+   */
+  private static byte[] run(Path directory, Path input, String... args) throws IOException {
+    Path errors = Files.createTempFile("code-trimmer-git", ".err");
+    try {
+      Process process = start(directory, input, errors, args);
+      byte[] output;
+      try (InputStream in = process.getInputStream()) {
+        output = in.readAllBytes();
+      }
+      await(process, errors, args[0]);
+      return output;
+    } finally {
+      Files.deleteIfExists(errors);
+    }
+  }
+
+  /**
+   * Starts a git command. Standard error goes to a file rather than a pipe, since a pipe
+   * nobody reads while standard output is consumed fills up and blocks git, for instance
+   * when {@code hash-object} warns about line endings for every path of a large commit.
+   *
+   * @param directory the working directory
+   * @param input file to use as standard input, or null for none
+   * @param errors file receiving standard error
+   * @param args the git subcommand and its arguments
+   * @return the started process
+   * @throws IOException if git cannot be started
+   */
+  private static Process start(Path directory, Path input, Path errors, String... args) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add("git");
+    command.addAll(List.of(args));
+    ProcessBuilder builder = new ProcessBuilder(command).directory(directory.toFile())
+        .redirectError(errors.toFile());
+    if (input != null) {
+      builder.redirectInput(input.toFile());
+    }
+    Process process = builder.start();
+    if (input == null) {
+      process.getOutputStream().close();
+    }
+    return process;
+  }
+
+  private static void await(Process process, Path errors, String subcommand) throws IOException {
+    try {
+      if (process.waitFor() != 0) {
+        String error = new String(Files.readAllBytes(errors), StandardCharsets.UTF_8).trim();
+        throw new IOException("git " + subcommand + " failed: " + error);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for git " + subcommand);
+    }
+  }
+
+  /**
+   * A regular file staged in the index.
+   *
+   * @param mode the index mode, {@code 100644} or {@code 100755}
+   * @param objectId the id of the staged blob
+   * @param path the path relative to the top-level directory, with {@code /} separators
+   */
+  record StagedFile(String mode, String objectId, String path) {
+
+    StagedFile withObjectId(String id) {
+      return new StagedFile(mode, id, path);
+    }
+  }
+
+  /**
+   * Receives staged content as it is read.
+   */
+  @FunctionalInterface
+  interface BlobVisitor {
+    void visit(StagedFile file, byte[] content) throws IOException;
+  }
+}
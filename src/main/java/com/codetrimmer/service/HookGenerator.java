@@ -22,6 +22,9 @@ public class HookGenerator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HookGenerator.class);
 
+    /** Placeholder in the hook templates for the trim-staged arguments. */
+    private static final String TRIM_STAGED = "{{TRIM_STAGED}}";
+
     /**
      * Generates a pre-commit hook for the specified directory.
      *
@@ -30,6 +33,20 @@ public class HookGenerator {
      * @return the path to the generated hook
      */
     public Path generatePreCommitHook(String directory, boolean force) {
+        return generatePreCommitHook(directory, force, false);
+    }
+
+    /**
+     * Generates a pre-commit hook for the specified directory. The hook checks the content
+     * staged in the index; with {@code fix} it trims that content instead of blocking the
+     * commit.
+     *
+     * @param directory the project directory containing .git folder
+     * @param force if true, overwrite existing hook
+     * @param fix if true, trim staged content rather than reject it
+     * @return the path to the generated hook
+     */
+    public Path generatePreCommitHook(String directory, boolean force, boolean fix) {
         Path projectPath = Paths.get(directory);
         Path gitDir = projectPath.resolve(".git");
 
@@ -58,13 +75,14 @@ public class HookGenerator {
         }
 
         try {
-            String hookContent = generateBashHook();
+            String trimStaged = fix ? "trim-staged --quiet" : "trim-staged --dry-run --quiet";
+            String hookContent = generateBashHook().replace(TRIM_STAGED, trimStaged);
             Files.writeString(hookPath, hookContent);
             makeExecutable(hookPath);
             LOGGER.info("Pre-commit hook generated: {}", hookPath);
 
             // Also generate Windows batch file
-            generateWindowsHooks(hooksDir, force);
+            generateWindowsHooks(hooksDir, force, trimStaged);
 
             return hookPath;
         } catch (IOException e) {
@@ -111,33 +129,19 @@ public class HookGenerator {
                 fi
             fi
 
-            # Create a temporary file list
-            TEMP_FILE=$(mktemp)
-            echo "$STAGED_FILES" > "$TEMP_FILE"
-
-            # Run Code Trimmer in dry-run mode to check for changes
-            NEEDS_TRIMMING=0
-            while IFS= read -r file; do
-                if [ -f "$file" ]; then
-                    java -jar "$TRIMMER_JAR" trim "$file" --dry-run --quiet 2>/dev/null
-                    if [ $? -eq 0 ]; then
-                        # Check if file would be modified
-                        OUTPUT=$(java -jar "$TRIMMER_JAR" trim "$file" --dry-run 2>&1)
-                        if echo "$OUTPUT" | grep -q "Files modified: [1-9]"; then
-                            NEEDS_TRIMMING=1
-                            echo "  File needs trimming: $file"
-                        fi
-                    fi
-                fi
-            done < "$TEMP_FILE"
-
-            rm -f "$TEMP_FILE"
+            # Check the staged content of every file in a single run
+            STATUS=0
+            java -jar "$TRIMMER_JAR" {{TRIM_STAGED}} || STATUS=$?
 
-            if [ $NEEDS_TRIMMING -eq 1 ]; then
+            if [ $STATUS -eq 1 ]; then
                 echo ""
-                echo "Some files need whitespace cleanup."
-                echo "Run 'java -jar $TRIMMER_JAR trim .' to fix them."
+                echo "Some staged files need whitespace cleanup."
+                echo "Run 'java -jar $TRIMMER_JAR trim-staged' to fix them."
                 exit 1
+            elif [ $STATUS -ne 0 ]; then
+                echo ""
+                echo "Code Trimmer could not process all staged files."
+                exit $STATUS
             fi
 
             echo "All files pass whitespace checks."
@@ -150,19 +154,20 @@ public class HookGenerator {
      *
      * @param hooksDir the hooks directory
      * @param force if true, overwrite existing hooks
+     * @param trimStaged the trim-staged arguments the hooks run
      */
-    private void generateWindowsHooks(Path hooksDir, boolean force) throws IOException {
+    private void generateWindowsHooks(Path hooksDir, boolean force, String trimStaged) throws IOException {
         // Generate batch file
         Path batchPath = hooksDir.resolve("pre-commit.bat");
         if (!Files.exists(batchPath) || force) {
-            Files.writeString(batchPath, generateBatchHook());
+            Files.writeString(batchPath, generateBatchHook().replace(TRIM_STAGED, trimStaged));
             LOGGER.info("Windows batch hook generated: {}", batchPath);
         }
 
         // Generate PowerShell script
         Path ps1Path = hooksDir.resolve("pre-commit.ps1");
         if (!Files.exists(ps1Path) || force) {
-            Files.writeString(ps1Path, generatePowerShellHook());
+            Files.writeString(ps1Path, generatePowerShellHook().replace(TRIM_STAGED, trimStaged));
             LOGGER.info("PowerShell hook generated: {}", ps1Path);
         }
     }
@@ -191,11 +196,20 @@ public class HookGenerator {
                 exit /b 0
             )
 
-            REM Get staged files
-            for /f "delims=" %%f in ('git diff --cached --name-only --diff-filter=d') do (
-                if exist "%%f" (
-                    java -jar "%TRIMMER_JAR%" trim "%%f" --dry-run --quiet
-                )
+            REM Check the staged content of every file in a single run
+            java -jar "%TRIMMER_JAR%" {{TRIM_STAGED}}
+            set STATUS=%ERRORLEVEL%
+
+            if %STATUS% equ 1 (
+                echo.
+                echo Some staged files need whitespace cleanup.
+                echo Run 'java -jar %TRIMMER_JAR% trim-staged' to fix them.
+                exit /b 1
+            )
+            if not %STATUS% equ 0 (
+                echo.
+                echo Code Trimmer could not process all staged files.
+                exit /b %STATUS%
             )
 
             echo All files pass whitespace checks.
@@ -226,25 +240,19 @@ public class HookGenerator {
                 exit 0
             }
 
-            # Get staged files
-            $stagedFiles = git diff --cached --name-only --diff-filter=d
-            $needsTrimming = $false
-
-            foreach ($file in $stagedFiles) {
-                if (Test-Path $file) {
-                    $output = java -jar $TrimmerJar trim $file --dry-run 2>&1
-                    if ($output -match "Files modified: [1-9]") {
-                        $needsTrimming = $true
-                        Write-Host "  File needs trimming: $file"
-                    }
-                }
-            }
+            # Check the staged content of every file in a single run
+            java -jar $TrimmerJar {{TRIM_STAGED}}
+            $status = $LASTEXITCODE
 
-            if ($needsTrimming) {
+            if ($status -eq 1) {
                 Write-Host ""
-                Write-Host "Some files need whitespace cleanup."
-                Write-Host "Run 'java -jar $TrimmerJar trim .' to fix them."
+                Write-Host "Some staged files need whitespace cleanup."
+                Write-Host "Run 'java -jar $TrimmerJar trim-staged' to fix them."
                 exit 1
+            } elseif ($status -ne 0) {
+                Write-Host ""
+                Write-Host "Code Trimmer could not process all staged files."
+                exit $status
             }
 
             Write-Host "All files pass whitespace checks."
@@ -0,0 +1,153 @@
+package com.codetrimmer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Restores files from the backups listed in run journals, then marks them restored in their
+ * journals. A {@code .bak} file, or a stored object no other journal entry refers to, is moved
+ * back over the file; a shared object is copied. Stored objects no run still needs are then
+ * deleted.
+ *
+ * <p>Only stored objects can be shared, so the journals of other runs are read only when the
+ * files being restored have such backups.
+ */
+final class JournalRestorer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalRestorer.class);
+
+    private final Path journalRoot;
+    private final RestorePool pool;
+
+    /**
+     * Creates a restorer for the journals in a directory.
+     *
+     * @param journalRoot the directory holding the journals
+     * @param pool the pool restoring the files
+     */
+    JournalRestorer(Path journalRoot, RestorePool pool) {
+        this.journalRoot = journalRoot;
+        this.pool = pool;
+    }
+
+    /**
+     * Restores journaled files.
+     *
+     * @param entries the files to restore
+     * @param candidates all journaled backups considered, of which older .bak entries for a
+     *     restored file are dropped too, since their backup has been overwritten
+     * @param checkCurrent if true, skip files changed since the run
+     * @return result of the restore operation
+     */
+    UndoService.RestoreResult restore(List<RunJournal.Entry> entries, List<RunJournal.Entry> candidates,
+                                      boolean checkCurrent) {
+        UndoService.RestoreResult result = new UndoService.RestoreResult();
+        Map<Path, Integer> references = countReferences(entries);
+        List<RunJournal.Entry> restored = pool.restoreAll(entries, entry -> entry.file().toString(),
+            entry -> restore(entry, references, checkCurrent), result);
+        try {
+            release(restored, candidates);
+        } catch (IOException e) {
+            LOGGER.warn("Could not update run journals under: " + journalRoot, e);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the journal entries referring to each stored object among the backups to restore.
+     *
+     * @param entries the files to restore
+     * @return the counts; empty if no backup is a stored object
+     */
+    private Map<Path, Integer> countReferences(List<RunJournal.Entry> entries) {
+        Set<Path> objects = new HashSet<>();
+        for (RunJournal.Entry entry : entries) {
+            if (BackupStore.isObject(journalRoot, entry.backup())) {
+                objects.add(entry.backup());
+            }
+        }
+        try {
+            return RunJournal.countReferences(journalRoot, objects);
+        } catch (IOException e) {
+            // Without the counts every stored object is copied, which is always safe
+            LOGGER.warn("Could not read run journals under: " + journalRoot, e);
+            return Map.of();
+        }
+    }
+
+    private String restore(RunJournal.Entry entry, Map<Path, Integer> references, boolean checkCurrent)
+            throws IOException {
+        String problem = verify(entry, checkCurrent);
+        if (problem != null) {
+            return problem;
+        }
+        boolean shared = BackupStore.isObject(journalRoot, entry.backup())
+            && references.getOrDefault(entry.backup(), 0) != 1;
+        if (shared) {
+            RestorePool.copyBack(entry.backup(), entry.file());
+        } else {
+            RestorePool.moveBack(entry.backup(), entry.file());
+        }
+        return null;
+    }
+
+    /**
+     * Checks that a journaled backup can be restored.
+     *
+     * @param entry the journaled file
+     * @param checkCurrent if true, also require the file to hold the content the run wrote
+     * @return why the file cannot be restored, or null if it can
+     */
+    private String verify(RunJournal.Entry entry, boolean checkCurrent) throws IOException {
+        if (!Files.isRegularFile(entry.backup())) {
+            return "Backup file not found: " + entry.backup();
+        }
+        if (entry.before() != null && !entry.before().equals(FileIndex.hash(entry.backup()))) {
+            return "Backup was overwritten by a later run";
+        }
+        if (checkCurrent && Files.exists(entry.file()) && entry.after() != null
+            && !entry.after().equals(FileIndex.hash(entry.file()))) {
+            return "File changed since run " + entry.runId();
+        }
+        return null;
+    }
+
+    /**
+     * Marks restored files in their journals and deletes the stored objects of their backups
+     * that no journal refers to any more.
+     *
+     * @param restored the restored entries
+     * @param candidates all journaled backups considered
+     */
+    private void release(List<RunJournal.Entry> restored, List<RunJournal.Entry> candidates) throws IOException {
+        Map<Path, List<RunJournal.Entry>> byFile = new HashMap<>();
+        for (RunJournal.Entry candidate : candidates) {
+            byFile.computeIfAbsent(candidate.file(), file -> new ArrayList<>()).add(candidate);
+        }
+        List<RunJournal.Entry> released = new ArrayList<>(restored);
+        List<Path> objects = new ArrayList<>();
+        for (RunJournal.Entry entry : restored) {
+            if (BackupStore.isObject(journalRoot, entry.backup())) {
+                objects.add(entry.backup());
+                continue;
+            }
+            for (RunJournal.Entry candidate : byFile.getOrDefault(entry.file(), List.of())) {
+                if (candidate != entry && candidate.backup().equals(entry.backup())) {
+                    released.add(candidate);
+                }
+            }
+        }
+        RunJournal.markRestored(journalRoot, released);
+        BackupStore.release(journalRoot, objects);
+    }
+}
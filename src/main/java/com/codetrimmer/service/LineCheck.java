@@ -0,0 +1,80 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+
+/**
+ * Check-only scan for the first rule violation, which follows the same line rules as a
+ * {@link LinePass} but stops at the first change without building any output.
+ */
+final class LineCheck {
+
+  private final LineContent content;
+  private final CodeTrimmerConfig config;
+  private final LineRules rules;
+  private int line = 1;
+
+  LineCheck(LineContent content, CodeTrimmerConfig config) {
+    this.content = content;
+    this.config = config;
+    this.rules = new LineRules(config);
+  }
+
+  /**
+   * Checks lines in order, the final newline last.
+   *
+   * @return check result with the first offending line, if any
+   */
+  FileTrimmer.CheckResult run() {
+    int lineStart = 0;
+    int newline = content.nextLineFeed(0);
+    while (newline >= 0) {
+      FileTrimmer.Violation violation = visitLine(lineStart, newline, true);
+      if (violation != null) {
+        return new FileTrimmer.CheckResult(violation, line);
+      }
+      lineStart = newline + 1;
+      newline = content.nextLineFeed(lineStart);
+      line++;
+    }
+    FileTrimmer.Violation violation = visitLine(lineStart, content.length(), false);
+    return violation != null ? new FileTrimmer.CheckResult(violation, line) : checkFinalNewline();
+  }
+
+  /**
+   * Finds the change the line rules would make to one line.
+   *
+   * @param start index of the first unit of the line
+   * @param end index of the line's newline, or content length for the last line
+   * @param newline whether the line is followed by a newline
+   * @return the violation, or null if the line is kept as it is
+   */
+  private FileTrimmer.Violation visitLine(int start, int end, boolean newline) {
+    // An empty last line removes nothing, and a lone newline gets its final newline back
+    boolean removesText = newline ? !isLoneNewline() : end > start;
+    if (rules.visit(content, start, end) && removesText) {
+      return FileTrimmer.Violation.EXCESS_BLANK_LINES;
+    }
+    return rules.isTrimmed() ? FileTrimmer.Violation.TRAILING_WHITESPACE : null;
+  }
+
+  private boolean isLoneNewline() {
+    return config.isEnsureFinalNewline() && content.length() == 1;
+  }
+
+  /**
+   * Reports a missing final newline on the last line, or surplus trailing newlines on the
+   * first line after the last one kept.
+   */
+  private FileTrimmer.CheckResult checkFinalNewline() {
+    int end = content.length();
+    while (end > 0 && content.isLineFeed(end - 1)) {
+      end--;
+    }
+    if (!config.isEnsureFinalNewline() || end == content.length() - 1) {
+      return new FileTrimmer.CheckResult(null, 0);
+    }
+    int lastKept = line - (content.length() - end);
+    return new FileTrimmer.CheckResult(FileTrimmer.Violation.FINAL_NEWLINE,
+        end == content.length() ? lastKept : lastKept + 1);
+  }
+}
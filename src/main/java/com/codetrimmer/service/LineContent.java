@@ -0,0 +1,46 @@
+package com.codetrimmer.service;
+
+/**
+ * Content that the trimming rules are applied to line by line, as characters in
+ * {@link FileTrimmer} or as UTF-8 bytes in {@link ByteTrimmer}. Positions are indexes into
+ * the content in its own units.
+ */
+interface LineContent {
+
+  int length();
+
+  /**
+   * Returns the index of the first line feed at or after a position.
+   *
+   * @param from the position to search from
+   * @return the index of the line feed, or -1 if there is none
+   */
+  int nextLineFeed(int from);
+
+  boolean isLineFeed(int index);
+
+  /**
+   * Returns where {@code \s+$} must stop matching in a line, which is before a final NEL,
+   * LINE SEPARATOR or PARAGRAPH SEPARATOR when the line ends with one.
+   *
+   * @param start index of the first unit of the line
+   * @param end index after the last unit of the line, without its line feed
+   * @return the end of the range trailing whitespace is looked for in
+   */
+  int regexLineEnd(int start, int end);
+
+  /**
+   * Returns where the run of {@code \s} characters that ends a range starts.
+   */
+  int whitespaceStart(int start, int end);
+
+  /**
+   * Mirrors {@code String.trim().isEmpty()} for a range, without allocating.
+   */
+  boolean isBlank(int start, int end);
+
+  /**
+   * Returns a range as text, decoding it if needed.
+   */
+  String text(int start, int end);
+}
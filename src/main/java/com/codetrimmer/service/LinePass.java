@@ -0,0 +1,94 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+
+/**
+ * A single trimming pass over content held in memory. The content is walked once with a line
+ * cursor and the line rules report each range that leaves the output; subclasses build the
+ * output from those ranges and apply the final newline rule to it.
+ */
+abstract class LinePass {
+
+  protected final LineContent content;
+  protected final CodeTrimmerConfig config;
+  private final LineRules rules;
+  private final EditRecorder recorder;
+  private int linesTrimmed;
+  private int blankLinesRemoved;
+
+  /**
+   * Creates a pass.
+   *
+   * @param content the content to trim
+   * @param config the trimming settings
+   * @param script receives the line edits, or null if they are not needed
+   */
+  LinePass(LineContent content, CodeTrimmerConfig config, EditScript script) {
+    this.content = content;
+    this.config = config;
+    this.rules = new LineRules(config);
+    this.recorder = script != null ? new EditRecorder(content, script) : null;
+  }
+
+  /**
+   * Visits every line, then finishes the edit script if one is recorded.
+   */
+  protected final void visitLines() {
+    int lineStart = 0;
+    int newline = content.nextLineFeed(0);
+    while (newline >= 0) {
+      visitLine(lineStart, newline, newline + 1);
+      lineStart = newline + 1;
+      newline = content.nextLineFeed(lineStart);
+    }
+    visitLine(lineStart, content.length(), content.length());
+    if (recorder != null && config.isEnsureFinalNewline()) {
+      recorder.finish();
+    }
+  }
+
+  /**
+   * Applies the line rules to one line.
+   *
+   * @param start index of the first unit of the line
+   * @param end index of the line's newline, or content length for the last line
+   * @param next index of the following line
+   */
+  private void visitLine(int start, int end, int next) {
+    boolean excessBlank = rules.visit(content, start, end);
+    if (rules.isTrimmed()) {
+      linesTrimmed++;
+    }
+    if (excessBlank) {
+      blankLinesRemoved++;
+      drop(start, next);
+      if (recorder != null) {
+        recorder.dropped(start, next);
+      }
+      return;
+    }
+
+    if (rules.isTrimmed()) {
+      drop(rules.keep(), rules.tail());
+    }
+    if (recorder != null) {
+      recorder.kept(start, rules.keep(), rules.tail(), next);
+    }
+  }
+
+  /**
+   * Removes a range from the output. Ranges are dropped in order.
+   *
+   * @param from index of the first unit to remove
+   * @param to index after the last unit to remove
+   */
+  protected abstract void drop(int from, int to);
+
+  protected final int getLinesTrimmed() {
+    return linesTrimmed;
+  }
+
+  protected final int getBlankLinesRemoved() {
+    return blankLinesRemoved;
+  }
+}
@@ -0,0 +1,71 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+
+/**
+ * The per-line trimming rules, shared by the trimming passes and the check scans: trailing
+ * whitespace is cut from each line, and blank lines beyond the allowed run are removed.
+ *
+ * <p>Lines must be visited in order, since the blank line run carries over from one line to
+ * the next. After {@link #visit} the line's trailing whitespace is {@code [keep(), tail())},
+ * which is empty when the line is kept as it is.
+ */
+final class LineRules {
+
+  private final int maxBlank;
+  private final boolean trimLines;
+  private int consecutiveBlank;
+  private int keep;
+  private int tail;
+
+  LineRules(CodeTrimmerConfig config) {
+    this.maxBlank = config.getMaxConsecutiveBlankLines();
+    this.trimLines = config.isTrimTrailingWhitespace();
+  }
+
+  /**
+   * Applies the rules to the next line.
+   *
+   * @param content the content
+   * @param start index of the first unit of the line
+   * @param end index of the line's line feed, or the content length for the last line
+   * @return true if the line is a blank line beyond the allowed run
+   */
+  boolean visit(LineContent content, int start, int end) {
+    tail = trimLines ? content.regexLineEnd(start, end) : end;
+    keep = trimLines ? content.whitespaceStart(start, tail) : end;
+    return countBlank(tail == end && content.isBlank(start, keep));
+  }
+
+  /**
+   * Counts the next line towards the run of blank lines, for callers that judge blankness
+   * themselves.
+   *
+   * @param blank whether the line is blank
+   * @return true if the line is a blank line beyond the allowed run
+   */
+  boolean countBlank(boolean blank) {
+    if (!blank) {
+      consecutiveBlank = 0;
+      return false;
+    }
+    consecutiveBlank++;
+    return consecutiveBlank > maxBlank;
+  }
+
+  boolean isTrimLines() {
+    return trimLines;
+  }
+
+  int keep() {
+    return keep;
+  }
+
+  int tail() {
+    return tail;
+  }
+
+  boolean isTrimmed() {
+    return keep < tail;
+  }
+}
@@ -0,0 +1,375 @@
+package com.codetrimmer.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Linear-space Myers comparison of two line arrays, marking the lines that differ.
+ *
+ * <p>Lines that occur in only one of the arrays can never be matched, so they are marked
+ * up front and left out of the search; this keeps the result minimal while shrinking the
+ * edit distance the search has to cover, which for trimmed files is mostly made of such
+ * lines.
+ */
+final class MyersDiff {
+    private final int[] a; // Interned original lines that also occur in the modified lines
+    private final int[] b; // Interned modified lines that also occur in the original lines
+    private final int[] aLines; // Index of each line of a in the original lines
+    private final int[] bLines; // Index of each line of b in the modified lines
+    private final boolean[] removed;
+    private final boolean[] added;
+    private final int maxEditDistance;
+
+    /**
+     * Prepares a comparison.
+     *
+     * @param original the original lines
+     * @param modified the modified lines
+     * @param removed receives a flag for each original line that was removed
+     * @param added receives a flag for each modified line that was added
+     * @param maxEditDistance the largest edit distance to search for in one region
+     */
+    MyersDiff(String[] original, String[] modified, boolean[] removed, boolean[] added, int maxEditDistance) {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] originalIds = intern(original, ids);
+        int[] modifiedIds = intern(modified, ids);
+        boolean[] inOriginal = new boolean[ids.size()];
+        boolean[] inModified = new boolean[ids.size()];
+        for (int id : originalIds) {
+            inOriginal[id] = true;
+        }
+        for (int id : modifiedIds) {
+            inModified[id] = true;
+        }
+        this.aLines = matchable(originalIds, inModified, removed);
+        this.bLines = matchable(modifiedIds, inOriginal, added);
+        this.a = select(originalIds, aLines);
+        this.b = select(modifiedIds, bLines);
+        this.removed = removed;
+        this.added = added;
+        this.maxEditDistance = maxEditDistance;
+    }
+
+    private static int[] intern(String[] lines, Map<String, Integer> ids) {
+        int[] interned = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            interned[i] = ids.computeIfAbsent(lines[i], line -> ids.size());
+        }
+        return interned;
+    }
+
+    /**
+     * Marks the lines missing from the other side as changed and returns the indexes of
+     * the rest.
+     */
+    private static int[] matchable(int[] ids, boolean[] inOther, boolean[] changed) {
+        int[] indexes = new int[ids.length];
+        int count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (inOther[ids[i]]) {
+                indexes[count++] = i;
+            } else {
+                changed[i] = true;
+            }
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    private static int[] select(int[] ids, int[] indexes) {
+        int[] selected = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            selected[i] = ids[indexes[i]];
+        }
+        return selected;
+    }
+
+    void run() {
+        compare(0, a.length, 0, b.length);
+    }
+
+    /**
+     * Marks the differences between {@code a[aLo, aHi)} and {@code b[bLo, bHi)}.
+     */
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        long split = aLo == aHi || bLo == bHi ? -1 : split(aLo, aHi, bLo, bHi);
+        if (split < 0) {
+            markReplaced(aLo, aHi, bLo, bHi);
+            return;
+        }
+        int x = aLo + (int) (split >>> 32);
+        int y = bLo + (int) split;
+        compare(aLo, x, bLo, y);
+        compare(x, aHi, y, bHi);
+    }
+
+    /**
+     * Finds the point to split a region at, which must leave both halves smaller than the
+     * region, since a split at one of its corners would make no progress.
+     *
+     * @return the point as {@code x << 32 | y}, relative to the region, or -1 if the region
+     *     should be marked replaced as a whole
+     */
+    private long split(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        long split = middleSnake(aLo, aHi, bLo, bHi);
+        int x = (int) (split >>> 32);
+        int y = (int) split;
+        if (split >= 0 && (x + y == 0 || x + y == n + m)) {
+            return midpoint(aLo, n, bLo, m, searchLimit(n, m));
+        }
+        return split;
+    }
+
+    private void markReplaced(int aLo, int aHi, int bLo, int bHi) {
+        for (int i = aLo; i < aHi; i++) {
+            removed[aLines[i]] = true;
+        }
+        for (int j = bLo; j < bHi; j++) {
+            added[bLines[j]] = true;
+        }
+    }
+
+    /**
+     * Returns how many edits each search runs from its corner: half the edit distance of the
+     * region at most, and half the configured bound.
+     */
+    private int searchLimit(int n, int m) {
+        return (int) Math.min((n + m + 1) / 2, (maxEditDistance + 1L) / 2);
+    }
+
+    /**
+     * Finds a point on an optimal path through the region by extending furthest-reaching
+     * paths from both corners until they overlap. If the edit distance exceeds the bound,
+     * the point furthest from the corners that either search reached is used instead, so
+     * the region is still split, just not necessarily optimally.
+     *
+     * @return the point as {@code x << 32 | y}, relative to the region, or -1 if the region
+     *     has no line in common
+     */
+    private long middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = searchLimit(n, m);
+        Search search = new Search(aLo, aHi, bLo, bHi, maxD);
+        for (int d = 0; d < maxD; d++) {
+            long point = search.forward(d);
+            if (point < 0) {
+                point = search.backward(d);
+            }
+            if (point >= 0) {
+                return point;
+            }
+        }
+        return maxD < (n + m + 1) / 2 ? search.furthest() : -1;
+    }
+
+    /**
+     * Splits a region whose edit distance is over the bound through the middle of its
+     * longer side, aligning the middle line with the nearest equal line on the other side
+     * around the proportional position. Halving keeps the total work for such regions
+     * at O((N + M) log(N + M)) times the bound.
+     *
+     * @return the point as {@code x << 32 | y}, relative to the region, or -1 if the region
+     *     is too small to split
+     */
+    private long midpoint(int aLo, int n, int bLo, int m, int window) {
+        if (n + m < 4) {
+            return -1;
+        }
+        if (n >= m) {
+            int x = n / 2;
+            int y = nearest(b, bLo, m, a[aLo + x], (int) ((long) x * m / n), window);
+            return point(x, y);
+        }
+        int y = m / 2;
+        int x = nearest(a, aLo, n, b[bLo + y], (int) ((long) y * n / m), window);
+        return point(x, y);
+    }
+
+    /**
+     * Finds the index of the line closest to an expected position that equals a value.
+     *
+     * @return the index relative to {@code lo}, or {@code expected} if there is none within
+     *     the window
+     */
+    private static int nearest(int[] lines, int lo, int length, int value, int expected, int window) {
+        for (int step = 0; step <= window; step++) {
+            if (expected + step < length && lines[lo + expected + step] == value) {
+                return expected + step;
+            }
+            if (step > 0 && expected - step >= 0 && lines[lo + expected - step] == value) {
+                return expected - step;
+            }
+            if (expected + step >= length && expected - step < 0) {
+                break;
+            }
+        }
+        return expected;
+    }
+
+    private static long point(int x, int y) {
+        return ((long) x << 32) | y;
+    }
+
+    /**
+     * The forward and backward searches for the middle snake of one region. Each keeps the
+     * furthest x reached on every diagonal k = x - y; the backward search measures from the
+     * bottom-right corner.
+     */
+    private final class Search {
+        private final int aLo;
+        private final int aHi;
+        private final int bLo;
+        private final int bHi;
+        private final int n;
+        private final int m;
+        private final int delta;
+        private final int offset;
+        private final boolean front; // With an odd delta the forward path is the one that reaches the overlap
+        private final int[] forwardX;
+        private final int[] backwardX;
+        private int kStart;
+        private int kEnd;
+        private int rStart;
+        private int rEnd;
+        private long furthestForward;
+        private int furthestForwardDistance;
+        private long furthestBackward;
+        private int furthestBackwardDistance;
+
+        Search(int aLo, int aHi, int bLo, int bHi, int maxD) {
+            this.aLo = aLo;
+            this.aHi = aHi;
+            this.bLo = bLo;
+            this.bHi = bHi;
+            this.n = aHi - aLo;
+            this.m = bHi - bLo;
+            this.delta = n - m;
+            this.offset = maxD + 1;
+            this.front = (delta & 1) != 0;
+            this.forwardX = new int[2 * offset + 1];
+            this.backwardX = new int[2 * offset + 1];
+            Arrays.fill(forwardX, -1);
+            Arrays.fill(backwardX, -1);
+            forwardX[offset + 1] = 0;
+            backwardX[offset + 1] = 0;
+        }
+
+        /**
+         * Extends the forward paths by one edit.
+         *
+         * @return the point where a path overlaps the backward search, or -1
+         */
+        long forward(int d) {
+            for (int k = -d + kStart; k <= d - kEnd; k += 2) {
+                int x = slideForward(start(forwardX, k, d), k);
+                int y = x - k;
+                forwardX[offset + k] = x;
+                if (x > n) {
+                    kEnd += 2; // Ran off the right edge
+                } else if (y > m) {
+                    kStart += 2; // Ran off the bottom edge
+                } else if (front && meetsBackward(k, x)) {
+                    return point(x, y);
+                } else if (x + y > furthestForwardDistance) {
+                    furthestForwardDistance = x + y;
+                    furthestForward = point(x, y);
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Extends the backward paths by one edit.
+         *
+         * @return the point where a path overlaps the forward search, or -1
+         */
+        long backward(int d) {
+            for (int k = -d + rStart; k <= d - rEnd; k += 2) {
+                int x = slideBackward(start(backwardX, k, d), k);
+                int y = x - k;
+                backwardX[offset + k] = x;
+                if (x > n) {
+                    rEnd += 2;
+                } else if (y > m) {
+                    rStart += 2;
+                } else {
+                    long meeting = front ? -1 : meetForward(k, x);
+                    if (meeting >= 0) {
+                        return meeting;
+                    }
+                    if (x + y > furthestBackwardDistance) {
+                        furthestBackwardDistance = x + y;
+                        furthestBackward = point(n - x, m - y);
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the x a path on diagonal k starts from after d edits, by a move down from
+         * diagonal k + 1 or right from diagonal k - 1, whichever got further.
+         */
+        private int start(int[] furthestX, int k, int d) {
+            boolean down = k == -d || (k != d && furthestX[offset + k - 1] < furthestX[offset + k + 1]);
+            return down ? furthestX[offset + k + 1] : furthestX[offset + k - 1] + 1;
+        }
+
+        private int slideForward(int x, int k) {
+            int y = x - k;
+            while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                x++;
+                y++;
+            }
+            return x;
+        }
+
+        private int slideBackward(int x, int k) {
+            int y = x - k;
+            while (x < n && y < m && a[aHi - x - 1] == b[bHi - y - 1]) {
+                x++;
+                y++;
+            }
+            return x;
+        }
+
+        private boolean meetsBackward(int k, int x) {
+            int r = offset + delta - k;
+            return r >= 0 && r < backwardX.length && backwardX[r] != -1 && x >= n - backwardX[r];
+        }
+
+        private long meetForward(int k, int x) {
+            int f = offset + delta - k;
+            if (f < 0 || f >= forwardX.length || forwardX[f] == -1) {
+                return -1;
+            }
+            int fx = forwardX[f];
+            return fx >= n - x ? point(fx, fx - (f - offset)) : -1;
+        }
+
+        /**
+         * Returns the point furthest from the corners that either search reached, for a
+         * region whose edit distance is over the bound. Peeling off what the searches
+         * covered is only worth it if they covered much of the region; otherwise the region
+         * is split through its middle.
+         */
+        long furthest() {
+            int furthest = Math.max(furthestForwardDistance, furthestBackwardDistance);
+            if (furthest >= (n + m) / 4) {
+                return furthestForwardDistance >= furthestBackwardDistance ? furthestForward : furthestBackward;
+            }
+            return midpoint(aLo, n, bLo, m, offset - 1);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.model.FileEntry;
+import com.codetrimmer.model.FileProcessingResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a per-file task on an executor and collects the results in input order.
+ * With fail-fast enabled, the first failure stops files that have not started yet;
+ * files already in flight are allowed to finish and are still reported.
+ * An optional semaphore bounds how many files are processed at once.
+ */
+final class ParallelFileProcessor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelFileProcessor.class);
+
+  /**
+   * Work applied to a single file.
+   */
+  @FunctionalInterface
+  interface FileTask {
+    FileProcessingResult process(FileEntry file) throws Exception;
+  }
+
+  /**
+   * Builds the result reported for a file whose task threw.
+   */
+  @FunctionalInterface
+  interface FailureHandler {
+    FileProcessingResult onFailure(FileEntry file, Exception e);
+  }
+
+  private final boolean failFast;
+  private final Semaphore permits;
+  private final AtomicBoolean aborted = new AtomicBoolean();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger peakInFlight = new AtomicInteger();
+
+  ParallelFileProcessor(boolean failFast) {
+    this(failFast, null);
+  }
+
+  ParallelFileProcessor(boolean failFast, Semaphore permits) {
+    this.failFast = failFast;
+    this.permits = permits;
+  }
+
+  /**
+   * Creates the worker pool used in parallel mode.
+   *
+   * @param threads the number of workers, or 0 for one per processor
+   * @return fixed-size pool of daemon worker threads
+   */
+  static ExecutorService newWorkerPool(int threads) {
+    int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    return Executors.newFixedThreadPool(size, daemonThreads("code-trimmer-worker-"));
+  }
+
+  /**
+   * Creates the executor used in virtual-thread mode, falling back to platform threads
+   * on JVMs without virtual thread support.
+   *
+   * @return executor that starts a thread per task
+   */
+  static ExecutorService newVirtualThreadExecutor() {
+    ExecutorService executor = VirtualThreadExecutors.newVirtualThreadPerTaskExecutor();
+    if (executor != null) {
+      return executor;
+    }
+    LOGGER.warn("Virtual threads are not available on Java {}, using platform threads",
+        Runtime.version().feature());
+    return Executors.newCachedThreadPool(daemonThreads("code-trimmer-io-"));
+  }
+
+  private static ThreadFactory daemonThreads(String namePrefix) {
+    AtomicInteger counter = new AtomicInteger();
+    return task -> {
+      Thread thread = new Thread(task, namePrefix + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Returns the highest number of files that were being processed at the same time.
+   *
+   * @return peak concurrency reached during {@link #run}
+   */
+  int getPeakConcurrency() {
+    return peakInFlight.get();
+  }
+
+  /**
+   * Processes all files on the executor, which is shut down before returning.
+   *
+   * @param executor the executor to run tasks on
+   * @param files the files to process
+   * @param task the per-file work
+   * @param failureHandler builds results for failed files
+   * @return results in the same order as {@code files}, without files skipped by fail-fast
+   */
+  List<FileProcessingResult> run(ExecutorService executor, List<FileEntry> files,
+                                 FileTask task, FailureHandler failureHandler) {
+    try {
+      List<Future<FileProcessingResult>> futures = new ArrayList<>(files.size());
+      for (FileEntry file : files) {
+        futures.add(executor.submit(() -> runTask(file, task, failureHandler)));
+      }
+      return collect(futures);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private FileProcessingResult runTask(FileEntry file, FileTask task, FailureHandler failureHandler) {
+    if (aborted.get() || !acquire()) {
+      return null;
+    }
+    peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    try {
+      return task.process(file);
+    } catch (Exception e) {
+      if (failFast) {
+        aborted.set(true);
+      }
+      return failureHandler.onFailure(file, e);
+    } finally {
+      inFlight.decrementAndGet();
+      if (permits != null) {
+        permits.release();
+      }
+    }
+  }
+
+  private boolean acquire() {
+    if (permits == null) {
+      return true;
+    }
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    // Fail-fast may have triggered while this task was waiting for a permit
+    if (aborted.get()) {
+      permits.release();
+      return false;
+    }
+    return true;
+  }
+
+  private List<FileProcessingResult> collect(List<Future<FileProcessingResult>> futures) {
+    List<FileProcessingResult> results = new ArrayList<>(futures.size());
+    for (Future<FileProcessingResult> future : futures) {
+      try {
+        FileProcessingResult result = future.get();
+        if (result != null) {
+          results.add(result);
+        }
+      } catch (InterruptedException e) {
+        aborted.set(true);
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof Error error) {
+          throw error;
+        }
+        throw new IllegalStateException("File task failed", e.getCause());
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,158 @@
+package com.codetrimmer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Bounded pool of worker threads that restores files from their backups for
+ * {@link UndoService}.
+ */
+final class RestorePool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RestorePool.class);
+
+    private final int threads;
+
+    /**
+     * Creates a pool restoring up to a given number of files at once.
+     *
+     * @param threads size of the restore worker pool
+     */
+    RestorePool(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Restores files on the worker pool and records the outcome of each in the result, in the
+     * order given.
+     *
+     * @param backups the backups to restore
+     * @param originalPath gives the path of the file a backup restores
+     * @param task restores one file, returning why it was skipped or null if it was restored
+     * @param result the result to record outcomes in
+     * @return the backups that were restored
+     */
+    <T> List<T> restoreAll(List<T> backups, Function<T, String> originalPath, Task<T> task,
+                           UndoService.RestoreResult result) {
+        result.setTotalFound(backups.size());
+        List<T> restored = new ArrayList<>();
+        if (backups.isEmpty()) {
+            return restored;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, backups.size()),
+            restoreThreads());
+        try {
+            List<Future<String>> futures = new ArrayList<>(backups.size());
+            for (T backup : backups) {
+                futures.add(executor.submit(() -> task.restore(backup)));
+            }
+            for (int i = 0; i < backups.size(); i++) {
+                T backup = backups.get(i);
+                String path = originalPath.apply(backup);
+                try {
+                    String problem = futures.get(i).get();
+                    if (problem == null) {
+                        restored.add(backup);
+                        result.addRestored(path);
+                        LOGGER.info("Restored: {}", path);
+                    } else {
+                        result.addFailed(path, problem);
+                        LOGGER.warn("Not restoring {}: {}", path, problem);
+                    }
+                } catch (ExecutionException e) {
+                    result.addFailed(path, e.getCause().getMessage());
+                    LOGGER.error("Failed to restore: {}", path, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.get(i).cancel(true);
+                    result.addFailed(path, "Interrupted");
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return restored;
+    }
+
+    private ThreadFactory restoreThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "code-trimmer-restore-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Puts a backup back in place of its original. On the same file system this is a rename,
+     * so no content is copied and a hard-linked backup becomes the original file again;
+     * across file systems the backup is copied and then deleted. As when trimming, a symbolic
+     * link is kept and the file it points to is restored, and an original with other hard
+     * links gets the backup's content written into it.
+     *
+     * @param backup the backup, which no longer exists afterwards
+     * @param original the file to restore
+     */
+    static void moveBack(Path backup, Path original) throws IOException {
+        Path file = realFile(original);
+        if (hasOtherLinks(file)) {
+            FileReplacer.writeInPlace(backup, file);
+            Files.delete(backup);
+            return;
+        }
+        try {
+            Files.move(backup, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.copy(backup, file, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(backup);
+        }
+    }
+
+    /**
+     * Copies a backup that is still needed back in place of its original, keeping symbolic
+     * and hard links to the original as {@link #moveBack(Path, Path)} does.
+     *
+     * @param backup the backup, which is left in place
+     * @param original the file to restore
+     */
+    static void copyBack(Path backup, Path original) throws IOException {
+        Path file = realFile(original);
+        if (hasOtherLinks(file)) {
+            FileReplacer.writeInPlace(backup, file);
+        } else {
+            Files.copy(backup, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path realFile(Path original) throws IOException {
+        return Files.exists(original) ? original.toRealPath() : original;
+    }
+
+    private static boolean hasOtherLinks(Path file) throws IOException {
+        return Files.exists(file) && !FileReplacer.isSingleLink(file);
+    }
+
+    /**
+     * Restores the file of one backup.
+     */
+    @FunctionalInterface
+    interface Task<T> {
+        String restore(T backup) throws IOException;
+    }
+}
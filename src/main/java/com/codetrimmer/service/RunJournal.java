@@ -0,0 +1,294 @@
+package com.codetrimmer.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Append-only record of the files a trim run modified, so that undo reads the files of one
+ * run instead of searching the tree for backups.
+ *
+ * <p>Each run that modifies files gets a journal in {@code .codetrimmer/runs} under the
+ * processed directory, named by its run ID. Every replaced file adds one JSON line holding its
+ * path, its backup and the SHA-256 of its content before and after the run, written as soon
+ * as the file is replaced, so an interrupted run still has a journal of what it changed.
+ * Restoring a file appends a line marking it restored rather than rewriting the journal, and
+ * the journal is deleted once all of its files are restored.
+ */
+final class RunJournal implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RunJournal.class);
+  private static final String RUNS_DIRECTORY = "runs";
+  private static final String JOURNAL_EXTENSION = ".jsonl";
+  private static final String MODIFIED = "modified";
+  private static final String RESTORED = "restored";
+  private static final DateTimeFormatter RUN_ID_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+      .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  private final Path root;
+  private String runId;
+  private BufferedWriter writer; // Opened with the first entry, so runs that change nothing leave no journal
+
+  private RunJournal(Path root) {
+    this.root = root.toAbsolutePath().normalize();
+    this.runId = RUN_ID_FORMAT.format(Instant.now());
+  }
+
+  /**
+   * Starts the journal of one run.
+   *
+   * @param root the processed directory, which holds the journal
+   * @return the journal for this run
+   */
+  static RunJournal create(Path root) {
+    return new RunJournal(root);
+  }
+
+  /**
+   * Returns the ID of this run, which names its journal.
+   */
+  String getRunId() {
+    return runId;
+  }
+
+  /**
+   * Records a file the run replaced, flushing the entry to the journal.
+   *
+   * @param file the replaced file
+   * @param backup the backup holding its previous content
+   * @param before the SHA-256 of the previous content
+   * @param after the SHA-256 of the content written by the run
+   */
+  synchronized void recordModified(Path file, Path backup, String before, String after) throws IOException {
+    if (writer == null) {
+      writer = open();
+    }
+    append(writer, new Line(MODIFIED, key(root, file), key(root, backup), before, after));
+    writer.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+  }
+
+  /**
+   * Creates the journal file, moving to the next free run ID if another run started in the
+   * same millisecond.
+   */
+  private BufferedWriter open() throws IOException {
+    Path runs = runsDirectory(root);
+    Files.createDirectories(runs);
+    String baseId = runId;
+    for (int i = 2; ; i++) {
+      try {
+        return Files.newBufferedWriter(runs.resolve(runId + JOURNAL_EXTENSION), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      } catch (FileAlreadyExistsException e) {
+        runId = baseId + "_" + i; // Sorts after the base ID, keeping run order
+      }
+    }
+  }
+
+  /**
+   * Finds the journals covering a directory: the closest directory at or above it that holds
+   * run journals.
+   *
+   * @param directory the directory to restore or list
+   * @return the directory holding the journals, or null if there is none
+   */
+  static Path find(Path directory) {
+    for (Path dir = directory.toAbsolutePath().normalize(); dir != null; dir = dir.getParent()) {
+      if (Files.isDirectory(runsDirectory(dir))) {
+        return dir;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the IDs of the runs that still have files to restore, oldest first.
+   *
+   * @param root the directory holding the journals
+   * @return the run IDs
+   */
+  static List<String> runIds(Path root) throws IOException {
+    Path runs = runsDirectory(root);
+    if (!Files.isDirectory(runs)) {
+      return List.of();
+    }
+    try (Stream<Path> stream = Files.list(runs)) {
+      // Run IDs sort in the order the runs started
+      return stream.map(path -> path.getFileName().toString())
+          .filter(name -> name.endsWith(JOURNAL_EXTENSION))
+          .map(name -> name.substring(0, name.length() - JOURNAL_EXTENSION.length()))
+          .sorted()
+          .toList();
+    }
+  }
+
+  /**
+   * Reads the files of one run that have not been restored.
+   *
+   * @param root the directory holding the journals
+   * @param runId the run
+   * @return the entries in the order the files were replaced, or null if the run has no journal
+   */
+  static List<Entry> read(Path root, String runId) throws IOException {
+    Path journal = runsDirectory(root).resolve(runId + JOURNAL_EXTENSION);
+    if (!Files.isRegularFile(journal)) {
+      return null;
+    }
+    Path base = root.toAbsolutePath().normalize();
+    Map<String, Entry> entries = new LinkedHashMap<>();
+    for (String text : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+      Line line;
+      try {
+        line = MAPPER.readValue(text, Line.class);
+      } catch (JsonProcessingException e) {
+        // The last line of a run that was killed mid-write
+        LOGGER.warn("Skipping unreadable line in run journal: " + journal);
+        continue;
+      }
+      if (RESTORED.equals(line.op())) {
+        entries.remove(line.path());
+      } else if (MODIFIED.equals(line.op())) {
+        entries.put(line.path(), new Entry(runId, base.resolve(line.path()), base.resolve(line.backup()),
+            line.before(), line.after()));
+      }
+    }
+    return new ArrayList<>(entries.values());
+  }
+
+  /**
+   * Reads the files of all runs that have not been restored.
+   *
+   * @param root the directory holding the journals
+   * @return the entries, oldest run first
+   */
+  static List<Entry> readAll(Path root) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    for (String runId : runIds(root)) {
+      List<Entry> run = read(root, runId);
+      if (run != null) {
+        entries.addAll(run);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Counts the entries of all runs, not yet restored, whose backup is one of the given ones.
+   *
+   * @param root the directory holding the journals
+   * @param backups the backups to count references to
+   * @return the number of entries referring to each backup that has any
+   */
+  static Map<Path, Integer> countReferences(Path root, Set<Path> backups) throws IOException {
+    Map<Path, Integer> references = new HashMap<>();
+    if (backups.isEmpty()) {
+      return references;
+    }
+    for (Entry entry : readAll(root)) {
+      if (backups.contains(entry.backup())) {
+        references.merge(entry.backup(), 1, Integer::sum);
+      }
+    }
+    return references;
+  }
+
+  /**
+   * Marks files as restored in the journals of their runs, deleting journals with nothing
+   * left to restore.
+   *
+   * @param root the directory holding the journals
+   * @param restored the restored entries
+   */
+  static void markRestored(Path root, Collection<Entry> restored) throws IOException {
+    Path base = root.toAbsolutePath().normalize();
+    Map<String, List<Entry>> byRun = new LinkedHashMap<>();
+    for (Entry entry : restored) {
+      byRun.computeIfAbsent(entry.runId(), runId -> new ArrayList<>()).add(entry);
+    }
+    for (Map.Entry<String, List<Entry>> run : byRun.entrySet()) {
+      Path journal = runsDirectory(base).resolve(run.getKey() + JOURNAL_EXTENSION);
+      try (BufferedWriter writer = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+          StandardOpenOption.APPEND)) {
+        for (Entry entry : run.getValue()) {
+          append(writer, new Line(RESTORED, key(base, entry.file()), null, null, null));
+        }
+      }
+      List<Entry> remaining = read(base, run.getKey());
+      if (remaining != null && remaining.isEmpty()) {
+        Files.delete(journal);
+      }
+    }
+  }
+
+  private static void append(BufferedWriter writer, Line line) throws IOException {
+    writer.write(MAPPER.writeValueAsString(line));
+    writer.newLine();
+  }
+
+  private static Path runsDirectory(Path root) {
+    return root.resolve(FileIndex.STATE_DIRECTORY).resolve(RUNS_DIRECTORY);
+  }
+
+  private static String key(Path root, Path file) {
+    return root.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
+  }
+
+  /**
+   * One line of a journal.
+   *
+   * @param op {@code modified} or {@code restored}
+   * @param path the file, relative to the journal's directory
+   * @param backup the backup, relative to the journal's directory; modified lines only
+   * @param before the SHA-256 of the content before the run; modified lines only
+   * @param after the SHA-256 of the content written by the run; modified lines only
+   */
+  record Line(String op, String path, String backup, String before, String after) {
+  }
+
+  /**
+   * A file modified by a run and not yet restored.
+   *
+   * @param runId the run that modified the file
+   * @param file the file
+   * @param backup the backup holding its content before the run
+   * @param before the SHA-256 of the content before the run
+   * @param after the SHA-256 of the content written by the run
+   */
+  record Entry(String runId, Path file, Path backup, String before, String after) {
+  }
+}
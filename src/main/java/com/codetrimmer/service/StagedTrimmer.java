@@ -0,0 +1,159 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.error.ErrorCode;
+import com.codetrimmer.model.BinaryFileDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Service for trimming the content staged in the Git index rather than the working tree.
+ *
+ * <p>Staged blobs are read, checked and trimmed in memory, so a partially staged file is
+ * judged by what will be committed, and fixed blobs are written back to the index in one
+ * batch. A working tree file is only rewritten when it still holds exactly the staged
+ * content; otherwise it has unstaged edits, which are left alone.
+ */
+@Service
+public class StagedTrimmer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StagedTrimmer.class);
+
+  private final CodeTrimmerConfig config;
+  private final FileDiscovery discovery;
+
+  public StagedTrimmer(CodeTrimmerConfig config) {
+    this.config = config;
+    this.discovery = new FileDiscovery(config);
+  }
+
+  /**
+   * Checks the staged content of the repository containing a directory.
+   *
+   * @param directory a directory inside the work tree
+   * @param write whether to write trimmed content back to the index
+   * @return the staged files that need trimming, which have been trimmed when {@code write}
+   *     is set, and the files that could not be handled; paths are relative to the top level
+   */
+  public FileChecker.CheckReport trimStaged(String directory, boolean write) {
+    try (GitIndex index = GitIndex.open(Paths.get(directory))) {
+      Pass pass = new Pass(index);
+      index.readBlobs(select(index.stagedFiles(), pass.report), pass::visit);
+      if (write && !pass.fixed.isEmpty()) {
+        pass.writeBack();
+      }
+      return pass.report;
+    } catch (IOException e) {
+      throw new CodeTrimmerException(ErrorCode.CT_0051, "Cannot read the Git index: " + e.getMessage(),
+          "Run this command inside a Git work tree with git on the PATH");
+    }
+  }
+
+  /**
+   * Applies the file filters to the staged paths.
+   */
+  private List<GitIndex.StagedFile> select(List<GitIndex.StagedFile> staged, FileChecker.CheckReport report) {
+    Predicate<Path> filter = discovery.pathFilter();
+    List<GitIndex.StagedFile> selected = new ArrayList<>();
+    for (GitIndex.StagedFile file : staged) {
+      try {
+        if (filter.test(Paths.get(file.path()))) {
+          selected.add(file);
+        }
+      } catch (InvalidPathException e) {
+        report.addFailure(file.path(), "Path cannot be represented on this platform");
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * State of one run over the staged files.
+   */
+  private final class Pass {
+    private final GitIndex index;
+    private final FileChecker.CheckReport report = new FileChecker.CheckReport();
+    private final List<GitIndex.StagedFile> fixed = new ArrayList<>();
+    private final List<byte[]> original = new ArrayList<>();
+    private final List<byte[]> trimmed = new ArrayList<>();
+
+    Pass(GitIndex index) {
+      this.index = index;
+    }
+
+    void visit(GitIndex.StagedFile file, byte[] content) {
+      if (BinaryFileDetector.isBinary(content)) {
+        return;
+      }
+      report.incrementFilesChecked();
+      if (!ByteTrimmer.isValidUtf8(content)) {
+        report.addFailure(file.path(), "Not valid UTF-8");
+        return;
+      }
+      ByteTrimmer trimmer = new ByteTrimmer(content, config);
+      FileTrimmer.CheckResult result = trimmer.check();
+      if (result.needsTrimming()) {
+        report.addFinding(file.path(), result.getViolation(), result.getFirstLine());
+        fixed.add(file);
+        original.add(content);
+        trimmed.add(trimmer.trim().getContent());
+      }
+    }
+
+    /**
+     * Stores the trimmed blobs, points the index at them and updates working tree files
+     * that hold the staged content.
+     */
+    void writeBack() {
+      try {
+        List<String> ids = index.writeBlobs(trimmed);
+        List<GitIndex.StagedFile> entries = new ArrayList<>();
+        for (int i = 0; i < fixed.size(); i++) {
+          entries.add(fixed.get(i).withObjectId(ids.get(i)));
+        }
+        index.updateIndex(entries);
+      } catch (IOException e) {
+        throw new CodeTrimmerException(ErrorCode.CT_0012, "Cannot update the Git index: " + e.getMessage(),
+            "Check that no other git process holds the index lock");
+      }
+      for (int i = 0; i < fixed.size(); i++) {
+        updateWorkingTree(index.getTopLevel().resolve(fixed.get(i).path()), original.get(i), trimmed.get(i));
+      }
+    }
+
+    /**
+     * Replaces a working tree file that holds the staged content with the trimmed content,
+     * through a temp file as a directory run does, so a failed write leaves the file intact.
+     */
+    private void updateWorkingTree(Path file, byte[] staged, byte[] content) {
+      try {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)
+            || !Arrays.equals(Files.readAllBytes(file), staged)) {
+          return;
+        }
+        Path temp = FileReplacer.newTempFile(file);
+        try {
+          Files.write(temp, content);
+          FileReplacer.replaceFile(temp, file, !FileReplacer.isSingleLink(file));
+        } finally {
+          Files.deleteIfExists(temp);
+        }
+      } catch (IOException e) {
+        LOGGER.warn("Staged content trimmed but working tree file not updated: " + file, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,403 @@
+package com.codetrimmer.service;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * Applies the same rules as {@link FileTrimmer} to a UTF-8 file through a fixed-size buffer,
+ * so memory use does not depend on the file size.
+ *
+ * <p>Bytes are echoed to the output as they are read. Trailing whitespace and blank lines
+ * cannot be judged until their line ends, so instead of holding them back the output keeps
+ * their start offset and is cut back to it when they turn out to be removable. Output stays
+ * virtual until the first change: a clean file is read once and nothing is written, and a
+ * changed file gets a temp file next to it that starts as a copy of the unchanged prefix.
+ *
+ * <p>The rules only involve ASCII bytes and the UTF-8 encodings of NEL, LINE SEPARATOR and
+ * PARAGRAPH SEPARATOR, so the bytes are never decoded to characters; they are still run
+ * through a strict decoder so that malformed input fails the same way it does when the file
+ * is loaded into memory.
+ */
+final class StreamingTrimmer {
+
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private final CodeTrimmerConfig config;
+  private final int bufferSize;
+
+  StreamingTrimmer(CodeTrimmerConfig config) {
+    this(config, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a trimmer with a given buffer size, which bounds its memory use.
+   *
+   * @param config the trimming settings
+   * @param bufferSize size of the read and write buffers in bytes
+   */
+  StreamingTrimmer(CodeTrimmerConfig config, int bufferSize) {
+    this.config = config;
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Trims a file read from a channel.
+   *
+   * @param input the file, positioned after {@code prefix}
+   * @param prefix bytes already read from the start of the file
+   * @param target the file being trimmed, next to which the temp file is created,
+   *               or null to only count what would change
+   * @param digest optional digest updated with the original content, or null
+   * @return the trim result, holding the temp file with the trimmed content if it changed
+   * @throws IOException if reading or writing fails, or the content is not valid UTF-8
+   */
+  Result trim(FileChannel input, byte[] prefix, Path target, MessageDigest digest) throws IOException {
+    Output out = new Output(input, target, bufferSize);
+    try {
+      Pass pass = new Pass(out);
+      CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+      CharBuffer scratch = CharBuffer.allocate(bufferSize + 1); // Room for a surrogate pair
+      ByteBuffer buffer = ByteBuffer.allocate(Math.max(bufferSize, prefix.length + 4));
+      buffer.put(prefix);
+      int unseen = 0;
+      boolean endOfInput = false;
+      while (!endOfInput) {
+        endOfInput = input.read(buffer) < 0;
+        buffer.flip();
+        byte[] bytes = buffer.array();
+        for (int i = unseen; i < buffer.limit(); i++) {
+          pass.accept(bytes[i]);
+        }
+        if (digest != null) {
+          digest.update(bytes, unseen, buffer.limit() - unseen);
+        }
+        validate(decoder, buffer, scratch, endOfInput);
+        buffer.compact();
+        unseen = buffer.position(); // An incomplete sequence is carried over, already trimmed
+      }
+      pass.finish();
+      out.close();
+      boolean changed = pass.changed();
+      if (!changed) {
+        out.discard();
+      }
+      return new Result(changed ? out.tempFile : null, pass.linesTrimmed, pass.blankLinesRemoved, changed);
+    } catch (IOException | RuntimeException e) {
+      out.discard();
+      throw e;
+    }
+  }
+
+  /**
+   * Feeds bytes through a strict UTF-8 decoder, throwing on malformed input.
+   */
+  private void validate(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer scratch, boolean endOfInput)
+      throws IOException {
+    CoderResult result;
+    do {
+      scratch.clear();
+      result = decoder.decode(bytes, scratch, endOfInput);
+    } while (result.isOverflow());
+    if (endOfInput && !result.isError()) {
+      scratch.clear();
+      result = decoder.flush(scratch);
+    }
+    if (result.isError()) {
+      result.throwException();
+    }
+  }
+
+  /**
+   * State of a single trimming pass, fed one byte at a time.
+   */
+  private final class Pass {
+    private final LineRules rules = new LineRules(config);
+    private final Output out;
+    private int linesTrimmed;
+    private int blankLinesRemoved;
+    private long inputLength;
+    private boolean newlinesOnly = true;
+
+    // Output offsets within the current line
+    private long lineStart;
+    private long whitespaceStart = -1;
+    private long whitespaceBeforeLastChar = -1;
+    private long contentEnd;
+    private boolean blank = true;
+    private int recent;
+
+    Pass(Output out) {
+      this.out = out;
+    }
+
+    void accept(byte b) throws IOException {
+      inputLength++;
+      newlinesOnly &= b == '\n';
+      if (b == '\n') {
+        endLine(true);
+        return;
+      }
+      long offset = out.position();
+      out.echo(b);
+      if (FileTrimmer.isWhitespace((char) b)) {
+        if (whitespaceStart < 0) {
+          whitespaceStart = offset;
+        }
+      } else if ((b & 0xC0) != 0x80) {
+        // First byte of a character that is not whitespace
+        whitespaceBeforeLastChar = whitespaceStart;
+        whitespaceStart = -1;
+      }
+      blank &= (b & 0xFF) <= ' ';
+      recent = (recent << 8 | (b & 0xFF)) & 0xFFFFFF;
+    }
+
+    /**
+     * Applies the line rules once a line is complete, mirroring {@code FileTrimmer}.
+     */
+    private void endLine(boolean newline) throws IOException {
+      int terminator = unicodeTerminatorLength();
+      long trimFrom = terminator > 0 ? whitespaceBeforeLastChar : whitespaceStart;
+      boolean trimmed = rules.isTrimLines() && trimFrom >= 0;
+      if (trimmed) {
+        linesTrimmed++;
+      }
+
+      if (dropsBlankLine(newline)) {
+        startLine();
+        return;
+      }
+
+      if (trimmed) {
+        out.truncate(trimFrom);
+        for (int shift = 8 * (terminator - 1); shift >= 0; shift -= 8) {
+          out.echo((byte) (recent >>> shift));
+        }
+      }
+      if (out.position() > lineStart) {
+        contentEnd = out.position();
+      }
+      if (newline) {
+        out.echo((byte) '\n');
+      }
+      startLine();
+    }
+
+    /**
+     * Counts a blank line and removes it if it exceeds the allowed run.
+     *
+     * @return true if the line was removed
+     */
+    private boolean dropsBlankLine(boolean newline) throws IOException {
+      if (!rules.countBlank(blank)) {
+        return false;
+      }
+      blankLinesRemoved++;
+      out.truncate(lineStart);
+      if (newline) {
+        out.skip();
+      }
+      return true;
+    }
+
+    /**
+     * Returns the encoded length of the NEL, LINE SEPARATOR or PARAGRAPH SEPARATOR that ends
+     * the line, or 0 if the line does not end with one.
+     */
+    private int unicodeTerminatorLength() {
+      if ((recent & 0xFFFF) == 0xC285) {
+        return 2;
+      }
+      return recent == 0xE280A8 || recent == 0xE280A9 ? 3 : 0;
+    }
+
+    private void startLine() {
+      lineStart = out.position();
+      whitespaceStart = -1;
+      whitespaceBeforeLastChar = -1;
+      blank = true;
+      recent = 0;
+    }
+
+    /**
+     * Tells whether the output differs from the input. A lone newline is dropped as a blank
+     * line and then restored as the final newline, which rewrites the output but not the content.
+     */
+    boolean changed() {
+      return out.materialized && !(inputLength == 1 && newlinesOnly && out.position() == 1);
+    }
+
+    void finish() throws IOException {
+      endLine(false);
+      if (!config.isEnsureFinalNewline() || out.position() == contentEnd + 1) {
+        return;
+      }
+      if (out.position() > contentEnd) {
+        out.truncate(contentEnd);
+      }
+      out.append((byte) '\n');
+    }
+  }
+
+  /**
+   * Output that mirrors the input until the first change, then writes to a temp file.
+   */
+  private static final class Output {
+    private final FileChannel input;
+    private final Path target;
+    private final int bufferSize;
+    private Path tempFile;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long position;
+    private long flushed;
+    private boolean materialized;
+
+    Output(FileChannel input, Path target, int bufferSize) {
+      this.input = input;
+      this.target = target;
+      this.bufferSize = bufferSize;
+    }
+
+    long position() {
+      return position;
+    }
+
+    /**
+     * Writes a byte that is either the input byte at this offset or follows a truncation.
+     */
+    void echo(byte b) throws IOException {
+      if (materialized && channel != null) {
+        if (!buffer.hasRemaining()) {
+          flush();
+        }
+        buffer.put(b);
+      }
+      position++;
+    }
+
+    /**
+     * Writes a byte that the input does not have at this offset.
+     */
+    void append(byte b) throws IOException {
+      materialize(position);
+      echo(b);
+    }
+
+    /**
+     * Leaves out an input byte at this offset.
+     */
+    void skip() throws IOException {
+      materialize(position);
+    }
+
+    /**
+     * Cuts the output back to an earlier offset.
+     */
+    void truncate(long offset) throws IOException {
+      if (offset == position) {
+        return;
+      }
+      if (!materialized) {
+        materialize(offset);
+      } else if (channel != null && offset >= flushed) {
+        buffer.position((int) (offset - flushed));
+      } else if (channel != null) {
+        buffer.clear();
+        channel.truncate(offset);
+        flushed = offset;
+      }
+      position = offset;
+    }
+
+    /**
+     * Starts real output, copying the unchanged prefix of the input.
+     */
+    private void materialize(long length) throws IOException {
+      if (materialized) {
+        return;
+      }
+      materialized = true;
+      if (target == null) {
+        return;
+      }
+      tempFile = FileReplacer.newTempFile(target);
+      channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+      buffer = ByteBuffer.allocate(bufferSize);
+      long copied = 0;
+      while (copied < length) {
+        copied += input.transferTo(copied, length - copied, channel);
+      }
+      flushed = length;
+      position = length;
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        flushed += channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    void close() throws IOException {
+      if (channel != null) {
+        flush();
+        channel.close();
+      }
+    }
+
+    void discard() throws IOException {
+      if (channel != null) {
+        channel.close();
+      }
+      if (tempFile != null) {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+  }
+
+  /**
+   * Result of a streaming trim.
+   */
+  static final class Result {
+    private final Path tempFile;
+    private final int linesTrimmed;
+    private final int blankLinesRemoved;
+    private final boolean changed;
+
+    Result(Path tempFile, int linesTrimmed, int blankLinesRemoved, boolean changed) {
+      this.tempFile = tempFile;
+      this.linesTrimmed = linesTrimmed;
+      this.blankLinesRemoved = blankLinesRemoved;
+      this.changed = changed;
+    }
+
+    Path getTempFile() {
+      return tempFile;
+    }
+
+    int getLinesTrimmed() {
+      return linesTrimmed;
+    }
+
+    int getBlankLinesRemoved() {
+      return blankLinesRemoved;
+    }
+
+    boolean isChanged() {
+      return changed;
+    }
+  }
+}
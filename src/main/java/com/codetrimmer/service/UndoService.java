@@ -10,15 +10,20 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 /**
  * Service for restoring files from backups.
- * Supports undo operations using .bak files.
+ * Supports undo operations using the run journals under {@code .codetrimmer}, which list
+ * the files each run modified and where their backups are, when the directory or one of its
+ * parents has them, and otherwise by searching for .bak files.
+ * Files are restored on a bounded pool of worker threads, and a backup that is not needed
+ * again is renamed back over its original rather than copied.
  */
 @Service
 public class UndoService {
@@ -26,6 +31,21 @@ public class UndoService {
     private static final Logger LOGGER = LoggerFactory.getLogger(UndoService.class);
     private static final String BACKUP_EXTENSION = ".bak";
 
+    private final RestorePool pool;
+
+    public UndoService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a service restoring up to a given number of files at once.
+     *
+     * @param threads size of the restore worker pool
+     */
+    public UndoService(int threads) {
+        this.pool = new RestorePool(threads);
+    }
+
     /**
      * Restores a single file from its backup.
      *
@@ -45,8 +65,7 @@ public class UndoService {
         }
 
         try {
-            Files.copy(backup, original, StandardCopyOption.REPLACE_EXISTING);
-            Files.delete(backup);
+            RestorePool.moveBack(backup, original);
             LOGGER.info("Restored: {} from backup", original);
             return true;
         } catch (IOException e) {
@@ -78,6 +97,72 @@ public class UndoService {
      * @return result of the restore operation
      */
     public RestoreResult restoreDirectory(String directory, boolean recursive, String pattern) {
+        Path dirPath = requireDirectory(directory);
+        Pattern filePattern = pattern != null ? Pattern.compile(pattern) : null;
+
+        Path journalRoot = RunJournal.find(dirPath);
+        if (journalRoot != null) {
+            List<RunJournal.Entry> journaled = findJournaledBackups(journalRoot, dirPath, recursive, filePattern);
+            if (!journaled.isEmpty()) {
+                return new JournalRestorer(journalRoot, pool).restore(latestPerFile(journaled), journaled, false);
+            }
+        }
+        RestoreResult result = new RestoreResult();
+
+        try {
+            List<Path> backupFiles = findBackupFiles(dirPath, recursive, filePattern);
+            pool.restoreAll(backupFiles, this::originalOf, backup -> {
+                RestorePool.moveBack(backup, Paths.get(originalOf(backup)));
+                return null;
+            }, result);
+        } catch (IOException e) {
+            throw new CodeTrimmerException(ErrorCode.CT_0014, e);
+        }
+
+        return result;
+    }
+
+    private String originalOf(Path backup) {
+        String path = backup.toString();
+        return path.substring(0, path.length() - BACKUP_EXTENSION.length());
+    }
+
+    /**
+     * Restores the files modified by one trim run, reading only that run's journal. A file is
+     * only restored if it still holds the content the run wrote and its backup still holds
+     * the content the run replaced, so undoing an older run never discards later changes.
+     *
+     * @param directory the directory the run processed, or one below it
+     * @param runId the run to undo, as listed by {@link #listRuns(String)}
+     * @return result of the restore operation
+     */
+    public RestoreResult restoreRun(String directory, String runId) {
+        Path dirPath = requireDirectory(directory);
+        Path journalRoot = RunJournal.find(dirPath);
+        List<RunJournal.Entry> entries;
+        try {
+            entries = journalRoot != null ? RunJournal.read(journalRoot, runId) : null;
+        } catch (IOException e) {
+            throw new CodeTrimmerException(ErrorCode.CT_0043, "Cannot read journal of run " + runId + ": "
+                + e.getMessage(), "Check that .codetrimmer/runs is readable");
+        }
+        if (entries == null) {
+            throw new CodeTrimmerException(
+                ErrorCode.CT_0042,
+                "No journal for run: " + runId,
+                "Use list-runs to see the runs that can be undone"
+            );
+        }
+        return new JournalRestorer(journalRoot, pool).restore(entries, entries, true);
+    }
+
+    /**
+     * Checks that a path names an existing directory.
+     *
+     * @param directory the directory path
+     * @return the directory
+     */
+    private Path requireDirectory(String directory) {
         Path dirPath = Paths.get(directory);
 
         if (!Files.exists(dirPath)) {
@@ -95,35 +180,48 @@ public class UndoService {
                 "Specify a directory path"
             );
         }
+        return dirPath;
+    }
 
-        Pattern filePattern = pattern != null ? Pattern.compile(pattern) : null;
-        RestoreResult result = new RestoreResult();
-
+    /**
+     * Finds the journaled backups of the files in a directory.
+     *
+     * @param journalRoot the directory holding the journals
+     * @param directory the directory to search
+     * @param recursive if true, include files in subdirectories
+     * @param pattern optional file name pattern
+     * @return the backups, oldest run first
+     */
+    private List<RunJournal.Entry> findJournaledBackups(Path journalRoot, Path directory, boolean recursive,
+                                                        Pattern pattern) {
+        Path base = directory.toAbsolutePath().normalize();
         try {
-            List<Path> backupFiles = findBackupFiles(dirPath, recursive, filePattern);
-            result.setTotalFound(backupFiles.size());
-
-            for (Path backup : backupFiles) {
-                String originalPath = backup.toString();
-                originalPath = originalPath.substring(0, originalPath.length() - BACKUP_EXTENSION.length());
-
-                try {
-                    Path original = Paths.get(originalPath);
-                    Files.copy(backup, original, StandardCopyOption.REPLACE_EXISTING);
-                    Files.delete(backup);
-                    result.addRestored(originalPath);
-                    LOGGER.info("Restored: {}", original);
-                } catch (IOException e) {
-                    result.addFailed(originalPath, e.getMessage());
-                    LOGGER.error("Failed to restore: {}", originalPath, e);
-                }
-            }
-
+            return RunJournal.readAll(journalRoot).stream()
+                .filter(entry -> {
+                    Path parent = entry.file().getParent();
+                    return recursive ? parent.startsWith(base) : parent.equals(base);
+                })
+                .filter(entry -> pattern == null
+                    || pattern.matcher(entry.file().getFileName().toString()).matches())
+                .toList();
         } catch (IOException e) {
-            throw new CodeTrimmerException(ErrorCode.CT_0014, e);
+            throw new CodeTrimmerException(ErrorCode.CT_0043, "Cannot read run journals: " + e.getMessage(),
+                "Check that .codetrimmer/runs is readable");
         }
+    }
 
-        return result;
+    /**
+     * Picks the most recent backup of each file.
+     *
+     * @param entries journaled backups, oldest run first
+     * @return one backup per file, ordered by path
+     */
+    private List<RunJournal.Entry> latestPerFile(List<RunJournal.Entry> entries) {
+        Map<Path, RunJournal.Entry> latest = new TreeMap<>();
+        for (RunJournal.Entry entry : entries) {
+            latest.put(entry.file(), entry);
+        }
+        return new ArrayList<>(latest.values());
     }
 
     /**
@@ -172,7 +270,8 @@ public class UndoService {
      *
      * @param directory the directory to search
      * @param recursive if true, search subdirectories
-     * @return list of backup file paths
+     * @return list of backup file paths, or of the files with journaled backups when the
+     *     directory is covered by run journals
      */
     public List<String> listBackups(String directory, boolean recursive) {
         Path dirPath = Paths.get(directory);
@@ -182,6 +281,16 @@ public class UndoService {
         }
 
         try {
+            Path journalRoot = RunJournal.find(dirPath);
+            List<RunJournal.Entry> journaled = journalRoot != null
+                ? findJournaledBackups(journalRoot, dirPath, recursive, null)
+                : List.of();
+            if (!journaled.isEmpty()) {
+                return latestPerFile(journaled)
+                    .stream()
+                    .map(entry -> entry.file().toString())
+                    .toList();
+            }
             return findBackupFiles(dirPath, recursive, null)
                 .stream()
                 .map(Path::toString)
@@ -192,6 +301,33 @@ public class UndoService {
         }
     }
 
+    /**
+     * Lists the trim runs that can be undone, from the run journals covering a directory.
+     *
+     * @param directory the directory the runs processed, or one below it
+     * @return the runs, oldest first
+     */
+    public List<RunSummary> listRuns(String directory) {
+        Path dirPath = Paths.get(directory);
+        Path journalRoot = Files.isDirectory(dirPath) ? RunJournal.find(dirPath) : null;
+        if (journalRoot == null) {
+            return new ArrayList<>();
+        }
+
+        List<RunSummary> runs = new ArrayList<>();
+        try {
+            for (String runId : RunJournal.runIds(journalRoot)) {
+                List<RunJournal.Entry> entries = RunJournal.read(journalRoot, runId);
+                if (entries != null && !entries.isEmpty()) {
+                    runs.add(new RunSummary(runId, entries.size()));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error listing runs", e);
+        }
+        return runs;
+    }
+
     /**
      * Result of a restore operation.
      */
@@ -256,6 +392,27 @@ public class UndoService {
         }
     }
 
+    /**
+     * A trim run with files left to restore.
+     */
+    public static class RunSummary {
+        private final String runId;
+        private final int fileCount;
+
+        public RunSummary(String runId, int fileCount) {
+            this.runId = runId;
+            this.fileCount = fileCount;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        public int getFileCount() {
+            return fileCount;
+        }
+    }
+
     /**
      * Record of a failed restore operation.
      */
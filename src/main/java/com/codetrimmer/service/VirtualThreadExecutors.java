@@ -0,0 +1,46 @@
+package com.codetrimmer.service;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates virtual-thread executors when the running JVM supports them.
+ * The factory is looked up reflectively so the application still builds and runs on Java 17.
+ */
+final class VirtualThreadExecutors {
+
+  private static final MethodHandle FACTORY = findFactory();
+
+  private VirtualThreadExecutors() {
+    // Utility class
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for each task.
+   *
+   * @return the executor, or null when virtual threads are not available
+   */
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    if (FACTORY == null) {
+      return null;
+    }
+    try {
+      return (ExecutorService) FACTORY.invoke();
+    } catch (Throwable e) {
+      // Java 19 and 20 expose the method but reject it without --enable-preview
+      return null;
+    }
+  }
+
+  private static MethodHandle findFactory() {
+    try {
+      return MethodHandles.publicLookup().findStatic(Executors.class,
+          "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+}
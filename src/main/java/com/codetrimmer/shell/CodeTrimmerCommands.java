@@ -4,49 +4,57 @@ import com.codetrimmer.config.CodeTrimmerConfig;
 import com.codetrimmer.config.ConfigurationLoader;
 import com.codetrimmer.config.TrimmerConfig;
 import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.error.ErrorCode;
 import com.codetrimmer.model.FileProcessingResult;
 import com.codetrimmer.model.ProcessingStatistics;
 import com.codetrimmer.report.ReportGenerator;
 import com.codetrimmer.service.DiffGenerator;
+import com.codetrimmer.service.FileChecker;
 import com.codetrimmer.service.FileProcessingService;
 import com.codetrimmer.service.HookGenerator;
-import com.codetrimmer.service.UndoService;
 import com.codetrimmer.util.ColorOutput;
+import com.codetrimmer.util.FileList;
+import org.springframework.boot.ExitCodeGenerator;
 import org.springframework.shell.command.annotation.Command;
 import org.springframework.shell.command.annotation.Option;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 /**
  * Spring Shell commands for Code Trimmer.
+ * The exit code of the last {@code check} becomes the process exit code.
  */
+@Command
 @Component
-public class CodeTrimmerCommands {
+public class CodeTrimmerCommands implements ExitCodeGenerator {
 
   private final FileProcessingService fileProcessingService;
   private final CodeTrimmerConfig config;
   private final ConfigurationLoader configLoader;
   private final ReportGenerator reportGenerator;
   private final HookGenerator hookGenerator;
-  private final UndoService undoService;
   private final DiffGenerator diffGenerator;
+  private final FileChecker fileChecker;
+  private int exitCode;
 
   public CodeTrimmerCommands(FileProcessingService fileProcessingService,
                              CodeTrimmerConfig config,
                              ConfigurationLoader configLoader,
                              ReportGenerator reportGenerator,
                              HookGenerator hookGenerator,
-                             UndoService undoService,
-                             DiffGenerator diffGenerator) {
+                             DiffGenerator diffGenerator,
+                             FileChecker fileChecker) {
     this.fileProcessingService = fileProcessingService;
     this.config = config;
     this.configLoader = configLoader;
     this.reportGenerator = reportGenerator;
     this.hookGenerator = hookGenerator;
-    this.undoService = undoService;
     this.diffGenerator = diffGenerator;
+    this.fileChecker = fileChecker;
   }
 
   @Command(command = "trim", description = "Process files in a directory")
@@ -80,6 +88,31 @@ public class CodeTrimmerCommands {
     executeTrim(builder.build());
   }
 
+  @Command(command = "diff", description = "Show the changes trim would make as unified diffs")
+  public void diff(
+      @Option(description = "Directory path to process") String directory,
+      @Option(description = "Include file extensions (comma-separated)") String include,
+      @Option(description = "Exclude file extensions (comma-separated)") String exclude,
+      @Option(description = "Maximum file size in bytes") long maxSize,
+      @Option(description = "Maximum number of files to process") int maxFiles,
+      @Option(description = "Disable colored output") boolean noColor,
+      @Option(description = "Include hidden files") boolean includeHidden,
+      @Option(description = "No file limits") boolean noLimits) {
+
+    TrimOptions.Builder builder = TrimOptions.builder()
+        .directory(directory)
+        .include(include)
+        .exclude(exclude)
+        .maxSize(maxSize)
+        .maxFiles(maxFiles)
+        .dryRun(true)
+        .noColor(noColor)
+        .includeHidden(includeHidden)
+        .noLimits(noLimits)
+        .diff(true);
+    executeTrim(builder.build());
+  }
+
   @Command(command = "trim-config", description = "Process files using a configuration file")
   public void trimWithConfig(
       @Option(description = "Directory path to process") String directory,
@@ -100,30 +133,109 @@ public class CodeTrimmerCommands {
     executeTrim(builder.build());
   }
 
+  @Command(command = "trim-files", description = "Process an explicit list of files")
+  public void trimFiles(
+      @Option(description = "File listing the paths to process") String filesFrom,
+      @Option(description = "Directory the listed paths are relative to") String directory,
+      @Option(description = "Enable dry-run mode") boolean dryRun,
+      @Option(description = "Enable verbose output") boolean verbose,
+      @Option(description = "Enable quiet mode") boolean quiet,
+      @Option(description = "Disable colored output") boolean noColor,
+      @Option(description = "Create backup files") boolean backup) {
+
+    TrimOptions.Builder builder = TrimOptions.builder()
+        .filesFrom(filesFrom)
+        .directory(directory != null ? directory : "")
+        .dryRun(dryRun)
+        .verbose(verbose)
+        .quiet(quiet)
+        .noColor(noColor)
+        .backup(backup);
+    executeTrim(builder.build());
+  }
+
+  @Command(command = "check", description = "Report files that need trimming without modifying them")
+  public void check(
+      @Option(description = "Directory path to check") String directory,
+      @Option(description = "Include file extensions (comma-separated)") String include,
+      @Option(description = "Exclude file extensions (comma-separated)") String exclude,
+      @Option(description = "Include hidden files") boolean includeHidden,
+      @Option(description = "Path to configuration file") String configFile,
+      @Option(description = "Only print violations") boolean quiet,
+      @Option(description = "File listing the paths to check") String filesFrom) {
+
+    String targetDir = directory != null ? directory : filesFrom != null ? "" : System.getProperty("user.dir");
+    exitCode = FileChecker.CheckReport.EXIT_ERROR;
+    if (!loadConfiguration(configFile, targetDir)) {
+      return;
+    }
+    configureCheck(include, exclude, includeHidden);
+
+    try {
+      FileChecker.CheckReport report = filesFrom != null
+          ? fileChecker.checkFileList(Paths.get(targetDir), readFileList(filesFrom))
+          : fileChecker.checkDirectory(targetDir);
+      displayCheckReport(report, quiet);
+      exitCode = report.getExitCode();
+    } catch (CodeTrimmerException e) {
+      System.err.println(e.getFormattedMessage());
+    }
+  }
+
+  private void configureCheck(String include, String exclude, boolean includeHidden) {
+    config.setInclude(include != null && !include.isEmpty() ? include : "*");
+    if (exclude != null && !exclude.isEmpty()) {
+      config.setExclude(exclude);
+    }
+    config.setIncludeHidden(includeHidden);
+    // A gate that silently skipped files past the limits would pass dirty trees
+    config.setNoLimits(true);
+  }
+
+  /**
+   * Prints one {@code path:line: violation} line per file that needs trimming, and
+   * failures to standard error, so the output can be parsed by editors and CI tools.
+   */
+  private void displayCheckReport(FileChecker.CheckReport report, boolean quiet) {
+    for (FileChecker.Finding finding : report.getFindings()) {
+      System.out.println(finding.format());
+    }
+    for (FileChecker.Failure failure : report.getFailures()) {
+      System.err.println(failure.format());
+    }
+    if (!quiet) {
+      System.out.println("Files checked: " + report.getFilesChecked()
+          + ", need trimming: " + report.getFindings().size()
+          + ", failed: " + report.getFailures().size());
+    }
+  }
+
+  @Override
+  public int getExitCode() {
+    return exitCode;
+  }
+
   private void executeTrim(TrimOptions options) {
-    // Load configuration file if specified
-    if (options.getConfigFile() != null && !options.getConfigFile().isEmpty()) {
-      try {
-        TrimmerConfig fileConfig = configLoader.loadFromFile(
-            java.nio.file.Paths.get(options.getConfigFile()));
-        configLoader.applyConfiguration(fileConfig, config);
-      } catch (CodeTrimmerException e) {
-        System.err.println(e.getFormattedMessage());
-        return;
-      }
-    } else if (options.getDirectory() != null) {
-      // Try to load from directory
-      TrimmerConfig dirConfig = configLoader.loadConfiguration(options.getDirectory());
-      configLoader.applyConfiguration(dirConfig, config);
+    if (!loadConfiguration(options.getConfigFile(), options.getDirectory())) {
+      return;
     }
 
-    configureSettings(options);
+    options.applyTo(config);
     boolean shouldUseColor = !options.isNoColor() && ColorOutput.isTerminal();
     ColorOutput output = new ColorOutput(shouldUseColor);
 
     displayStartMessage(options, output);
 
-    List<FileProcessingResult> results = fileProcessingService.processDirectory(options.getDirectory());
+    List<FileProcessingResult> results;
+    try {
+      results = options.getFilesFrom() != null
+          ? fileProcessingService.processFileList(Paths.get(options.getDirectory()),
+              readFileList(options.getFilesFrom()))
+          : fileProcessingService.processDirectory(options.getDirectory());
+    } catch (CodeTrimmerException e) {
+      System.err.println(output.error(e.getFormattedMessage()));
+      return;
+    }
     ProcessingStatistics stats = fileProcessingService.getStatistics();
 
     displayResults(results, stats, output, options.isVerbose(), options.isQuiet(), options.isDryRun());
@@ -139,20 +251,37 @@ public class CodeTrimmerCommands {
     }
   }
 
-  private void configureSettings(TrimOptions options) {
-    config.setInclude(options.getInclude() != null && !options.getInclude().isEmpty() ? options.getInclude() : "*");
-    if (options.getExclude() != null && !options.getExclude().isEmpty()) {
-      config.setExclude(options.getExclude());
+  private List<Path> readFileList(String filesFrom) {
+    try {
+      return FileList.read(Paths.get(filesFrom));
+    } catch (IOException e) {
+      throw new CodeTrimmerException(ErrorCode.CT_0011, "Cannot read file list: " + e.getMessage(),
+          "Pass a readable file with one path per line");
     }
-    config.setMaxFileSize(options.getMaxSize() > 0 ? options.getMaxSize() : 5242880);
-    config.setMaxFiles(options.getMaxFiles() > 0 ? options.getMaxFiles() : 50);
-    config.setDryRun(options.isDryRun());
-    config.setVerbose(options.isVerbose());
-    config.setQuiet(options.isQuiet());
-    config.setNoColor(options.isNoColor());
-    config.setIncludeHidden(options.isIncludeHidden());
-    config.setCreateBackups(options.isBackup());
-    config.setNoLimits(options.isNoLimits());
+  }
+
+  /**
+   * Applies the given configuration file, or else the one found in the directory.
+   *
+   * @param configFile path to a configuration file, or null
+   * @param directory directory to look for a configuration file in, or null
+   * @return false if the configuration file could not be loaded
+   */
+  private boolean loadConfiguration(String configFile, String directory) {
+    if (configFile != null && !configFile.isEmpty()) {
+      try {
+        TrimmerConfig fileConfig = configLoader.loadFromFile(java.nio.file.Paths.get(configFile));
+        configLoader.applyConfiguration(fileConfig, config);
+      } catch (CodeTrimmerException e) {
+        System.err.println(e.getFormattedMessage());
+        return false;
+      }
+    } else if (directory != null) {
+      // Try to load from directory
+      TrimmerConfig dirConfig = configLoader.loadConfiguration(directory);
+      configLoader.applyConfiguration(dirConfig, config);
+    }
+    return true;
   }
 
   private void displayStartMessage(TrimOptions options, ColorOutput output) {
@@ -178,78 +307,25 @@ public class CodeTrimmerCommands {
   @Command(command = "generate-hook", description = "Generate Git pre-commit hook")
   public void generateHook(
       @Option(description = "Directory containing .git folder") String directory,
-      @Option(description = "Force overwrite existing hook") boolean force) {
+      @Option(description = "Force overwrite existing hook") boolean force,
+      @Option(description = "Trim staged content instead of blocking the commit") boolean fix) {
 
     String targetDir = directory != null ? directory : System.getProperty("user.dir");
     boolean shouldUseColor = ColorOutput.isTerminal();
     ColorOutput output = new ColorOutput(shouldUseColor);
 
     try {
-      Path hookPath = hookGenerator.generatePreCommitHook(targetDir, force);
+      Path hookPath = hookGenerator.generatePreCommitHook(targetDir, force, fix);
       System.out.println(output.success("Pre-commit hook generated: " + hookPath));
       System.out.println(output.info("Also generated: pre-commit.bat, pre-commit.ps1"));
-      System.out.println(output.info("\nThe hook will run Code Trimmer on staged files before commit."));
-    } catch (CodeTrimmerException e) {
-      System.err.println(output.error(e.getFormattedMessage()));
-    }
-  }
-
-  @Command(command = "undo", description = "Restore files from backup")
-  public void undo(
-      @Option(description = "Directory to restore backups from") String directory,
-      @Option(description = "Regex pattern to match files") String pattern,
-      @Option(description = "Search subdirectories recursively") boolean recursive) {
-
-    String targetDir = directory != null ? directory : System.getProperty("user.dir");
-    boolean shouldUseColor = ColorOutput.isTerminal();
-    ColorOutput output = new ColorOutput(shouldUseColor);
-
-    try {
-      UndoService.RestoreResult result = undoService.restoreDirectory(targetDir, recursive, pattern);
-
-      System.out.println(output.info("=== Restore Summary ==="));
-      System.out.println("Backup files found: " + result.getTotalFound());
-      System.out.println("Files restored: " + output.success(String.valueOf(result.getRestoredCount())));
-
-      if (result.getFailedCount() > 0) {
-        System.out.println("Files failed: " + output.error(String.valueOf(result.getFailedCount())));
-        for (UndoService.FailedRestore failed : result.getFailed()) {
-          System.out.println("  " + output.error("✗") + " " + failed.getPath() +
-                           " (" + failed.getReason() + ")");
-        }
-      }
-
-      if (result.isSuccess()) {
-        System.out.println(output.success("\nAll backups restored successfully."));
-      } else if (result.isPartialSuccess()) {
-        System.out.println(output.warning("\nSome files could not be restored."));
-      }
+      System.out.println(output.info(fix
+          ? "\nThe hook will trim staged content before commit."
+          : "\nThe hook will check staged content before commit."));
     } catch (CodeTrimmerException e) {
       System.err.println(output.error(e.getFormattedMessage()));
     }
   }
 
-  @Command(command = "list-backups", description = "List available backup files")
-  public void listBackups(
-      @Option(description = "Directory to search") String directory,
-      @Option(description = "Search subdirectories recursively") boolean recursive) {
-
-    String targetDir = directory != null ? directory : System.getProperty("user.dir");
-    boolean shouldUseColor = ColorOutput.isTerminal();
-    ColorOutput output = new ColorOutput(shouldUseColor);
-
-    List<String> backups = undoService.listBackups(targetDir, recursive);
-
-    if (backups.isEmpty()) {
-      System.out.println(output.info("No backup files found."));
-    } else {
-      System.out.println(output.info("Backup Files (" + backups.size() + "):"));
-      for (String backup : backups) {
-        System.out.println("  " + backup);
-      }
-    }
-  }
-
   @Command(command = "validate-config", description = "Validate a configuration file")
   public void validateConfig(
       @Option(description = "Path to configuration file") String configPath) {
@@ -321,6 +397,9 @@ public class CodeTrimmerCommands {
             System.out.println("    Lines trimmed: " + result.getLinesTrimmed());
             System.out.println("    Blank lines removed: " + result.getBlankLinesRemoved());
           }
+          if (!result.getDiff().isEmpty()) {
+            System.out.print(result.getDiff());
+          }
         }
         System.out.println();
       }
@@ -342,17 +421,27 @@ public class CodeTrimmerCommands {
       }
 
       // Display summary statistics
-      System.out.println(output.info("=== Processing Summary ==="));
-      System.out.println("Total files scanned: " + stats.getFilesScanned());
-      System.out.println("Files modified: " + output.success(String.valueOf(stats.getFilesModified())));
-      System.out.println("Files skipped: " + stats.getFilesSkipped());
-      System.out.println("Total lines trimmed: " + stats.getLinesTrimmed());
-      System.out.println("Total blank lines removed: " + stats.getBlankLinesRemoved());
-      System.out.println("Execution time: " + String.format("%.2f", stats.getExecutionTimeSec()) + "s");
-
-      if (dryRun) {
-        System.out.println(output.warning("\nDRY-RUN: No files were actually modified"));
-      }
+      displaySummary(stats, output, dryRun);
+    }
+  }
+
+  private void displaySummary(ProcessingStatistics stats, ColorOutput output, boolean dryRun) {
+    System.out.println(output.info("=== Processing Summary ==="));
+    System.out.println("Total files scanned: " + stats.getFilesScanned());
+    System.out.println("Files modified: " + output.success(String.valueOf(stats.getFilesModified())));
+    System.out.println("Files skipped: " + stats.getFilesSkipped());
+    System.out.println("Total lines trimmed: " + stats.getLinesTrimmed());
+    System.out.println("Total blank lines removed: " + stats.getBlankLinesRemoved());
+    if (stats.getIndexHits() + stats.getIndexMisses() > 0) {
+      System.out.println("Index hits: " + stats.getIndexHits() + ", misses: " + stats.getIndexMisses());
+    }
+    if (stats.getPeakConcurrency() > 0) {
+      System.out.println("Peak concurrency: " + stats.getPeakConcurrency());
+    }
+    System.out.println("Execution time: " + String.format("%.2f", stats.getExecutionTimeSec()) + "s");
+
+    if (dryRun) {
+      System.out.println(output.warning("\nDRY-RUN: No files were actually modified"));
     }
   }
 }
@@ -0,0 +1,50 @@
+package com.codetrimmer.shell;
+
+import com.codetrimmer.daemon.DaemonProtocol;
+import com.codetrimmer.daemon.TrimmerDaemon;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.shell.command.annotation.Command;
+import org.springframework.shell.command.annotation.Option;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Spring Shell command that runs the trimmer as a daemon.
+ * Requests are sent with {@code java -jar code-trimmer.jar client <command> [options]}, which
+ * is handled before Spring starts.
+ */
+@Command
+@Component
+public class DaemonCommands implements ExitCodeGenerator {
+
+  private final TrimmerDaemon daemon;
+  private int exitCode;
+
+  public DaemonCommands(TrimmerDaemon daemon) {
+    this.daemon = daemon;
+  }
+
+  @Command(command = "daemon", description = "Serve trim and check requests on a Unix domain socket")
+  public void daemon(
+      @Option(description = "Socket path (default: $CODE_TRIMMER_SOCKET or a per-user temp path)") String socket) {
+
+    Path socketPath = socket != null ? Paths.get(socket) : DaemonProtocol.defaultSocket();
+    Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+    System.out.println("Listening on " + socketPath + "; stop with: java -jar code-trimmer.jar client stop");
+    try {
+      daemon.serve(socketPath);
+      exitCode = 0;
+    } catch (IOException e) {
+      System.err.println("Cannot start daemon: " + e.getMessage());
+      exitCode = 2;
+    }
+  }
+
+  @Override
+  public int getExitCode() {
+    return exitCode;
+  }
+}
@@ -0,0 +1,79 @@
+package com.codetrimmer.shell;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.config.ConfigurationLoader;
+import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.service.FileChecker;
+import com.codetrimmer.service.StagedTrimmer;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.shell.command.annotation.Command;
+import org.springframework.shell.command.annotation.Option;
+import org.springframework.stereotype.Component;
+
+/**
+ * Spring Shell commands that work on the content staged in the Git index.
+ * The exit code of the last command becomes the process exit code.
+ */
+@Command
+@Component
+public class StagedCommands implements ExitCodeGenerator {
+
+  private final StagedTrimmer stagedTrimmer;
+  private final CodeTrimmerConfig config;
+  private final ConfigurationLoader configLoader;
+  private int exitCode;
+
+  public StagedCommands(StagedTrimmer stagedTrimmer,
+                        CodeTrimmerConfig config,
+                        ConfigurationLoader configLoader) {
+    this.stagedTrimmer = stagedTrimmer;
+    this.config = config;
+    this.configLoader = configLoader;
+  }
+
+  @Command(command = "trim-staged", description = "Trim the content staged in the Git index")
+  public void trimStaged(
+      @Option(description = "Directory inside the Git work tree") String directory,
+      @Option(description = "Report staged files that need trimming without fixing them") boolean dryRun,
+      @Option(description = "Only print files and errors") boolean quiet) {
+
+    String targetDir = directory != null ? directory : System.getProperty("user.dir");
+    exitCode = FileChecker.CheckReport.EXIT_ERROR;
+    configLoader.applyConfiguration(configLoader.loadConfiguration(targetDir), config);
+    // Staged files are named explicitly, so none may be skipped for size
+    config.setNoLimits(true);
+
+    try {
+      FileChecker.CheckReport report = stagedTrimmer.trimStaged(targetDir, !dryRun);
+      displayReport(report, dryRun, quiet);
+      exitCode = dryRun || !report.getFailures().isEmpty()
+          ? report.getExitCode()
+          : FileChecker.CheckReport.EXIT_CLEAN;
+    } catch (CodeTrimmerException e) {
+      System.err.println(e.getFormattedMessage());
+    }
+  }
+
+  /**
+   * Prints staged files that need trimming in the {@code check} format, or the files that
+   * were trimmed, and failures to standard error.
+   */
+  private void displayReport(FileChecker.CheckReport report, boolean dryRun, boolean quiet) {
+    for (FileChecker.Finding finding : report.getFindings()) {
+      System.out.println(dryRun ? finding.format() : "Trimmed: " + finding.path());
+    }
+    for (FileChecker.Failure failure : report.getFailures()) {
+      System.err.println(failure.format());
+    }
+    if (!quiet) {
+      System.out.println("Staged files checked: " + report.getFilesChecked()
+          + (dryRun ? ", need trimming: " : ", trimmed: ") + report.getFindings().size()
+          + ", failed: " + report.getFailures().size());
+    }
+  }
+
+  @Override
+  public int getExitCode() {
+    return exitCode;
+  }
+}
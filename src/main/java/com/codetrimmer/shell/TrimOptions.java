@@ -1,11 +1,40 @@
 package com.codetrimmer.shell;
 
+import com.codetrimmer.config.CodeTrimmerConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
 /**
  * Parameter object for trim command options.
  * Reduces cyclomatic complexity and parameter count violations using builder pattern.
  */
 public final class TrimOptions {
 
+  private static final Map<String, BiConsumer<Builder, String>> VALUE_OPTIONS = Map.ofEntries(
+      Map.entry("directory", Builder::directory),
+      Map.entry("include", Builder::include),
+      Map.entry("exclude", Builder::exclude),
+      Map.entry("max-size", (builder, value) -> builder.maxSize(Long.parseLong(value))),
+      Map.entry("max-files", (builder, value) -> builder.maxFiles(Integer.parseInt(value))),
+      Map.entry("config-file", Builder::configFile),
+      Map.entry("report", Builder::report),
+      Map.entry("report-output", Builder::reportOutput),
+      Map.entry("report-endpoint", Builder::reportEndpoint),
+      Map.entry("files-from", Builder::filesFrom));
+
+  private static final Map<String, Consumer<Builder>> FLAG_OPTIONS = Map.of(
+      "dry-run", builder -> builder.dryRun(true),
+      "verbose", builder -> builder.verbose(true),
+      "quiet", builder -> builder.quiet(true),
+      "no-color", builder -> builder.noColor(true),
+      "include-hidden", builder -> builder.includeHidden(true),
+      "backup", builder -> builder.backup(true),
+      "no-limits", builder -> builder.noLimits(true),
+      "diff", builder -> builder.diff(true));
+
   private final String directory;
   private final String include;
   private final String exclude;
@@ -23,6 +52,7 @@ public final class TrimOptions {
   private final String reportOutput;
   private final String reportEndpoint;
   private final boolean diff;
+  private final String filesFrom;
 
   private TrimOptions(Builder builder) {
     this.directory = builder.directory;
@@ -42,12 +72,71 @@ public final class TrimOptions {
     this.reportOutput = builder.reportOutput;
     this.reportEndpoint = builder.reportEndpoint;
     this.diff = builder.diff;
+    this.filesFrom = builder.filesFrom;
   }
 
   public static Builder builder() {
     return new Builder();
   }
 
+  /**
+   * Parses options written as on the command line: {@code --name value} for valued options
+   * and {@code --name} for flags, with the shell's kebab-case names. The directory may also
+   * be given first without its option name, as in {@code trim .}.
+   *
+   * @param args the options, without the command name
+   * @return the parsed options
+   * @throws IllegalArgumentException if an option is unknown, lacks its value or has a
+   *     malformed number
+   */
+  public static TrimOptions parse(List<String> args) {
+    Builder builder = builder();
+    int first = 0;
+    if (!args.isEmpty() && !args.get(0).startsWith("-")) {
+      builder.directory(args.get(0));
+      first = 1;
+    }
+    for (int i = first; i < args.size(); i++) {
+      String arg = args.get(i);
+      String name = arg.startsWith("--") ? arg.substring(2) : "";
+      Consumer<Builder> flag = FLAG_OPTIONS.get(name);
+      BiConsumer<Builder, String> option = VALUE_OPTIONS.get(name);
+      if (flag != null) {
+        flag.accept(builder);
+      } else if (option == null) {
+        throw new IllegalArgumentException("Unknown option: " + arg);
+      } else if (i + 1 == args.size()) {
+        throw new IllegalArgumentException("Missing value for " + arg);
+      } else {
+        option.accept(builder, args.get(++i));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Applies the trim settings to a configuration. Unset include, size and count options fall
+   * back to their defaults rather than to the configuration's values.
+   *
+   * @param config the configuration to update
+   */
+  public void applyTo(CodeTrimmerConfig config) {
+    config.setInclude(include != null && !include.isEmpty() ? include : "*");
+    if (exclude != null && !exclude.isEmpty()) {
+      config.setExclude(exclude);
+    }
+    config.setMaxFileSize(maxSize > 0 ? maxSize : 5242880);
+    config.setMaxFiles(maxFiles > 0 ? maxFiles : 50);
+    config.setDryRun(dryRun);
+    config.setVerbose(verbose);
+    config.setQuiet(quiet);
+    config.setNoColor(noColor);
+    config.setIncludeHidden(includeHidden);
+    config.setCreateBackups(backup);
+    config.setNoLimits(noLimits);
+    config.setDiff(diff);
+  }
+
   public String getDirectory() {
     return directory;
   }
@@ -116,6 +205,10 @@ public final class TrimOptions {
     return diff;
   }
 
+  public String getFilesFrom() {
+    return filesFrom;
+  }
+
   /**
    * Builder for TrimOptions to avoid constructor with many parameters.
    */
@@ -137,6 +230,7 @@ public final class TrimOptions {
     private String reportOutput;
     private String reportEndpoint;
     private boolean diff;
+    private String filesFrom;
 
     public Builder directory(String directory) {
       this.directory = directory;
@@ -223,6 +317,11 @@ public final class TrimOptions {
       return this;
     }
 
+    public Builder filesFrom(String filesFrom) {
+      this.filesFrom = filesFrom;
+      return this;
+    }
+
     public TrimOptions build() {
       return new TrimOptions(this);
     }
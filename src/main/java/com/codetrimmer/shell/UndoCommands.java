@@ -0,0 +1,103 @@
+package com.codetrimmer.shell;
+
+import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.service.UndoService;
+import com.codetrimmer.util.ColorOutput;
+import org.springframework.shell.command.annotation.Command;
+import org.springframework.shell.command.annotation.Option;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Spring Shell commands that list and restore the backups made by trim runs.
+ */
+@Command
+@Component
+public class UndoCommands {
+
+  private final UndoService undoService;
+
+  public UndoCommands(UndoService undoService) {
+    this.undoService = undoService;
+  }
+
+  @Command(command = "undo", description = "Restore files from backup")
+  public void undo(
+      @Option(description = "Directory to restore backups from") String directory,
+      @Option(description = "Regex pattern to match files") String pattern,
+      @Option(description = "Search subdirectories recursively") boolean recursive,
+      @Option(description = "Undo only this run, as shown by list-runs") String run) {
+
+    String targetDir = directory != null ? directory : System.getProperty("user.dir");
+    boolean shouldUseColor = ColorOutput.isTerminal();
+    ColorOutput output = new ColorOutput(shouldUseColor);
+
+    try {
+      UndoService.RestoreResult result = run != null
+          ? undoService.restoreRun(targetDir, run)
+          : undoService.restoreDirectory(targetDir, recursive, pattern);
+
+      System.out.println(output.info("=== Restore Summary ==="));
+      System.out.println("Backup files found: " + result.getTotalFound());
+      System.out.println("Files restored: " + output.success(String.valueOf(result.getRestoredCount())));
+
+      if (result.getFailedCount() > 0) {
+        System.out.println("Files failed: " + output.error(String.valueOf(result.getFailedCount())));
+        for (UndoService.FailedRestore failed : result.getFailed()) {
+          System.out.println("  " + output.error("✗") + " " + failed.getPath() +
+                           " (" + failed.getReason() + ")");
+        }
+      }
+
+      if (result.isSuccess()) {
+        System.out.println(output.success("\nAll backups restored successfully."));
+      } else if (result.isPartialSuccess()) {
+        System.out.println(output.warning("\nSome files could not be restored."));
+      }
+    } catch (CodeTrimmerException e) {
+      System.err.println(output.error(e.getFormattedMessage()));
+    }
+  }
+
+  @Command(command = "list-backups", description = "List available backup files")
+  public void listBackups(
+      @Option(description = "Directory to search") String directory,
+      @Option(description = "Search subdirectories recursively") boolean recursive) {
+
+    String targetDir = directory != null ? directory : System.getProperty("user.dir");
+    boolean shouldUseColor = ColorOutput.isTerminal();
+    ColorOutput output = new ColorOutput(shouldUseColor);
+
+    List<String> backups = undoService.listBackups(targetDir, recursive);
+
+    if (backups.isEmpty()) {
+      System.out.println(output.info("No backup files found."));
+    } else {
+      System.out.println(output.info("Backup Files (" + backups.size() + "):"));
+      for (String backup : backups) {
+        System.out.println("  " + backup);
+      }
+    }
+  }
+
+  @Command(command = "list-runs", description = "List trim runs that can be undone")
+  public void listRuns(
+      @Option(description = "Directory the runs processed") String directory) {
+
+    String targetDir = directory != null ? directory : System.getProperty("user.dir");
+    boolean shouldUseColor = ColorOutput.isTerminal();
+    ColorOutput output = new ColorOutput(shouldUseColor);
+
+    List<UndoService.RunSummary> runs = undoService.listRuns(targetDir);
+
+    if (runs.isEmpty()) {
+      System.out.println(output.info("No runs found."));
+    } else {
+      System.out.println(output.info("Runs (" + runs.size() + "):"));
+      for (UndoService.RunSummary run : runs) {
+        System.out.println("  " + run.getRunId() + "  " + run.getFileCount() + " file(s)");
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.codetrimmer.shell;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.config.ConfigurationLoader;
+import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.model.FileProcessingResult;
+import com.codetrimmer.service.FileProcessingService;
+import com.codetrimmer.service.FileWatcher;
+import com.codetrimmer.util.ColorOutput;
+import org.springframework.shell.command.annotation.Command;
+import org.springframework.shell.command.annotation.Option;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Spring Shell command that keeps a directory trimmed while its files are edited.
+ * It runs until interrupted, so it is only available in the shell.
+ */
+@Command
+@Component
+public class WatchCommands {
+
+  private final FileProcessingService fileProcessingService;
+  private final CodeTrimmerConfig config;
+  private final ConfigurationLoader configLoader;
+
+  public WatchCommands(FileProcessingService fileProcessingService,
+                       CodeTrimmerConfig config,
+                       ConfigurationLoader configLoader) {
+    this.fileProcessingService = fileProcessingService;
+    this.config = config;
+    this.configLoader = configLoader;
+  }
+
+  @Command(command = "watch", description = "Trim files in a directory, then keep trimming them as they are saved")
+  public void watch(
+      @Option(description = "Directory path to watch") String directory,
+      @Option(description = "Include file extensions (comma-separated)") String include,
+      @Option(description = "Exclude file extensions (comma-separated)") String exclude,
+      @Option(description = "Enable dry-run mode") boolean dryRun,
+      @Option(description = "Enable quiet mode") boolean quiet,
+      @Option(description = "Disable colored output") boolean noColor,
+      @Option(description = "Include hidden files") boolean includeHidden,
+      @Option(description = "Create backup files") boolean backup,
+      @Option(description = "No file limits") boolean noLimits) {
+
+    String targetDir = directory != null ? directory : System.getProperty("user.dir");
+    configLoader.applyConfiguration(configLoader.loadConfiguration(targetDir), config);
+    TrimOptions.builder()
+        .include(include)
+        .exclude(exclude)
+        .dryRun(dryRun)
+        .quiet(quiet)
+        .includeHidden(includeHidden)
+        .backup(backup)
+        .noLimits(noLimits)
+        .build()
+        .applyTo(config);
+    ColorOutput output = new ColorOutput(!noColor && ColorOutput.isTerminal());
+
+    try {
+      displayResults(fileProcessingService.processDirectory(targetDir), output, quiet, dryRun);
+    } catch (CodeTrimmerException e) {
+      System.err.println(output.error(e.getFormattedMessage()));
+      return;
+    }
+    watchDirectory(targetDir, output, quiet, dryRun);
+  }
+
+  /**
+   * Trims files below the directory as they are saved, until the command is interrupted.
+   */
+  private void watchDirectory(String directory, ColorOutput output, boolean quiet, boolean dryRun) {
+    try (FileWatcher watcher = fileProcessingService.watch(Paths.get(directory))) {
+      if (!quiet) {
+        System.out.println(output.info("Watching " + watcher.getWatchedDirectoryCount()
+            + " directories for changes, press Ctrl+C to stop"));
+      }
+      watcher.run(results -> displayResults(results, output, quiet, dryRun));
+    } catch (IOException e) {
+      System.err.println(output.error("Cannot watch directory: " + e.getMessage()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void displayResults(List<FileProcessingResult> results, ColorOutput output, boolean quiet, boolean dryRun) {
+    for (FileProcessingResult result : results) {
+      if (result.getErrorMessage() != null && !result.getErrorMessage().isEmpty()) {
+        System.err.println(output.error(result.getFilePath() + ": " + result.getErrorMessage()));
+      } else if (result.isModified() && !quiet) {
+        System.out.println("  " + output.success("✓") + " " + (dryRun ? "Would modify: " : "Trimmed: ")
+            + result.getFilePath());
+      }
+    }
+  }
+}
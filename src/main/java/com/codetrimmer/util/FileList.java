@@ -0,0 +1,57 @@
+package com.codetrimmer.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility for reading the file lists passed to commands with {@code --files-from}.
+ */
+public final class FileList {
+
+  private FileList() {
+    // Utility class
+  }
+
+  /**
+   * Reads a list of paths, separated by newlines or by the NUL characters that
+   * {@code git diff --name-only -z} writes.
+   *
+   * @param source path of the list file
+   * @return the listed paths, in list order
+   * @throws IOException if the list cannot be read or names a path this platform cannot represent
+   */
+  public static List<Path> read(Path source) throws IOException {
+    try {
+      return parse(new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+    } catch (InvalidPathException e) {
+      throw new IOException("Invalid path in file list: " + e.getInput(), e);
+    }
+  }
+
+  /**
+   * Parses a list of paths. Empty entries are skipped, and a leading byte order mark and
+   * carriage returns before newlines are dropped so lists written on Windows are read the
+   * same way.
+   *
+   * @param list the list content
+   * @return the listed paths, in list order
+   * @throws InvalidPathException if an entry is not a valid path on this platform
+   */
+  public static List<Path> parse(String list) {
+    List<Path> paths = new ArrayList<>();
+    String content = list.startsWith("\uFEFF") ? list.substring(1) : list;
+    for (String entry : content.split("[\0\n]")) {
+      String name = entry.endsWith("\r") ? entry.substring(0, entry.length() - 1) : entry;
+      if (!name.isEmpty()) {
+        paths.add(Paths.get(name));
+      }
+    }
+    return paths;
+  }
+}
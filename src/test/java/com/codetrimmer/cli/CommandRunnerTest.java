@@ -0,0 +1,116 @@
+package com.codetrimmer.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.config.ConfigurationLoader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommandRunnerTest {
+
+  private CodeTrimmerConfig baseConfig;
+  private CommandRunner runner;
+  private ByteArrayOutputStream out;
+  private ByteArrayOutputStream err;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setUp() {
+    baseConfig = new CodeTrimmerConfig();
+    runner = new CommandRunner(baseConfig, new ConfigurationLoader());
+    out = new ByteArrayOutputStream();
+    err = new ByteArrayOutputStream();
+  }
+
+  @Test
+  void testCheckResolvesDirectoryAgainstWorkingDirectory() throws Exception {
+    Files.createDirectories(tempDir.resolve("src"));
+    Files.writeString(tempDir.resolve("src/a.txt"), "dirty  \n");
+
+    int exitCode = run("check", "--directory", "src", "--quiet");
+
+    assertEquals(1, exitCode);
+    assertEquals(tempDir.resolve("src/a.txt") + ":1: trailing-whitespace\n", output());
+  }
+
+  @Test
+  void testTrimModifiesFilesAndReportsThem() throws Exception {
+    Path file = tempDir.resolve("a.txt");
+    Files.writeString(file, "dirty  \n");
+
+    int exitCode = run("trim");
+
+    assertEquals(0, exitCode);
+    assertEquals("dirty\n", Files.readString(file));
+    assertTrue(output().startsWith("Modified: " + file + "\n"));
+    assertTrue(output().contains("Files scanned: 1, modified: 1"));
+  }
+
+  @Test
+  void testDryRunWithDiffPrintsEachDiff() throws Exception {
+    Path file = tempDir.resolve("a.txt");
+    Files.writeString(file, "dirty  \n");
+
+    int exitCode = run("trim", "--dry-run", "--diff", "--quiet");
+
+    assertEquals(0, exitCode);
+    assertEquals("dirty  \n", Files.readString(file));
+    assertEquals("", output());
+    out.reset();
+
+    run("trim", "--dry-run", "--diff");
+
+    assertTrue(output().startsWith("Would modify: " + file + "\n--- a/a.txt\n+++ b/a.txt\n"));
+    assertTrue(output().contains("\n-dirty  \n+dirty\n"));
+  }
+
+  @Test
+  void testRunsDoNotShareConfiguration() throws Exception {
+    Files.writeString(tempDir.resolve(".env"), "dirty  \n");
+
+    run("check", "--include-hidden", "--quiet");
+    out.reset();
+    int exitCode = run("check", "--quiet");
+
+    assertEquals(0, exitCode);
+    assertEquals("", output());
+    assertFalse(baseConfig.isIncludeHidden());
+  }
+
+  @Test
+  void testSummaryReportsStartupTimeWhenGiven() throws Exception {
+    runner = new CommandRunner(baseConfig, new ConfigurationLoader(), Duration.ofMillis(42));
+    Files.writeString(tempDir.resolve("a.txt"), "clean\n");
+
+    run("check");
+
+    assertTrue(output().endsWith(", startup: 42ms\n"));
+  }
+
+  @Test
+  void testUnknownCommandOrOptionIsAnError() {
+    assertEquals(2, run("format"));
+    assertEquals(2, run("trim", "--bogus"));
+    assertTrue(err.toString(StandardCharsets.UTF_8).contains("Unknown option: --bogus"));
+  }
+
+  private int run(String... args) {
+    return runner.run(tempDir, List.of(args), new PrintStream(out, true, StandardCharsets.UTF_8),
+        new PrintStream(err, true, StandardCharsets.UTF_8));
+  }
+
+  private String output() {
+    return out.toString(StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n");
+  }
+}
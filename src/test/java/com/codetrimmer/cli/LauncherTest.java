@@ -0,0 +1,49 @@
+package com.codetrimmer.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.ConsoleAppender;
+import com.codetrimmer.config.CodeTrimmerConfig;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+class LauncherTest {
+
+  @Test
+  void testHandlesOneShotCommands() {
+    assertTrue(Launcher.handles(new String[] {"trim", "--directory", "src"}));
+    assertTrue(Launcher.handles(new String[] {"check", "--quiet"}));
+    assertTrue(Launcher.handles(new String[] {"trim-staged", "--dry-run"}));
+    assertTrue(Launcher.handles(new String[] {"trim", "--dry-run", "--diff"}));
+  }
+
+  @Test
+  void testLeavesShellOnlyCallsToTheShell() {
+    assertFalse(Launcher.handles(new String[0]));
+    assertFalse(Launcher.handles(new String[] {"version"}));
+    assertFalse(Launcher.handles(new String[] {"trim", "--report", "json"}));
+    assertFalse(Launcher.handles(new String[] {"check", "--spring.profiles.active=ci"}));
+  }
+
+  @Test
+  void testLogsWarningsToStandardErrorOnly() {
+    Launcher.configureLogging();
+
+    Logger root = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    assertEquals(Level.WARN, root.getLevel());
+    ConsoleAppender<ILoggingEvent> appender = (ConsoleAppender<ILoggingEvent>) root.iteratorForAppenders().next();
+    assertEquals("System.err", appender.getTarget());
+  }
+
+  @Test
+  void testLoadConfigMatchesApplicationYaml() {
+    CodeTrimmerConfig config = Launcher.loadConfig();
+
+    assertEquals(2, config.getMaxConsecutiveBlankLines());
+    assertEquals(50, config.getMaxFiles());
+    assertTrue(config.isCreateBackups());
+  }
+}
@@ -0,0 +1,141 @@
+package com.codetrimmer.daemon;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.config.ConfigurationLoader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrimmerDaemonTest {
+
+  private TrimmerDaemon daemon;
+  private Thread serverThread;
+  private Path socket;
+  private ByteArrayOutputStream out;
+  private ByteArrayOutputStream err;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    socket = tempDir.resolve("run/daemon.sock");
+    daemon = new TrimmerDaemon(new CodeTrimmerConfig(), new ConfigurationLoader());
+    serverThread = new Thread(() -> {
+      try {
+        daemon.serve(socket);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    serverThread.start();
+    assertTrue(daemon.awaitReady(5, TimeUnit.SECONDS));
+    out = new ByteArrayOutputStream();
+    err = new ByteArrayOutputStream();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    daemon.stop();
+    serverThread.join(5000);
+  }
+
+  @Test
+  void testClientRelaysOutputAndExitCode() throws Exception {
+    Path file = tempDir.resolve("dirty.txt");
+    Files.writeString(file, "dirty  \n");
+
+    int exitCode = client("check", "--directory", tempDir.toString(), "--quiet");
+
+    assertEquals(1, exitCode);
+    assertEquals(file + ":1: trailing-whitespace", out.toString(StandardCharsets.UTF_8).trim());
+  }
+
+  @Test
+  void testErrorsAreRelayedToStandardError() {
+    int exitCode = client("trim", "--bogus");
+
+    assertEquals(2, exitCode);
+    assertEquals("Unknown option: --bogus", err.toString(StandardCharsets.UTF_8).trim());
+  }
+
+  @Test
+  void testStopRequestShutsDownAndRemovesSocket() throws Exception {
+    assertEquals(0, client("stop"));
+
+    serverThread.join(5000);
+    assertFalse(serverThread.isAlive());
+    assertFalse(Files.exists(socket));
+    assertEquals(DaemonClient.EXIT_NO_DAEMON, client("ping"));
+  }
+
+  @Test
+  void testSecondDaemonOnSameSocketIsRejected() {
+    TrimmerDaemon second = new TrimmerDaemon(new CodeTrimmerConfig(), new ConfigurationLoader());
+
+    assertThrows(IOException.class, () -> second.serve(socket));
+    assertEquals(0, client("ping"));
+  }
+
+  @Test
+  void testSocketDirectoryOpenToOthersIsRejected() throws Exception {
+    Path shared = Files.createDirectories(tempDir.resolve("shared"));
+    Files.setPosixFilePermissions(shared, PosixFilePermissions.fromString("rwxrwxrwx"));
+    TrimmerDaemon second = new TrimmerDaemon(new CodeTrimmerConfig(), new ConfigurationLoader());
+
+    IOException e = assertThrows(IOException.class, () -> second.serve(shared.resolve("daemon.sock")));
+
+    assertTrue(e.getMessage().contains("mode 0700"));
+    assertFalse(Files.exists(shared.resolve("daemon.sock")));
+  }
+
+  @Test
+  void testSocketDirectoryIsCreatedPrivate() throws Exception {
+    assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(socket.getParent()));
+  }
+
+  @Test
+  void testRequestsBeyondTheWorkerPoolWaitForAFreeWorker() throws Exception {
+    List<SocketChannel> idle = new ArrayList<>();
+    try {
+      for (int i = 0; i < new CodeTrimmerConfig().getDaemonWorkers(); i++) {
+        idle.add(SocketChannel.open(UnixDomainSocketAddress.of(socket)));
+      }
+      CompletableFuture<Integer> ping = CompletableFuture.supplyAsync(() -> client("ping"));
+
+      assertThrows(TimeoutException.class, () -> ping.get(500, TimeUnit.MILLISECONDS));
+      idle.remove(0).close();
+      assertEquals(0, ping.get(5, TimeUnit.SECONDS));
+    } finally {
+      for (SocketChannel channel : idle) {
+        channel.close();
+      }
+    }
+  }
+
+  private int client(String... args) {
+    String[] request = new String[args.length + 2];
+    request[0] = "--socket";
+    request[1] = socket.toString();
+    System.arraycopy(args, 0, request, 2, args.length);
+    return DaemonClient.run(request, new PrintStream(out, true, StandardCharsets.UTF_8),
+        new PrintStream(err, true, StandardCharsets.UTF_8));
+  }
+}
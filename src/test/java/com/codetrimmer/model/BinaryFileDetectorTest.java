@@ -339,4 +339,33 @@ class BinaryFileDetectorTest {
     Path path = Paths.get("config.rc");
     assertFalse(BinaryFileDetector.isBinaryByExtension(path));
   }
+
+  @Test
+  void testReadPrefixIsBoundedAndLeavesChannelPositioned() throws Exception {
+    Path file = tempDir.resolve("large.txt");
+    byte[] content = new byte[BinaryFileDetector.prefixSize() * 3];
+    java.util.Arrays.fill(content, (byte) 'x');
+    Files.write(file, content);
+
+    try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(file)) {
+      byte[] prefix = BinaryFileDetector.readPrefix(channel);
+
+      assertEquals(BinaryFileDetector.prefixSize(), prefix.length);
+      assertEquals(BinaryFileDetector.prefixSize(), channel.position());
+      assertFalse(BinaryFileDetector.isBinary(prefix));
+    }
+  }
+
+  @Test
+  void testReadPrefixOfSmallFileReturnsWholeFile() throws Exception {
+    Path file = tempDir.resolve("small.txt");
+    Files.write(file, new byte[]{'a', 0x00, 'b'});
+
+    try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(file)) {
+      byte[] prefix = BinaryFileDetector.readPrefix(channel);
+
+      assertArrayEquals(new byte[]{'a', 0x00, 'b'}, prefix);
+      assertTrue(BinaryFileDetector.isBinary(prefix));
+    }
+  }
 }
@@ -422,4 +422,27 @@ class ProcessingStatisticsAdvancedTest {
       assertEquals(0, newStats.getFilesSkipped());
     }
   }
+
+  @Nested
+  @DisplayName("Concurrent Updates")
+  class ConcurrentUpdateTests {
+    @Test
+    void countersAreNotLostUnderContention() throws Exception {
+      Thread[] threads = new Thread[8];
+      for (int t = 0; t < threads.length; t++) {
+        threads[t] = new Thread(() -> {
+          for (int i = 0; i < 10000; i++) {
+            stats.incrementFilesScanned();
+            stats.addLinesTrimmed(2);
+          }
+        });
+        threads[t].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(80000, stats.getFilesScanned());
+      assertEquals(160000, stats.getLinesTrimmed());
+    }
+  }
 }
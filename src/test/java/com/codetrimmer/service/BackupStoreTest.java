@@ -0,0 +1,77 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BackupStoreTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testIdenticalContentIsStoredOnce() throws Exception {
+    Path a = write("a.txt", "same  \n");
+    Path b = write("b.txt", "same  \n");
+
+    BackupStore store = BackupStore.open(tempDir);
+    Path first = store.backUp(a, FileIndex.hash(Files.readAllBytes(a)));
+    Path second = store.backUp(b, FileIndex.hash(Files.readAllBytes(b)));
+
+    assertEquals(1, countObjects());
+    assertEquals(first, second);
+    assertEquals("same  \n", Files.readString(first));
+    assertTrue(BackupStore.isObject(tempDir, first));
+    assertFalse(BackupStore.isObject(tempDir, a));
+  }
+
+  @Test
+  void testReleaseKeepsObjectsStillInAJournal() throws Exception {
+    Path a = write("a.txt", "first\n");
+    Path b = write("b.txt", "second\n");
+    BackupStore store = BackupStore.open(tempDir);
+    Path kept = store.backUp(a, FileIndex.hash(Files.readAllBytes(a)));
+    Path released = store.backUp(b, FileIndex.hash(Files.readAllBytes(b)));
+    try (RunJournal journal = RunJournal.create(tempDir)) {
+      journal.recordModified(a, kept, "before", "after");
+    }
+
+    BackupStore.release(tempDir, List.of(kept, released));
+
+    assertTrue(Files.exists(kept));
+    assertFalse(Files.exists(released));
+  }
+
+  @Test
+  void testDiscardDeletesObjectsCreatedForTheFile() throws Exception {
+    Path a = write("a.txt", "first\n");
+    BackupStore store = BackupStore.open(tempDir);
+    store.backUp(a, FileIndex.hash(Files.readAllBytes(a)));
+
+    store.discard(a);
+
+    assertEquals(0, countObjects());
+    assertEquals("first\n", Files.readString(a));
+  }
+
+  private Path write(String name, String content) throws Exception {
+    Path file = tempDir.resolve(name);
+    Files.writeString(file, content);
+    return file;
+  }
+
+  private long countObjects() throws Exception {
+    Path objects = tempDir.resolve(".codetrimmer/objects");
+    if (!Files.exists(objects)) {
+      return 0;
+    }
+    try (Stream<Path> files = Files.walk(objects)) {
+      return files.filter(Files::isRegularFile).count();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ByteTrimmerTest {
+
+  private CodeTrimmerConfig config;
+
+  @BeforeEach
+  void setUp() {
+    config = new CodeTrimmerConfig();
+  }
+
+  @Test
+  void testMatchesStringTrimmer() {
+    String content = "first  \n\n\n\n\tsecond\t\nété 😀   \n  \n\n\nlast  ";
+
+    assertSameAsStringTrimmer(content);
+  }
+
+  @Test
+  void testUnicodeLineTerminatorStopsTrimming() {
+    assertSameAsStringTrimmer("keep   \nnel \u0085\nsep\t ");
+  }
+
+  @Test
+  void testNonAsciiWhitespaceIsKept() {
+    assertSameAsStringTrimmer("no-break \nideographic　\n");
+  }
+
+  @Test
+  void testCleanContentReturnsSameArray() {
+    byte[] bytes = "clean\ncontent\n".getBytes(StandardCharsets.UTF_8);
+
+    ByteTrimmer.Result result = new ByteTrimmer(bytes, config).trim();
+
+    assertFalse(result.isChanged());
+    assertSame(bytes, result.getContent());
+  }
+
+  @Test
+  void testLoneNewlineIsUnchangedWithNoBlankLinesAllowed() {
+    config.setMaxConsecutiveBlankLines(0);
+    byte[] bytes = {'\n'};
+
+    assertFalse(new ByteTrimmer(bytes, config).trim().isChanged());
+  }
+
+  @Test
+  void testAcceptsValidUtf8() {
+    assertTrue(ByteTrimmer.isValidUtf8("ascii é 中 😀".getBytes(StandardCharsets.UTF_8)));
+    assertTrue(ByteTrimmer.isValidUtf8(new byte[0]));
+  }
+
+  @Test
+  void testRejectsMalformedUtf8() {
+    assertFalse(ByteTrimmer.isValidUtf8(new byte[]{(byte) 0xC3}));
+    assertFalse(ByteTrimmer.isValidUtf8(new byte[]{(byte) 0x80}));
+    assertFalse(ByteTrimmer.isValidUtf8(new byte[]{(byte) 0xC0, (byte) 0xAF}));
+    assertFalse(ByteTrimmer.isValidUtf8(new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80}));
+    assertFalse(ByteTrimmer.isValidUtf8(new byte[]{(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}));
+  }
+
+  @Test
+  void testCheckMatchesStringTrimmer() {
+    assertSameCheckAsStringTrimmer("clean\nété 😀\n");
+    assertSameCheckAsStringTrimmer("first\nsecond  \n");
+    assertSameCheckAsStringTrimmer("a\n\n\n\nb\n");
+    assertSameCheckAsStringTrimmer("keep\nnel \u0085\nmissing");
+    assertSameCheckAsStringTrimmer("end\n\n\n");
+  }
+
+  @Test
+  void testCheckReportsFirstLine() {
+    FileTrimmer.CheckResult result = new ByteTrimmer("ok\nok\nbad \n".getBytes(StandardCharsets.UTF_8), config)
+        .check();
+
+    assertEquals(FileTrimmer.Violation.TRAILING_WHITESPACE, result.getViolation());
+    assertEquals(3, result.getFirstLine());
+  }
+
+  @Test
+  void testRecordsSameEditScriptAsStringTrimmer() {
+    String content = "first  \n\n\n\n\tsecond\t\nété 😀   \n  \n\n\nlast  ";
+    EditScript expected = new EditScript();
+    new FileTrimmer(content, config).trim(expected);
+
+    EditScript script = new EditScript();
+    new ByteTrimmer(content.getBytes(StandardCharsets.UTF_8), config).trim(script);
+
+    assertEquals(expected.getEdits(), script.getEdits());
+  }
+
+  private void assertSameCheckAsStringTrimmer(String content) {
+    FileTrimmer.CheckResult expected = new FileTrimmer(content, config).check();
+
+    FileTrimmer.CheckResult result = new ByteTrimmer(content.getBytes(StandardCharsets.UTF_8), config).check();
+
+    assertEquals(expected.getViolation(), result.getViolation());
+    assertEquals(expected.getFirstLine(), result.getFirstLine());
+  }
+
+  private void assertSameAsStringTrimmer(String content) {
+    FileTrimmer.TrimResult expected = new FileTrimmer(content, config).trim();
+
+    ByteTrimmer.Result result = new ByteTrimmer(content.getBytes(StandardCharsets.UTF_8), config).trim();
+
+    assertArrayEquals(expected.getContent().getBytes(StandardCharsets.UTF_8), result.getContent());
+    assertEquals(expected.getLinesTrimmed(), result.getLinesTrimmed());
+    assertEquals(expected.getBlankLinesRemoved(), result.getBlankLinesRemoved());
+  }
+}
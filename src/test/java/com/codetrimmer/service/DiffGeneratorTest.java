@@ -2,14 +2,19 @@ package com.codetrimmer.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.codetrimmer.config.CodeTrimmerConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 /**
  * Tests for DiffGenerator service.
  */
 class DiffGeneratorTest {
 
+    private static final String[] LINES = {"w\n", "x\n", "y\n", "z\n", "\n"};
+
     private DiffGenerator diffGenerator;
 
     @BeforeEach
@@ -143,4 +148,156 @@ class DiffGeneratorTest {
         assertTrue(diff.contains("-line with $pecial ch@rs!"));
         assertTrue(diff.contains("+line with special chars"));
     }
+
+    @Test
+    void testHunkHeaderLineNumbers() {
+        String original = "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n";
+        String modified = "1\n2\n3\n4\n5\nsix\n7\n8\n9\n10\n";
+        String diff = diffGenerator.generateDiff(original, modified, "test.txt");
+
+        assertEquals("--- a/test.txt\n+++ b/test.txt\n"
+            + "@@ -3,7 +3,7 @@\n 3\n 4\n 5\n-6\n+six\n 7\n 8\n 9\n", diff);
+    }
+
+    @Test
+    void testCollapsedBlankLinesOnlyRemoveTheExtraLines() {
+        String original = "a\n\n\n\nb\n\n\n\n\nc\n";
+        String modified = "a\n\nb\n\nc\n";
+        String diff = diffGenerator.generateDiff(original, modified, "test.txt");
+
+        assertEquals(0, countLines(diff, '+'));
+        assertEquals(5, countLines(diff, '-'));
+    }
+
+    @Test
+    void testDistantChangesGetSeparateHunks() {
+        StringBuilder original = new StringBuilder();
+        for (int i = 1; i <= 30; i++) {
+            original.append("line").append(i).append("\n");
+        }
+        String modified = original.toString().replace("line2\n", "two\n").replace("line25\n", "twenty-five\n");
+        String diff = diffGenerator.generateDiff(original.toString(), modified, "test.txt");
+
+        assertTrue(diff.contains("@@ -1,5 +1,5 @@\n"));
+        assertTrue(diff.contains("@@ -22,7 +22,7 @@\n"));
+    }
+
+    @Test
+    void testNearbyChangesShareOneHunk() {
+        String original = "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n";
+        String modified = "1\ntwo\n3\n4\n5\n6\n7\neight\n9\n10\n";
+        String diff = diffGenerator.generateDiff(original, modified, "test.txt");
+
+        assertEquals(1, diff.lines().filter(line -> line.startsWith("@@ ")).count());
+        assertTrue(diff.contains("@@ -1,10 +1,10 @@\n"));
+    }
+
+    @Test
+    void testMissingNewlineAtEndOfFile() {
+        String diff = diffGenerator.generateDiff("a\nb", "a\nb\n", "test.txt");
+
+        assertEquals("--- a/test.txt\n+++ b/test.txt\n"
+            + "@@ -1,2 +1,2 @@\n a\n-b\n\\ No newline at end of file\n+b\n", diff);
+    }
+
+    @Test
+    void testBoundedSearchStillProducesACorrectDiff() {
+        StringBuilder original = new StringBuilder();
+        StringBuilder modified = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            original.append("line").append(i % 50).append("\n");
+            if (i % 3 != 0) {
+                modified.append("line").append(i % 50).append("\n");
+            }
+        }
+        String diff = new DiffGenerator(8).generateDiff(original.toString(), modified.toString(), "test.txt");
+
+        assertEquals(modified.toString(), apply(original.toString(), diff));
+    }
+
+    @Test
+    void testSmallBoundNeverSplitsARegionAtItsCorner() {
+        String original = "z\n\nw\n";
+        String modified = "y\ny\n\nw\n\n\n\nx\nx\n\n\n\nw\nz\nz\nx\ny\n\n";
+
+        String diff = new DiffGenerator(2).generateDiff(original, modified, "test.txt");
+
+        assertEquals(modified, apply(original, diff));
+    }
+
+    @Test
+    void testSmallBoundsProduceCorrectDiffsForRandomContent() {
+        Random random = new Random(42);
+        for (int run = 0; run < 2000; run++) {
+            String original = randomLines(random);
+            String modified = randomLines(random);
+            int bound = 1 + random.nextInt(6);
+
+            String diff = new DiffGenerator(bound).generateDiff(original, modified, "test.txt");
+
+            assertEquals(modified, apply(original, diff), "bound " + bound);
+        }
+    }
+
+    @Test
+    void testDiffFromEditScriptMatchesComparedDiff() {
+        String original = "keep\ntrailing  \nkeep\nkeep\nkeep\n\n\n\n\nend";
+        EditScript script = new EditScript();
+        String modified = new FileTrimmer(original, new CodeTrimmerConfig()).trim(script).getContent();
+
+        String diff = diffGenerator.generateDiff(original, script, "test.txt");
+
+        assertEquals(diffGenerator.generateDiff(original, modified, "test.txt"), diff);
+        assertTrue(diff.contains("@@ -1,10 +1,8 @@\n"));
+    }
+
+    @Test
+    void testEmptyEditScriptGivesNoDiff() {
+        assertEquals("", diffGenerator.generateDiff("line1\n", new EditScript(), "test.txt"));
+    }
+
+    private static String randomLines(Random random) {
+        StringBuilder lines = new StringBuilder();
+        int count = random.nextInt(24);
+        for (int i = 0; i < count; i++) {
+            lines.append(LINES[random.nextInt(LINES.length)]);
+        }
+        return lines.toString();
+    }
+
+    private static long countLines(String diff, char prefix) {
+        String header = String.valueOf(prefix).repeat(3) + " ";
+        return diff.lines()
+            .filter(line -> !line.isEmpty() && line.charAt(0) == prefix && !line.startsWith(header))
+            .count();
+    }
+
+    /**
+     * Applies a diff produced by the generator, which has no "\\" markers in these inputs.
+     */
+    private static String apply(String original, String diff) {
+        String[] lines = original.split("\n", -1);
+        StringBuilder result = new StringBuilder();
+        int next = 0;
+        for (String line : diff.split("\n")) {
+            if (line.startsWith("@@ ")) {
+                int start = Integer.parseInt(line.substring(4, line.indexOf(',')));
+                int from = line.substring(line.indexOf(',') + 1, line.indexOf(' ', 4)).equals("0") ? start : start - 1;
+                for (; next < from; next++) {
+                    result.append(lines[next]).append("\n");
+                }
+            } else if (line.startsWith(" ")) {
+                result.append(line.substring(1)).append("\n");
+                next++;
+            } else if (line.startsWith("-") && !line.startsWith("--- ")) {
+                next++;
+            } else if (line.startsWith("+") && !line.startsWith("+++ ")) {
+                result.append(line.substring(1)).append("\n");
+            }
+        }
+        for (; next < lines.length - 1; next++) {
+            result.append(lines[next]).append("\n");
+        }
+        return result.toString();
+    }
 }
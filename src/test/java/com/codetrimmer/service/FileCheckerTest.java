@@ -0,0 +1,114 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.error.CodeTrimmerException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileCheckerTest {
+
+  private FileChecker checker;
+  private CodeTrimmerConfig config;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setUp() {
+    config = new CodeTrimmerConfig();
+    checker = new FileChecker(config);
+  }
+
+  @Test
+  void testCleanTreePasses() throws Exception {
+    Files.writeString(tempDir.resolve("a.txt"), "clean\n");
+    Files.writeString(tempDir.resolve("b.txt"), "also clean\n");
+
+    FileChecker.CheckReport report = checker.checkDirectory(tempDir.toString());
+
+    assertEquals(2, report.getFilesChecked());
+    assertTrue(report.getFindings().isEmpty());
+    assertEquals(FileChecker.CheckReport.EXIT_CLEAN, report.getExitCode());
+  }
+
+  @Test
+  void testReportsFirstViolationPerFile() throws Exception {
+    Path file = tempDir.resolve("dirty.txt");
+    Files.writeString(file, "ok\nbad  \n\n\n\n");
+
+    FileChecker.CheckReport report = checker.checkDirectory(tempDir.toString());
+
+    assertEquals(1, report.getFindings().size());
+    FileChecker.Finding finding = report.getFindings().get(0);
+    assertEquals(file.toString(), finding.path());
+    assertEquals(FileTrimmer.Violation.TRAILING_WHITESPACE, finding.violation());
+    assertEquals(2, finding.line());
+    assertEquals(FileChecker.CheckReport.EXIT_VIOLATIONS, report.getExitCode());
+  }
+
+  @Test
+  void testDoesNotModifyFiles() throws Exception {
+    Path file = tempDir.resolve("dirty.txt");
+    Files.writeString(file, "trailing   ");
+
+    checker.checkDirectory(tempDir.toString());
+
+    assertEquals("trailing   ", Files.readString(file));
+    assertFalse(Files.exists(tempDir.resolve("dirty.txt.bak")));
+  }
+
+  @Test
+  void testSkipsBinaryFiles() throws Exception {
+    Files.write(tempDir.resolve("image.bin"), new byte[]{1, 0, ' ', ' '});
+
+    FileChecker.CheckReport report = checker.checkDirectory(tempDir.toString());
+
+    assertEquals(0, report.getFilesChecked());
+    assertEquals(FileChecker.CheckReport.EXIT_CLEAN, report.getExitCode());
+  }
+
+  @Test
+  void testMalformedUtf8IsAFailure() throws Exception {
+    Files.write(tempDir.resolve("latin1.txt"), new byte[]{'c', 'a', 'f', (byte) 0xE9, '\n'});
+
+    FileChecker.CheckReport report = checker.checkDirectory(tempDir.toString());
+
+    assertEquals(1, report.getFailures().size());
+    assertEquals("Not valid UTF-8", report.getFailures().get(0).reason());
+    assertEquals(FileChecker.CheckReport.EXIT_ERROR, report.getExitCode());
+  }
+
+  @Test
+  void testLargeFilesAreCheckedByStreaming() throws Exception {
+    config.setStreamingThreshold(4);
+    Files.writeString(tempDir.resolve("large.txt"), "content\n\n\n\nmore\n");
+
+    FileChecker.CheckReport report = checker.checkDirectory(tempDir.toString());
+
+    FileChecker.Finding finding = report.getFindings().get(0);
+    assertEquals(FileTrimmer.Violation.EXCESS_BLANK_LINES, finding.violation());
+    assertEquals(0, finding.line());
+  }
+
+  @Test
+  void testMissingDirectoryThrows() {
+    assertThrows(CodeTrimmerException.class, () -> checker.checkDirectory("/nonexistent/path/12345"));
+  }
+
+  @Test
+  void testChecksOnlyListedFiles() throws Exception {
+    Files.writeString(tempDir.resolve("listed.txt"), "clean\n");
+    Files.writeString(tempDir.resolve("unlisted.txt"), "dirty  \n");
+
+    FileChecker.CheckReport report = checker.checkFileList(tempDir, List.of(Path.of("listed.txt")));
+
+    assertEquals(1, report.getFilesChecked());
+    assertEquals(FileChecker.CheckReport.EXIT_CLEAN, report.getExitCode());
+  }
+}
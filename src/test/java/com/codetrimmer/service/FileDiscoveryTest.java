@@ -0,0 +1,256 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.error.CodeTrimmerException;
+import com.codetrimmer.model.FileEntry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileDiscoveryTest {
+
+  private CodeTrimmerConfig config;
+  private FileDiscovery discovery;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setUp() {
+    config = new CodeTrimmerConfig();
+    discovery = new FileDiscovery(config);
+  }
+
+  @Test
+  void testEntriesAreSortedAndCarryAttributes() throws Exception {
+    Files.createDirectories(tempDir.resolve("sub"));
+    Files.write(tempDir.resolve("sub/b.txt"), "bb\n".getBytes());
+    Files.write(tempDir.resolve("a.txt"), "a\n".getBytes());
+
+    List<FileEntry> entries = discovery.discover(tempDir);
+
+    assertEquals(2, entries.size());
+    assertEquals(tempDir.resolve("a.txt"), entries.get(0).path());
+    assertEquals(tempDir.resolve("sub/b.txt"), entries.get(1).path());
+    assertEquals(3, entries.get(1).size());
+    assertEquals(Files.getLastModifiedTime(tempDir.resolve("a.txt")), entries.get(0).lastModified());
+  }
+
+  @Test
+  void testStopsWalkingAtMaxFiles() throws Exception {
+    config.setMaxFiles(2);
+    for (int i = 0; i < 5; i++) {
+      Files.write(tempDir.resolve("file" + i + ".txt"), "x\n".getBytes());
+    }
+
+    assertEquals(2, discovery.discover(tempDir).size());
+  }
+
+  @Test
+  void testZeroMaxFilesFindsNothing() throws Exception {
+    config.setMaxFiles(0);
+    Files.write(tempDir.resolve("file.txt"), "x\n".getBytes());
+
+    assertTrue(discovery.discover(tempDir).isEmpty());
+  }
+
+  @Test
+  void testSkipsFilesOverMaxSize() throws Exception {
+    config.setMaxFileSize(4);
+    Files.write(tempDir.resolve("small.txt"), "abc\n".getBytes());
+    Files.write(tempDir.resolve("large.txt"), "abcdef\n".getBytes());
+
+    List<FileEntry> entries = discovery.discover(tempDir);
+
+    assertEquals(1, entries.size());
+    assertEquals(tempDir.resolve("small.txt"), entries.get(0).path());
+  }
+
+  @Test
+  void testSymlinksFollowedOnlyWhenEnabled() throws Exception {
+    Path target = tempDir.resolve("target.txt");
+    Files.write(target, "x\n".getBytes());
+    Files.createSymbolicLink(tempDir.resolve("link.txt"), target);
+    Files.createSymbolicLink(tempDir.resolve("broken.txt"), tempDir.resolve("missing.txt"));
+
+    assertEquals(1, discovery.discover(tempDir).size());
+
+    config.setFollowSymlinks(true);
+    List<FileEntry> entries = discovery.discover(tempDir);
+
+    assertEquals(2, entries.size());
+    assertEquals(tempDir.resolve("link.txt"), entries.get(0).path());
+    assertEquals(2, entries.get(0).size());
+  }
+
+  @Test
+  void testHiddenDirectoriesArePruned() throws Exception {
+    Files.createDirectories(tempDir.resolve(".git/refs"));
+    Files.write(tempDir.resolve(".git/config"), "x\n".getBytes());
+    Files.write(tempDir.resolve(".git/refs/main"), "x\n".getBytes());
+    Files.write(tempDir.resolve("a.txt"), "x\n".getBytes());
+
+    assertEquals(1, discovery.discover(tempDir).size());
+
+    config.setIncludeHidden(true);
+    assertEquals(3, discovery.discover(tempDir).size());
+  }
+
+  @Test
+  void testExcludedDirectoriesArePrunedByNameAndRelativePath() throws Exception {
+    config.setExcludeDirs("node_modules, src/gen*");
+    Files.createDirectories(tempDir.resolve("web/node_modules/pkg"));
+    Files.createDirectories(tempDir.resolve("src/generated"));
+    Files.createDirectories(tempDir.resolve("src/main"));
+    Files.write(tempDir.resolve("web/node_modules/pkg/index.js"), "x\n".getBytes());
+    Files.write(tempDir.resolve("src/generated/Gen.java"), "x\n".getBytes());
+    Files.write(tempDir.resolve("src/main/App.java"), "x\n".getBytes());
+
+    List<FileEntry> entries = discovery.discover(tempDir);
+
+    assertEquals(1, entries.size());
+    assertEquals(tempDir.resolve("src/main/App.java"), entries.get(0).path());
+  }
+
+  @Test
+  void testInvalidDirectoryPatternIsAConfigurationError() {
+    config.setExcludeDirs("build,[target");
+
+    CodeTrimmerException e = assertThrows(CodeTrimmerException.class, () -> discovery.discover(tempDir));
+
+    assertEquals("CT-0003", e.getErrorCode().getCode());
+  }
+
+  @Test
+  void testRootDirectoryIsNeverPruned() throws Exception {
+    Path root = tempDir.resolve(".hidden-root");
+    Files.createDirectories(root);
+    Files.write(root.resolve("a.txt"), "x\n".getBytes());
+
+    assertEquals(1, discovery.discover(root).size());
+  }
+
+  @Test
+  void testStateDirectoryIsPrunedEvenWithHiddenFilesIncluded() throws Exception {
+    config.setIncludeHidden(true);
+    Files.createDirectories(tempDir.resolve(FileIndex.STATE_DIRECTORY));
+    Files.write(tempDir.resolve(FileIndex.STATE_DIRECTORY).resolve("index.json"), "{}".getBytes());
+    Files.write(tempDir.resolve(".env"), "x\n".getBytes());
+
+    List<FileEntry> entries = discovery.discover(tempDir);
+
+    assertEquals(1, entries.size());
+    assertEquals(tempDir.resolve(".env"), entries.get(0).path());
+  }
+
+  @Test
+  void testBackupFilesAreNeverSelected() throws Exception {
+    Files.write(tempDir.resolve("a.txt"), "a\n".getBytes());
+    Files.write(tempDir.resolve("a.txt.bak"), "a   \n".getBytes());
+
+    List<FileEntry> entries = discovery.discover(tempDir);
+
+    assertEquals(1, entries.size());
+    assertEquals(tempDir.resolve("a.txt"), entries.get(0).path());
+    assertFalse(discovery.pathFilter().test(Path.of("a.txt.bak")));
+  }
+
+  @Test
+  void testRejectedFilesDoNotCountTowardsMaxFiles() throws Exception {
+    config.setMaxFiles(2);
+    for (int i = 0; i < 5; i++) {
+      Files.write(tempDir.resolve("file" + i + ".txt"), "x\n".getBytes());
+    }
+
+    List<FileEntry> entries = discovery.discover(tempDir,
+        entry -> !entry.path().getFileName().toString().startsWith("file0"));
+
+    assertEquals(2, entries.size());
+    assertTrue(entries.stream().noneMatch(e -> e.path().endsWith("file0.txt")));
+  }
+
+  @Test
+  void testSelectedFilesAreFilteredLikeDiscoveredFiles() throws Exception {
+    config.setExclude("*.png");
+    Files.createDirectories(tempDir.resolve(".git"));
+    Files.write(tempDir.resolve(".git/config"), "x\n".getBytes());
+    Files.write(tempDir.resolve("b.txt"), "bb\n".getBytes());
+    Files.write(tempDir.resolve("a.txt"), "a\n".getBytes());
+    Files.write(tempDir.resolve("image.png"), "x\n".getBytes());
+
+    List<FileEntry> entries = discovery.selectFiles(tempDir, List.of(
+        Path.of("b.txt"), Path.of("a.txt"), Path.of(".git/config"), Path.of("image.png")));
+
+    assertEquals(2, entries.size());
+    assertEquals(tempDir.resolve("a.txt"), entries.get(0).path());
+    assertEquals(tempDir.resolve("b.txt"), entries.get(1).path());
+    assertEquals(3, entries.get(1).size());
+  }
+
+  @Test
+  void testSelectedFilesSkipMissingFilesAndPathsOutsideRoot() throws Exception {
+    Path root = tempDir.resolve("root");
+    Files.createDirectories(root);
+    Files.write(tempDir.resolve("outside.txt"), "x\n".getBytes());
+    Files.write(root.resolve("inside.txt"), "x\n".getBytes());
+
+    List<FileEntry> entries = discovery.selectFiles(root, List.of(
+        Path.of("../outside.txt"), Path.of("deleted.txt"), Path.of("inside.txt")));
+
+    assertEquals(1, entries.size());
+    assertEquals(root.resolve("inside.txt"), entries.get(0).path());
+  }
+
+  @Test
+  void testSelectedFilesIgnoreMaxFiles() throws Exception {
+    config.setMaxFiles(1);
+    Files.write(tempDir.resolve("a.txt"), "x\n".getBytes());
+    Files.write(tempDir.resolve("b.txt"), "x\n".getBytes());
+
+    assertEquals(2, discovery.selectFiles(tempDir, List.of(Path.of("a.txt"), Path.of("b.txt"))).size());
+  }
+
+  @Test
+  void testSelectorPrunesDirectoriesAsAWalkWould() {
+    config.setExcludeDirs("src/gen*");
+
+    FileDiscovery.Selector selector = discovery.selector(tempDir);
+
+    assertFalse(selector.isPruned(tempDir));
+    assertFalse(selector.isPruned(tempDir.resolve("src/main")));
+    assertTrue(selector.isPruned(tempDir.resolve("src/generated")));
+    assertTrue(selector.isPruned(tempDir.resolve("src/generated/deep")));
+    assertTrue(selector.isPruned(tempDir.resolve(".git/refs")));
+    assertTrue(selector.isPruned(tempDir.resolve(".codetrimmer")));
+  }
+
+  @Test
+  void testSelectorSkipsDeletedFiles() throws Exception {
+    Files.write(tempDir.resolve("a.txt"), "x\n".getBytes());
+
+    List<FileEntry> entries = discovery.selector(tempDir).select(List.of(Path.of("a.txt"), Path.of("gone.txt")));
+
+    assertEquals(1, entries.size());
+  }
+
+  @Test
+  void testPathFilterAppliesNameRulesWithoutTouchingFiles() {
+    config.setExclude("*.log");
+    config.setExcludeDirs("build");
+
+    Predicate<Path> filter = discovery.pathFilter();
+
+    assertTrue(filter.test(Path.of("src/Main.java")));
+    assertFalse(filter.test(Path.of("build/out.txt")));
+    assertFalse(filter.test(Path.of(".github/ci.yml")));
+    assertFalse(filter.test(Path.of("src/.env")));
+    assertFalse(filter.test(Path.of("app.log")));
+    assertFalse(filter.test(Path.of("logo.png")));
+  }
+}
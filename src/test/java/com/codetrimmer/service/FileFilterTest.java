@@ -0,0 +1,83 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.codetrimmer.error.CodeTrimmerException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+class FileFilterTest {
+
+  @Test
+  void testIncludeAllMatchesEverything() {
+    FileFilter filter = FileFilter.compile("*", "");
+
+    assertTrue(filter.accepts(Path.of("a.txt")));
+    assertTrue(filter.accepts(Path.of("Makefile")));
+  }
+
+  @Test
+  void testPlainExtensionsAreCaseInsensitive() {
+    FileFilter filter = FileFilter.compile("js, .MD", "");
+
+    assertTrue(filter.accepts(Path.of("app.JS")));
+    assertTrue(filter.accepts(Path.of("docs/README.md")));
+    assertFalse(filter.accepts(Path.of("app.jsx")));
+  }
+
+  @Test
+  void testMultiDotSuffixes() {
+    FileFilter filter = FileFilter.compile("js", "min.js");
+
+    assertTrue(filter.accepts(Path.of("app.js")));
+    assertFalse(filter.accepts(Path.of("jquery.min.js")));
+  }
+
+  @Test
+  void testBarePatternMatchesNameWithoutExtension() {
+    FileFilter filter = FileFilter.compile("makefile", "");
+
+    assertTrue(filter.accepts(Path.of("Makefile")));
+    assertFalse(filter.accepts(Path.of("makefile.bak")));
+  }
+
+  @Test
+  void testWildcardExtensionUsesSuffixLookup() {
+    FileFilter filter = FileFilter.compile("*", "*.bak");
+
+    assertFalse(filter.accepts(Path.of("file.bak")));
+    assertTrue(filter.accepts(Path.of("file.txt")));
+  }
+
+  @Test
+  void testNameGlobs() {
+    FileFilter filter = FileFilter.compile("test-*.js", "");
+
+    assertTrue(filter.accepts(Path.of("src/test-utils.js")));
+    assertFalse(filter.accepts(Path.of("src/utils.js")));
+  }
+
+  @Test
+  void testPathGlobsMatchRelativePath() {
+    FileFilter filter = FileFilter.compile("src/**/*.java", "src/generated/**");
+
+    assertTrue(filter.accepts(Path.of("src/main/App.java")));
+    assertFalse(filter.accepts(Path.of("src/generated/Gen.java")));
+    assertFalse(filter.accepts(Path.of("test/AppTest.java")));
+  }
+
+  @Test
+  void testEmptyIncludeMatchesNothing() {
+    FileFilter filter = FileFilter.compile("", "");
+
+    assertFalse(filter.accepts(Path.of("a.txt")));
+  }
+
+  @Test
+  void testInvalidGlobThrows() {
+    CodeTrimmerException e = assertThrows(CodeTrimmerException.class,
+        () -> FileFilter.compile("[abc", ""));
+
+    assertEquals("CT-0003", e.getErrorCode().getCode());
+  }
+}
@@ -0,0 +1,169 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.config.TrimmerConfig;
+import com.codetrimmer.model.FileEntry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileIndexTest {
+
+  private CodeTrimmerConfig config;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setUp() {
+    config = new CodeTrimmerConfig();
+  }
+
+  @Test
+  void testRecordedFileIsUnchangedAfterReload() throws Exception {
+    FileEntry entry = agedEntry("file.txt", "clean\n");
+    FileIndex index = FileIndex.load(tempDir, config);
+    index.record(entry, FileIndex.hash("clean\n".getBytes()));
+    index.save();
+
+    assertTrue(FileIndex.load(tempDir, config).isUnchanged(entry));
+  }
+
+  @Test
+  void testMissingIndexKnowsNothing() throws Exception {
+    FileEntry entry = agedEntry("file.txt", "clean\n");
+
+    FileIndex index = FileIndex.load(tempDir, config);
+
+    assertFalse(index.isUnchanged(entry));
+    assertFalse(index.isKnownClean(entry, FileIndex.hash("clean\n".getBytes())));
+  }
+
+  @Test
+  void testChangedSizeOrTimeIsNotUnchanged() throws Exception {
+    FileEntry entry = agedEntry("file.txt", "clean\n");
+    FileIndex index = FileIndex.load(tempDir, config);
+    index.record(entry, FileIndex.hash("clean\n".getBytes()));
+    index.save();
+
+    FileEntry touched = new FileEntry(entry.path(), entry.size(),
+        FileTime.fromMillis(entry.lastModified().toMillis() + 1000));
+    FileEntry resized = new FileEntry(entry.path(), entry.size() + 1, entry.lastModified());
+    FileIndex reloaded = FileIndex.load(tempDir, config);
+
+    assertFalse(reloaded.isUnchanged(touched));
+    assertFalse(reloaded.isUnchanged(resized));
+    assertTrue(reloaded.isKnownClean(touched, FileIndex.hash("clean\n".getBytes())));
+  }
+
+  @Test
+  void testRecentlyModifiedFileIsNotTrustedByStat() throws Exception {
+    Path file = tempDir.resolve("file.txt");
+    Files.writeString(file, "clean\n");
+    FileEntry entry = FileEntry.of(file, Files.readAttributes(file, BasicFileAttributes.class));
+    FileIndex index = FileIndex.load(tempDir, config);
+    index.record(entry, FileIndex.hash("clean\n".getBytes()));
+    index.save();
+
+    assertFalse(FileIndex.load(tempDir, config).isUnchanged(entry));
+  }
+
+  @Test
+  void testUnvisitedEntriesAreDroppedOnSave() throws Exception {
+    FileEntry kept = agedEntry("kept.txt", "a\n");
+    FileEntry gone = agedEntry("gone.txt", "b\n");
+    FileIndex index = FileIndex.load(tempDir, config);
+    index.record(kept, FileIndex.hash("a\n".getBytes()));
+    index.record(gone, FileIndex.hash("b\n".getBytes()));
+    index.save();
+
+    FileIndex second = FileIndex.load(tempDir, config);
+    assertTrue(second.isUnchanged(kept));
+    second.save();
+
+    FileIndex third = FileIndex.load(tempDir, config);
+    assertTrue(third.isUnchanged(kept));
+    assertFalse(third.isUnchanged(gone));
+  }
+
+  @Test
+  void testSaveDoesNotDependOnAFixedTemporaryName() throws Exception {
+    Path state = Files.createDirectories(tempDir.resolve(FileIndex.STATE_DIRECTORY));
+    Files.createDirectory(state.resolve("index.json.tmp"));
+    FileEntry entry = agedEntry("a.txt", "a\n");
+    FileIndex index = FileIndex.load(tempDir, config);
+    index.record(entry, FileIndex.hash("a\n".getBytes()));
+
+    index.save();
+
+    assertTrue(FileIndex.load(tempDir, config).isUnchanged(entry));
+    try (Stream<Path> files = Files.list(state)) {
+      assertEquals(List.of("index.json", "index.json.tmp"),
+          files.map(path -> path.getFileName().toString()).sorted().toList());
+    }
+  }
+
+  @Test
+  void testFingerprintCoversWhitespaceSettingsAndRules() {
+    String original = FileIndex.fingerprint(config);
+
+    config.setEnsureFinalNewline(false);
+    String changedSetting = FileIndex.fingerprint(config);
+
+    TrimmerConfig.TrimRule rule = new TrimmerConfig.TrimRule();
+    rule.setName("tabs");
+    rule.setPattern("\t");
+    rule.setReplacement("  ");
+    config.setRules(List.of(rule));
+    String changedRules = FileIndex.fingerprint(config);
+
+    assertNotEquals(original, changedSetting);
+    assertNotEquals(changedSetting, changedRules);
+  }
+
+  @Test
+  void testFingerprintIgnoresOutputSettings() {
+    String original = FileIndex.fingerprint(config);
+
+    config.setVerbose(true);
+    config.setParallel(true);
+
+    assertEquals(original, FileIndex.fingerprint(config));
+  }
+
+  @Test
+  void testSettingsChangeInvalidatesIndex() throws Exception {
+    FileEntry entry = agedEntry("file.txt", "clean\n");
+    FileIndex index = FileIndex.load(tempDir, config);
+    index.record(entry, FileIndex.hash("clean\n".getBytes()));
+    index.save();
+
+    config.setTrimTrailingWhitespace(false);
+
+    assertFalse(FileIndex.load(tempDir, config).isUnchanged(entry));
+  }
+
+  @Test
+  void testCorruptIndexIsIgnored() throws Exception {
+    FileEntry entry = agedEntry("file.txt", "clean\n");
+    Files.createDirectories(tempDir.resolve(FileIndex.STATE_DIRECTORY));
+    Files.writeString(tempDir.resolve(FileIndex.STATE_DIRECTORY).resolve("index.json"), "not json");
+
+    assertFalse(FileIndex.load(tempDir, config).isUnchanged(entry));
+  }
+
+  private FileEntry agedEntry(String name, String content) throws Exception {
+    Path file = tempDir.resolve(name);
+    Files.writeString(file, content);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+    return FileEntry.of(file, Files.readAttributes(file, BasicFileAttributes.class));
+  }
+}
@@ -3,10 +3,15 @@ package com.codetrimmer.service;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.model.FileEntry;
 import com.codetrimmer.model.FileProcessingResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.List;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -98,6 +103,32 @@ class FileProcessingServiceTest {
     assertNotNull(results);
   }
 
+  @Test
+  void testDryRunWithDiffReportsDiffRelativeToDirectory() throws Exception {
+    config.setDryRun(true);
+    config.setDiff(true);
+    Path file = tempDir.resolve("src/a.txt");
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, "x  \n");
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertEquals(1, results.size());
+    assertEquals("--- a/src/a.txt\n+++ b/src/a.txt\n@@ -1,1 +1,1 @@\n-x  \n+x\n", results.get(0).getDiff());
+    assertEquals("x  \n", Files.readString(file));
+  }
+
+  @Test
+  void testDiffIsOnlyRenderedOnDryRuns() throws Exception {
+    config.setDiff(true);
+    Files.writeString(tempDir.resolve("a.txt"), "x  \n");
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertTrue(results.get(0).isModified());
+    assertEquals("", results.get(0).getDiff());
+  }
+
   @Test
   void testProcessDirectoryWithBackup() throws Exception {
     config.setCreateBackups(true);
@@ -336,4 +367,391 @@ class FileProcessingServiceTest {
     assertNotNull(results);
     assertTrue(results.size() >= 0);
   }
+
+  @Test
+  void testParallelModeReturnsResultsInPathOrder() throws Exception {
+    config.setParallel(true);
+    config.setThreads(4);
+    for (int i = 0; i < 20; i++) {
+      Files.write(tempDir.resolve(String.format("file%02d.txt", i)), "test  \n".getBytes());
+    }
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertEquals(20, results.size());
+    for (int i = 0; i < 20; i++) {
+      assertTrue(results.get(i).getFilePath().endsWith(String.format("file%02d.txt", i)));
+      assertTrue(results.get(i).isModified());
+    }
+    assertEquals(20, service.getStatistics().getFilesScanned());
+    assertEquals(20, service.getStatistics().getFilesModified());
+    assertEquals(20, service.getStatistics().getLinesTrimmed());
+  }
+
+  @Test
+  void testParallelModeFailFastStopsPendingFiles() throws Exception {
+    config.setParallel(true);
+    config.setThreads(1);
+    config.setFailFast(true);
+    Files.write(tempDir.resolve("a.txt"), new byte[]{'a', (byte) 0xC3, '(', '\n'});
+    Files.write(tempDir.resolve("b.txt"), "test  \n".getBytes());
+    Files.write(tempDir.resolve("c.txt"), "test  \n".getBytes());
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertEquals(1, results.size());
+    assertTrue(results.get(0).isSkipped());
+    assertEquals("test  \n", Files.readString(tempDir.resolve("b.txt")));
+  }
+
+  @Test
+  void testParallelModeWithoutFailFastProcessesAllFiles() throws Exception {
+    config.setParallel(true);
+    config.setThreads(2);
+    Files.write(tempDir.resolve("a.txt"), new byte[]{'a', (byte) 0xC3, '(', '\n'});
+    Files.write(tempDir.resolve("b.txt"), "test  \n".getBytes());
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertEquals(2, results.size());
+    assertTrue(results.get(0).isSkipped());
+    assertTrue(results.get(1).isModified());
+  }
+
+  @Test
+  void testVirtualThreadModeProcessesAllFiles() throws Exception {
+    config.setVirtualThreads(true);
+    config.setMaxConcurrentIo(3);
+    for (int i = 0; i < 10; i++) {
+      Files.write(tempDir.resolve("file" + i + ".txt"), "test  \n".getBytes());
+    }
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertEquals(10, results.size());
+    assertTrue(results.stream().allMatch(FileProcessingResult::isModified));
+    int peak = service.getStatistics().getPeakConcurrency();
+    assertTrue(peak >= 1 && peak <= 3, "peak concurrency was " + peak);
+  }
+
+  @Test
+  void testSequentialModeDoesNotRecordConcurrency() throws Exception {
+    Files.write(tempDir.resolve("file1.txt"), "test\n".getBytes());
+    Files.write(tempDir.resolve("file2.txt"), "test\n".getBytes());
+
+    service.processDirectory(tempDir.toString());
+
+    assertEquals(0, service.getStatistics().getPeakConcurrency());
+  }
+
+  @Test
+  void testBinaryContentSkippedWhenRead() throws Exception {
+    Files.write(tempDir.resolve("data.txt"), new byte[]{'a', 0x00, 'b'});
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertEquals(1, results.size());
+    assertTrue(results.get(0).isSkipped());
+    assertEquals("Binary file", results.get(0).getSkipReason());
+    assertEquals(1, service.getStatistics().getFilesSkippedBinary());
+  }
+
+  @Test
+  void testBinaryContentDoesNotUseUpTheFileLimit() throws Exception {
+    config.setMaxFiles(1);
+    for (String name : List.of("a.txt", "c.txt", "d.txt")) {
+      Files.write(tempDir.resolve(name), new byte[]{'a', 0x00, 'b'});
+    }
+    Files.writeString(tempDir.resolve("b.txt"), "text   \n");
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertEquals(2, results.size());
+    assertTrue(results.get(0).getFilePath().endsWith("a.txt"));
+    assertEquals("Binary file", results.get(0).getSkipReason());
+    assertTrue(results.get(1).getFilePath().endsWith("b.txt"));
+    assertTrue(results.get(1).isModified());
+    assertEquals(2, service.getStatistics().getFilesScanned());
+  }
+
+  @Test
+  void testParallelModeFillsTheFileLimitWithTextFiles() throws Exception {
+    config.setParallel(true);
+    config.setMaxFiles(2);
+    for (String name : List.of("a.txt", "b.txt", "c.txt", "d.txt", "e.txt")) {
+      Files.writeString(tempDir.resolve(name), "text   \n");
+    }
+    Files.write(tempDir.resolve("a.txt"), new byte[]{'a', 0x00, 'b'});
+    Files.write(tempDir.resolve("c.txt"), new byte[]{'a', 0x00, 'b'});
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertEquals(List.of("a.txt", "b.txt", "c.txt", "d.txt"),
+        results.stream().map(result -> Path.of(result.getFilePath()).getFileName().toString()).toList());
+    assertEquals(2, service.getStatistics().getFilesModified());
+    assertEquals("text   \n", Files.readString(tempDir.resolve("e.txt")));
+  }
+
+  @Test
+  void testFileLargerThanSniffedPrefixIsTrimmedCompletely() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      content.append("line ").append(i).append("  \n");
+    }
+    Path file = tempDir.resolve("large.txt");
+    Files.writeString(file, content.toString());
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertEquals(2000, results.get(0).getLinesTrimmed());
+    String trimmed = Files.readString(file);
+    assertTrue(trimmed.startsWith("line 0\nline 1\n"));
+    assertTrue(trimmed.endsWith("line 1999\n"));
+    assertEquals(content.toString(), Files.readString(tempDir.resolve("large.txt.bak")));
+  }
+
+  @Test
+  void testIncrementalModeSkipsFilesUnchangedSinceLastCleanRun() throws Exception {
+    config.setIncremental(true);
+    writeAged(tempDir.resolve("a.txt"), "clean\n");
+    writeAged(tempDir.resolve("b.txt"), "also clean\n");
+    service.processDirectory(tempDir.toString());
+
+    FileProcessingService rerun = new FileProcessingService(config);
+    List<FileProcessingResult> results = rerun.processDirectory(tempDir.toString());
+
+    assertTrue(results.isEmpty());
+    assertEquals(2, rerun.getStatistics().getIndexHits());
+    assertEquals(0, rerun.getStatistics().getIndexMisses());
+  }
+
+  @Test
+  void testIncrementalModeRecognisesTrimmedFileByContent() throws Exception {
+    config.setIncremental(true);
+    config.setCreateBackups(false);
+    Path file = tempDir.resolve("file.txt");
+    writeAged(file, "dirty  \n");
+    service.processDirectory(tempDir.toString());
+    age(file);
+
+    FileProcessingService rerun = new FileProcessingService(config);
+    List<FileProcessingResult> results = rerun.processDirectory(tempDir.toString());
+    FileProcessingService third = new FileProcessingService(config);
+    third.processDirectory(tempDir.toString());
+
+    assertEquals(1, rerun.getStatistics().getIndexMisses());
+    assertFalse(results.get(0).isModified());
+    assertEquals(1, third.getStatistics().getIndexHits());
+  }
+
+  @Test
+  void testIncrementalModeReprocessesEditedFiles() throws Exception {
+    config.setIncremental(true);
+    Path file = tempDir.resolve("file.txt");
+    writeAged(file, "clean\n");
+    service.processDirectory(tempDir.toString());
+
+    writeAged(file, "edited   \n");
+    FileProcessingService rerun = new FileProcessingService(config);
+    List<FileProcessingResult> results = rerun.processDirectory(tempDir.toString());
+
+    assertEquals(1, results.size());
+    assertTrue(results.get(0).isModified());
+    assertEquals("edited\n", Files.readString(file));
+    assertEquals(1, rerun.getStatistics().getIndexMisses());
+  }
+
+  @Test
+  void testIncrementalModeInvalidatedByTrimmingSettings() throws Exception {
+    config.setIncremental(true);
+    config.setCreateBackups(false);
+    Path file = tempDir.resolve("file.txt");
+    writeAged(file, "a\n\n\nb\n");
+    service.processDirectory(tempDir.toString());
+
+    config.setMaxConsecutiveBlankLines(1);
+    FileProcessingService rerun = new FileProcessingService(config);
+    rerun.processDirectory(tempDir.toString());
+
+    assertEquals(0, rerun.getStatistics().getIndexHits());
+    assertEquals("a\n\nb\n", Files.readString(file));
+  }
+
+  @Test
+  void testIncrementalDryRunDoesNotWriteIndex() throws Exception {
+    config.setIncremental(true);
+    config.setDryRun(true);
+    writeAged(tempDir.resolve("file.txt"), "clean\n");
+
+    service.processDirectory(tempDir.toString());
+
+    assertFalse(Files.exists(tempDir.resolve(FileIndex.STATE_DIRECTORY)));
+  }
+
+  @Test
+  void testFilesAboveStreamingThresholdAreTrimmedInPlace() throws Exception {
+    config.setStreamingThreshold(16);
+    Path file = tempDir.resolve("large.txt");
+    Files.writeString(file, "line one   \n\n\n\nline two\t");
+    Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertTrue(results.get(0).isModified());
+    assertEquals(2, results.get(0).getLinesTrimmed());
+    assertEquals(1, results.get(0).getBlankLinesRemoved());
+    assertEquals("line one\n\n\nline two\n", Files.readString(file));
+    assertEquals("line one   \n\n\n\nline two\t", Files.readString(tempDir.resolve("large.txt.bak")));
+    assertEquals("rw-r-----", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+  }
+
+  @Test
+  void testStreamingDryRunLeavesFileUntouched() throws Exception {
+    config.setStreamingThreshold(0);
+    config.setDryRun(true);
+    Path file = tempDir.resolve("file.txt");
+    Files.writeString(file, "trailing   \n");
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertTrue(results.get(0).isModified());
+    assertEquals("trailing   \n", Files.readString(file));
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  void testModifiedFilesAreReplacedKeepingPermissions() throws Exception {
+    config.setCreateBackups(false);
+    Path file = tempDir.resolve("file.txt");
+    Files.writeString(file, "trailing   \n");
+    Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-x---"));
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertTrue(results.get(0).isModified());
+    assertEquals("trailing\n", Files.readString(file));
+    assertEquals("rwxr-x---", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  void testBackupIsTheOriginalFileRatherThanACopy() throws Exception {
+    Path file = tempDir.resolve("file.txt");
+    Files.writeString(file, "trailing   \n");
+    Object originalKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+
+    service.processDirectory(tempDir.toString());
+
+    Path backup = tempDir.resolve("file.txt.bak");
+    assertEquals("trailing   \n", Files.readString(backup));
+    assertEquals("trailing\n", Files.readString(file));
+    if (originalKey != null) {
+      assertEquals(originalKey, Files.readAttributes(backup, BasicFileAttributes.class).fileKey());
+    }
+  }
+
+  @Test
+  void testSymbolicLinkIsKeptAndItsTargetReplaced() throws Exception {
+    config.setFollowSymlinks(true);
+    Path dir = Files.createDirectories(tempDir.resolve("src"));
+    Path target = Files.createDirectories(tempDir.resolve("elsewhere")).resolve("target.txt");
+    Files.writeString(target, "trailing   \n");
+    Path link = Files.createSymbolicLink(dir.resolve("link.txt"), target);
+
+    service.processDirectory(dir.toString());
+
+    assertTrue(Files.isSymbolicLink(link));
+    assertEquals("trailing\n", Files.readString(target));
+    assertEquals("trailing   \n", Files.readString(dir.resolve("link.txt.bak")));
+  }
+
+  @Test
+  void testHardLinkedFileIsWrittenInPlace() throws Exception {
+    Path dir = Files.createDirectories(tempDir.resolve("src"));
+    Path file = dir.resolve("file.txt");
+    Files.writeString(file, "trailing   \n");
+    Path other = Files.createLink(tempDir.resolve("other.txt"), file);
+
+    service.processDirectory(dir.toString());
+
+    assertEquals("trailing\n", Files.readString(other));
+    assertTrue(Files.isSameFile(file, other));
+    assertEquals("trailing   \n", Files.readString(dir.resolve("file.txt.bak")));
+  }
+
+  @Test
+  void testExistingBackupIsReplaced() throws Exception {
+    Path file = tempDir.resolve("file.txt");
+    Files.writeString(file, "trailing   \n");
+    Files.writeString(tempDir.resolve("file.txt.bak"), "older backup\n");
+    config.setExclude("*.bak");
+
+    service.processDirectory(tempDir.toString());
+
+    assertEquals("trailing   \n", Files.readString(tempDir.resolve("file.txt.bak")));
+  }
+
+  @Test
+  void testSyncWritesFlushesReplacedFiles() throws Exception {
+    config.setSyncWrites(true);
+    config.setParallel(true);
+    Files.createDirectories(tempDir.resolve("sub"));
+    Files.writeString(tempDir.resolve("a.txt"), "trailing   \n");
+    Files.writeString(tempDir.resolve("sub/b.txt"), "trailing   \n");
+
+    List<FileProcessingResult> results = service.processDirectory(tempDir.toString());
+
+    assertTrue(results.stream().allMatch(FileProcessingResult::isModified));
+    assertEquals("trailing\n", Files.readString(tempDir.resolve("a.txt")));
+    assertEquals("trailing\n", Files.readString(tempDir.resolve("sub/b.txt")));
+  }
+
+  @Test
+  void testIncrementalModeKeepsEntriesOfFilesBeyondTheFileLimit() throws Exception {
+    config.setIncremental(true);
+    config.setCreateBackups(false);
+    for (String name : List.of("a.txt", "b.txt", "c.txt")) {
+      writeAged(tempDir.resolve(name), "clean\n");
+    }
+    service.processDirectory(tempDir.toString());
+    Path last = tempDir.resolve("c.txt");
+    for (Path file : List.of(tempDir.resolve("b.txt"), last)) {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+    }
+
+    config.setMaxFiles(1);
+    FileProcessingService rerun = new FileProcessingService(config);
+    rerun.processDirectory(tempDir.toString());
+
+    assertEquals(1, rerun.getStatistics().getFilesScanned());
+    FileEntry entry = FileEntry.of(last, Files.readAttributes(last, BasicFileAttributes.class));
+    assertTrue(FileIndex.load(tempDir, config).isKnownClean(entry, FileIndex.hash("clean\n".getBytes())));
+  }
+
+  private void writeAged(Path file, String content) throws Exception {
+    Files.writeString(file, content);
+    age(file);
+  }
+
+  /** Moves a file's mtime out of the index's racy window so a stat match is trusted. */
+  private void age(Path file) throws Exception {
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+  }
+
+  @Test
+  void testProcessFileListTrimsOnlyListedFiles() throws Exception {
+    Files.write(tempDir.resolve("listed.txt"), "trailing  \n".getBytes());
+    Files.write(tempDir.resolve("unlisted.txt"), "trailing  \n".getBytes());
+
+    List<FileProcessingResult> results = service.processFileList(tempDir, List.of(Path.of("listed.txt")));
+
+    assertEquals(1, results.size());
+    assertTrue(results.get(0).isModified());
+    assertEquals("trailing\n", Files.readString(tempDir.resolve("listed.txt")));
+    assertEquals("trailing  \n", Files.readString(tempDir.resolve("unlisted.txt")));
+  }
 }
@@ -1,5 +1,7 @@
 package com.codetrimmer.service;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -345,4 +347,163 @@ public class FileTrimmerTest {
     assertNotNull(result);
     assertTrue(result.getContent().contains("!@#$%^&*()"));
   }
+
+  @Test
+  public void testCountsTrimmedAndRemovedLines() {
+    String input = "a  \n\t\n\n\n\nb \n";
+    config.setMaxConsecutiveBlankLines(2);
+
+    trimmer = new FileTrimmer(input, config);
+    FileTrimmer.TrimResult result = trimmer.trim();
+
+    assertEquals("a\n\n\nb\n", result.getContent());
+    assertEquals(3, result.getLinesTrimmed());
+    assertEquals(2, result.getBlankLinesRemoved());
+  }
+
+  @Test
+  public void testTrailingBlankLinesCollapsedToSingleNewline() {
+    String input = "a\n\n\n\n";
+    config.setMaxConsecutiveBlankLines(1);
+
+    trimmer = new FileTrimmer(input, config);
+    FileTrimmer.TrimResult result = trimmer.trim();
+
+    assertEquals("a\n", result.getContent());
+    assertEquals(3, result.getBlankLinesRemoved());
+  }
+
+  @Test
+  public void testUnchangedContentReturnsSameInstance() {
+    String input = "clean\n\nfile\n";
+
+    trimmer = new FileTrimmer(input, config);
+    FileTrimmer.TrimResult result = trimmer.trim();
+
+    assertSame(input, result.getContent());
+    assertEquals(0, result.getLinesTrimmed());
+    assertEquals(0, result.getBlankLinesRemoved());
+  }
+
+  @Test
+  public void testBlankLinesKeptVerbatimWhenNotTrimming() {
+    String input = "a\n  \n\t\nb";
+    config.setTrimTrailingWhitespace(false);
+    config.setEnsureFinalNewline(false);
+    config.setMaxConsecutiveBlankLines(1);
+
+    trimmer = new FileTrimmer(input, config);
+    FileTrimmer.TrimResult result = trimmer.trim();
+
+    assertEquals("a\n  \nb", result.getContent());
+    assertEquals(0, result.getLinesTrimmed());
+    assertEquals(1, result.getBlankLinesRemoved());
+  }
+
+  @Test
+  public void testCarriageReturnTrimmedAsWhitespace() {
+    String input = "line1 \r\nline2\r\n";
+
+    trimmer = new FileTrimmer(input, config);
+    FileTrimmer.TrimResult result = trimmer.trim();
+
+    assertEquals("line1\nline2\n", result.getContent());
+    assertEquals(2, result.getLinesTrimmed());
+  }
+
+  @Test
+  public void testCheckCleanContent() {
+    trimmer = new FileTrimmer("clean\ncontent\n", config);
+    FileTrimmer.CheckResult result = trimmer.check();
+
+    assertFalse(result.needsTrimming());
+    assertNull(result.getViolation());
+    assertEquals(0, result.getFirstLine());
+  }
+
+  @Test
+  public void testCheckReportsFirstTrailingWhitespace() {
+    trimmer = new FileTrimmer("ok\nbad  \nworse\t\n", config);
+    FileTrimmer.CheckResult result = trimmer.check();
+
+    assertTrue(result.needsTrimming());
+    assertEquals(FileTrimmer.Violation.TRAILING_WHITESPACE, result.getViolation());
+    assertEquals(2, result.getFirstLine());
+  }
+
+  @Test
+  public void testCheckReportsExcessBlankLine() {
+    trimmer = new FileTrimmer("a\n\n\n\nb\n", config);
+    FileTrimmer.CheckResult result = trimmer.check();
+
+    assertEquals(FileTrimmer.Violation.EXCESS_BLANK_LINES, result.getViolation());
+    assertEquals(4, result.getFirstLine());
+  }
+
+  @Test
+  public void testCheckReportsMissingFinalNewline() {
+    trimmer = new FileTrimmer("a\nb", config);
+    FileTrimmer.CheckResult result = trimmer.check();
+
+    assertEquals(FileTrimmer.Violation.FINAL_NEWLINE, result.getViolation());
+    assertEquals(2, result.getFirstLine());
+  }
+
+  @Test
+  public void testCheckReportsSurplusFinalNewlines() {
+    trimmer = new FileTrimmer("a\n\n", config);
+    FileTrimmer.CheckResult result = trimmer.check();
+
+    assertEquals(FileTrimmer.Violation.FINAL_NEWLINE, result.getViolation());
+    assertEquals(2, result.getFirstLine());
+  }
+
+  @Test
+  public void testCheckAgreesWithTrimOnLoneNewline() {
+    config.setMaxConsecutiveBlankLines(0);
+    trimmer = new FileTrimmer("\n", config);
+
+    assertFalse(trimmer.check().needsTrimming());
+    assertEquals("\n", trimmer.trim().getContent());
+  }
+
+  @Test
+  public void testCheckHonorsDisabledRules() {
+    config.setTrimTrailingWhitespace(false);
+    config.setEnsureFinalNewline(false);
+    trimmer = new FileTrimmer("a  \nb", config);
+
+    assertFalse(trimmer.check().needsTrimming());
+  }
+
+  @Test
+  public void testTrimRecordsEditScript() {
+    EditScript script = new EditScript();
+    new FileTrimmer("a  \n\n\n\n\nb", config).trim(script);
+
+    assertEquals(List.of(
+        new EditScript.Edit(0, EditScript.Operation.REPLACE, "a\n"),
+        new EditScript.Edit(3, EditScript.Operation.DELETE, null),
+        new EditScript.Edit(4, EditScript.Operation.DELETE, null),
+        new EditScript.Edit(5, EditScript.Operation.REPLACE, "b\n")), script.getEdits());
+  }
+
+  @Test
+  public void testTrimRecordsSurplusTrailingNewlinesAsDeleted() {
+    EditScript script = new EditScript();
+    new FileTrimmer("a\n\n\n", config).trim(script);
+
+    assertEquals(List.of(
+        new EditScript.Edit(1, EditScript.Operation.DELETE, null),
+        new EditScript.Edit(2, EditScript.Operation.DELETE, null)), script.getEdits());
+  }
+
+  @Test
+  public void testTrimRecordsNothingForCleanContent() {
+    EditScript script = new EditScript();
+    config.setMaxConsecutiveBlankLines(0);
+    new FileTrimmer("\n", config).trim(script);
+
+    assertTrue(script.isEmpty());
+  }
 }
@@ -0,0 +1,104 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.model.FileProcessingResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileWatcherTest {
+
+  private CodeTrimmerConfig config;
+  private FileWatcher watcher;
+  private Thread thread;
+  private final List<FileProcessingResult> results = new CopyOnWriteArrayList<>();
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setUp() {
+    config = new CodeTrimmerConfig();
+    config.setWatchDebounceMs(50);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    watcher.close();
+    thread.join(5000);
+  }
+
+  @Test
+  void testTrimsFilesAsTheyAreSaved() throws Exception {
+    Files.createDirectories(tempDir.resolve("src"));
+    start();
+
+    Path file = tempDir.resolve("src/a.txt");
+    Files.writeString(file, "dirty  \n");
+
+    awaitResult(file);
+    assertEquals("dirty\n", Files.readString(file));
+  }
+
+  @Test
+  void testWatchesDirectoriesCreatedWhileRunning() throws Exception {
+    start();
+
+    Files.createDirectories(tempDir.resolve("new/nested"));
+    Path file = tempDir.resolve("new/nested/b.txt");
+    Files.writeString(file, "dirty  \n");
+
+    awaitResult(file);
+    assertEquals("dirty\n", Files.readString(file));
+  }
+
+  @Test
+  void testSkipsPrunedDirectories() throws Exception {
+    Files.createDirectories(tempDir.resolve(".git"));
+    start();
+
+    assertEquals(1, watcher.getWatchedDirectoryCount());
+  }
+
+  @Test
+  void testIgnoresBackupFiles() throws Exception {
+    config.setCreateBackups(true);
+    start();
+
+    Path file = tempDir.resolve("a.txt");
+    Files.writeString(file, "dirty  \n");
+
+    awaitResult(file);
+    Thread.sleep(500);
+    assertEquals("dirty  \n", Files.readString(tempDir.resolve("a.txt.bak")));
+    assertTrue(results.stream().noneMatch(result -> result.getFilePath().endsWith(".bak")));
+  }
+
+  private void start() throws Exception {
+    watcher = new FileProcessingService(config).watch(tempDir);
+    thread = new Thread(() -> {
+      try {
+        watcher.run(results::addAll);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void awaitResult(Path file) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 20000;
+    while (results.stream().noneMatch(result -> result.isModified() && result.getFilePath().equals(file.toString()))) {
+      assertTrue(System.currentTimeMillis() < deadline, "No result for " + file);
+      Thread.sleep(20);
+    }
+  }
+}
@@ -126,4 +126,32 @@ class HookGeneratorTest {
         assertTrue(Files.exists(hookPath.getParent()));
         assertTrue(Files.isDirectory(hookPath.getParent()));
     }
+
+    @Test
+    void testHooksCheckStagedContentInOneRun() throws IOException {
+        Files.createDirectories(tempDir.resolve(".git"));
+
+        hookGenerator.generatePreCommitHook(tempDir.toString(), false);
+
+        Path hooksDir = tempDir.resolve(".git/hooks");
+        for (String name : new String[] {"pre-commit", "pre-commit.bat", "pre-commit.ps1"}) {
+            String content = Files.readString(hooksDir.resolve(name));
+            assertEquals(1, content.split("trim-staged --dry-run --quiet", -1).length - 1, name);
+            assertFalse(content.contains("{{"), name);
+        }
+    }
+
+    @Test
+    void testFixHooksTrimStagedContent() throws IOException {
+        Files.createDirectories(tempDir.resolve(".git"));
+
+        hookGenerator.generatePreCommitHook(tempDir.toString(), false, true);
+
+        Path hooksDir = tempDir.resolve(".git/hooks");
+        for (String name : new String[] {"pre-commit", "pre-commit.bat", "pre-commit.ps1"}) {
+            String content = Files.readString(hooksDir.resolve(name));
+            assertTrue(content.contains("trim-staged --quiet"), name);
+            assertFalse(content.contains("--dry-run"), name);
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RunJournalTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testRecordsModifiedFilesRelativeToTheRoot() throws Exception {
+    Path file = tempDir.resolve("src/a.txt");
+    String runId;
+    try (RunJournal journal = RunJournal.create(tempDir)) {
+      journal.recordModified(file, tempDir.resolve("src/a.txt.bak"), "pre", "post");
+      runId = journal.getRunId();
+    }
+
+    List<RunJournal.Entry> entries = RunJournal.read(tempDir, runId);
+
+    assertEquals(List.of(new RunJournal.Entry(runId, tempDir.toAbsolutePath().normalize().resolve("src/a.txt"),
+        tempDir.toAbsolutePath().normalize().resolve("src/a.txt.bak"), "pre", "post")), entries);
+    assertTrue(Files.readString(tempDir.resolve(".codetrimmer/runs/" + runId + ".jsonl"))
+        .contains("\"path\":\"src/a.txt\""));
+  }
+
+  @Test
+  void testRunsThatChangeNothingLeaveNoJournal() throws Exception {
+    try (RunJournal journal = RunJournal.create(tempDir)) {
+      assertNotNull(journal.getRunId());
+    }
+
+    assertNull(RunJournal.find(tempDir));
+  }
+
+  @Test
+  void testRunsStartedTogetherGetDistinctIds() throws Exception {
+    try (RunJournal first = RunJournal.create(tempDir); RunJournal second = RunJournal.create(tempDir)) {
+      first.recordModified(tempDir.resolve("a.txt"), tempDir.resolve("a.txt.bak"), "1", "2");
+      second.recordModified(tempDir.resolve("b.txt"), tempDir.resolve("b.txt.bak"), "3", "4");
+
+      assertNotEquals(first.getRunId(), second.getRunId());
+      assertEquals(List.of(first.getRunId(), second.getRunId()), RunJournal.runIds(tempDir));
+    }
+  }
+
+  @Test
+  void testMarkRestoredDeletesJournalOnceEmpty() throws Exception {
+    String runId;
+    try (RunJournal journal = RunJournal.create(tempDir)) {
+      journal.recordModified(tempDir.resolve("a.txt"), tempDir.resolve("a.txt.bak"), "1", "2");
+      journal.recordModified(tempDir.resolve("b.txt"), tempDir.resolve("b.txt.bak"), "3", "4");
+      runId = journal.getRunId();
+    }
+    List<RunJournal.Entry> entries = RunJournal.read(tempDir, runId);
+
+    RunJournal.markRestored(tempDir, List.of(entries.get(0)));
+    assertEquals(List.of(entries.get(1)), RunJournal.read(tempDir, runId));
+
+    RunJournal.markRestored(tempDir, List.of(entries.get(1)));
+    assertNull(RunJournal.read(tempDir, runId));
+    assertTrue(RunJournal.runIds(tempDir).isEmpty());
+  }
+
+  @Test
+  void testCountsReferencesOnlyToTheGivenBackups() throws Exception {
+    Path base = tempDir.toAbsolutePath().normalize();
+    Path shared = base.resolve("shared.bak");
+    try (RunJournal first = RunJournal.create(tempDir); RunJournal second = RunJournal.create(tempDir)) {
+      first.recordModified(tempDir.resolve("a.txt"), shared, "1", "2");
+      first.recordModified(tempDir.resolve("b.txt"), tempDir.resolve("b.txt.bak"), "3", "4");
+      second.recordModified(tempDir.resolve("c.txt"), shared, "1", "2");
+    }
+
+    assertEquals(Map.of(shared, 2), RunJournal.countReferences(tempDir, Set.of(shared)));
+    assertTrue(RunJournal.countReferences(tempDir, Set.of()).isEmpty());
+  }
+
+  @Test
+  void testSkipsTruncatedLastLine() throws Exception {
+    String runId;
+    try (RunJournal journal = RunJournal.create(tempDir)) {
+      journal.recordModified(tempDir.resolve("a.txt"), tempDir.resolve("a.txt.bak"), "1", "2");
+      runId = journal.getRunId();
+    }
+    Files.writeString(tempDir.resolve(".codetrimmer/runs/" + runId + ".jsonl"), "{\"op\":\"modi",
+        StandardOpenOption.APPEND);
+
+    assertEquals(1, RunJournal.read(tempDir, runId).size());
+  }
+
+  @Test
+  void testFindLooksInParentDirectories() throws Exception {
+    Files.createDirectories(tempDir.resolve("src/main"));
+    try (RunJournal journal = RunJournal.create(tempDir)) {
+      journal.recordModified(tempDir.resolve("src/main/a.txt"), tempDir.resolve("src/main/a.txt.bak"), "1", "2");
+    }
+
+    assertEquals(tempDir.toAbsolutePath().normalize(), RunJournal.find(tempDir.resolve("src/main")));
+  }
+}
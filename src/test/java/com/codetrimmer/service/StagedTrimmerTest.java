@@ -0,0 +1,139 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import com.codetrimmer.error.CodeTrimmerException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StagedTrimmerTest {
+
+  private StagedTrimmer trimmer;
+  private CodeTrimmerConfig config;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    assumeTrue(isGitAvailable(), "git is not installed");
+    git("init", "-q");
+    config = new CodeTrimmerConfig();
+    trimmer = new StagedTrimmer(config);
+  }
+
+  @Test
+  void testDryRunReportsStagedContentOnly() throws Exception {
+    Files.writeString(tempDir.resolve("staged.txt"), "dirty  \n");
+    Files.writeString(tempDir.resolve("unstaged.txt"), "dirty  \n");
+    git("add", "staged.txt");
+
+    FileChecker.CheckReport report = trimmer.trimStaged(tempDir.toString(), false);
+
+    assertEquals(1, report.getFindings().size());
+    assertEquals("staged.txt", report.getFindings().get(0).path());
+    assertEquals(FileChecker.CheckReport.EXIT_VIOLATIONS, report.getExitCode());
+    assertEquals("dirty  \n", stagedContent("staged.txt"));
+  }
+
+  @Test
+  void testTrimsIndexAndMatchingWorkingTreeFile() throws Exception {
+    Path file = tempDir.resolve("file.txt");
+    Files.writeString(file, "line  \n\n\n\n");
+    git("add", "file.txt");
+
+    trimmer.trimStaged(tempDir.toString(), true);
+
+    assertEquals("line\n", stagedContent("file.txt"));
+    assertEquals("line\n", Files.readString(file));
+  }
+
+  @Test
+  void testWorkingTreeFileIsReplacedKeepingItsPermissions() throws Exception {
+    Path file = tempDir.resolve("run.sh");
+    Files.writeString(file, "echo  \n");
+    Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-x---"));
+    git("add", "run.sh");
+
+    trimmer.trimStaged(tempDir.toString(), true);
+
+    assertEquals("echo\n", Files.readString(file));
+    assertEquals("rwxr-x---", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertEquals(List.of(".git", "run.sh"), files.map(path -> path.getFileName().toString()).sorted().toList());
+    }
+  }
+
+  @Test
+  void testPartiallyStagedFileKeepsUnstagedEdits() throws Exception {
+    Path file = tempDir.resolve("file.txt");
+    Files.writeString(file, "staged  \n");
+    git("add", "file.txt");
+    Files.writeString(file, "staged  \nunstaged  \n");
+
+    trimmer.trimStaged(tempDir.toString(), true);
+
+    assertEquals("staged\n", stagedContent("file.txt"));
+    assertEquals("staged  \nunstaged  \n", Files.readString(file));
+  }
+
+  @Test
+  void testSkipsBinaryAndFilteredFiles() throws Exception {
+    config.setExclude("*.md");
+    Files.write(tempDir.resolve("data.bin"), new byte[]{'x', 0, ' ', '\n'});
+    Files.writeString(tempDir.resolve("notes.md"), "dirty  \n");
+    git("add", ".");
+
+    FileChecker.CheckReport report = trimmer.trimStaged(tempDir.toString(), false);
+
+    assertEquals(0, report.getFilesChecked());
+    assertEquals(FileChecker.CheckReport.EXIT_CLEAN, report.getExitCode());
+  }
+
+  @Test
+  void testOutsideRepositoryThrows() throws Exception {
+    Path outside = Files.createTempDirectory("not-a-repo");
+    try {
+      CodeTrimmerException e = assertThrows(CodeTrimmerException.class,
+          () -> trimmer.trimStaged(outside.toString(), false));
+      assertTrue(e.getMessage().contains("git rev-parse failed: fatal:"), e.getMessage());
+    } finally {
+      Files.delete(outside);
+    }
+  }
+
+  private String stagedContent(String path) throws Exception {
+    return git("show", ":" + path);
+  }
+
+  private String git(String... args) throws Exception {
+    List<String> command = new ArrayList<>(List.of("git", "-c", "core.autocrlf=false"));
+    command.addAll(List.of(args));
+    Process process = new ProcessBuilder(command).directory(tempDir.toFile()).redirectErrorStream(true).start();
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    assertEquals(0, process.waitFor(), output);
+    return output;
+  }
+
+  private static boolean isGitAvailable() {
+    try {
+      return new ProcessBuilder("git", "--version").start().waitFor() == 0;
+    } catch (IOException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.codetrimmer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.codetrimmer.config.CodeTrimmerConfig;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StreamingTrimmerTest {
+
+  private CodeTrimmerConfig config;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setUp() {
+    config = new CodeTrimmerConfig();
+  }
+
+  @Test
+  void testMatchesInMemoryTrimmerAcrossBufferBoundaries() throws Exception {
+    String content = "first  \n\n\n\n\tsecond\t\nthird  \n  \n\n\nété 😀   \nlast  ";
+    FileTrimmer.TrimResult expected = new FileTrimmer(content, config).trim();
+
+    for (int bufferSize = 1; bufferSize <= 16; bufferSize++) {
+      Path file = write("file" + bufferSize + ".txt", content);
+      StreamingTrimmer.Result result = trim(file, bufferSize, file);
+
+      assertTrue(result.isChanged());
+      assertEquals(expected.getContent(), Files.readString(result.getTempFile()));
+      assertEquals(expected.getLinesTrimmed(), result.getLinesTrimmed());
+      assertEquals(expected.getBlankLinesRemoved(), result.getBlankLinesRemoved());
+    }
+  }
+
+  @Test
+  void testCleanFileWritesNothing() throws Exception {
+    Path file = write("clean.txt", "clean\ncontent\n");
+
+    StreamingTrimmer.Result result = trim(file, 4, file);
+
+    assertFalse(result.isChanged());
+    assertNull(result.getTempFile());
+    assertEquals(1, countFiles());
+  }
+
+  @Test
+  void testCountOnlyModeCreatesNoTempFile() throws Exception {
+    Path file = write("dirty.txt", "dirty   \n\n\n\n");
+
+    StreamingTrimmer.Result result = trim(file, 4, null);
+
+    assertTrue(result.isChanged());
+    assertNull(result.getTempFile());
+    assertEquals(1, result.getLinesTrimmed());
+    assertEquals(1, countFiles());
+  }
+
+  @Test
+  void testMissingFinalNewlineIsAppended() throws Exception {
+    Path file = write("file.txt", "no newline");
+
+    StreamingTrimmer.Result result = trim(file, 4, file);
+
+    assertEquals("no newline\n", Files.readString(result.getTempFile()));
+  }
+
+  @Test
+  void testLoneNewlineIsUnchanged() throws Exception {
+    config.setMaxConsecutiveBlankLines(0);
+    Path file = write("file.txt", "\n");
+
+    assertFalse(trim(file, 4, file).isChanged());
+  }
+
+  @Test
+  void testMalformedInputFailsAndRemovesTempFile() throws Exception {
+    Path file = tempDir.resolve("bad.txt");
+    Files.write(file, new byte[]{'a', ' ', '\n', (byte) 0xC3, '\n'});
+
+    assertThrows(MalformedInputException.class, () -> trim(file, 2, file));
+    assertEquals(1, countFiles());
+  }
+
+  private StreamingTrimmer.Result trim(Path file, int bufferSize, Path target) throws Exception {
+    try (FileChannel channel = FileChannel.open(file)) {
+      return new StreamingTrimmer(config, bufferSize).trim(channel, new byte[0], target, null);
+    }
+  }
+
+  private Path write(String name, String content) throws Exception {
+    Path file = tempDir.resolve(name);
+    Files.writeString(file, content);
+    return file;
+  }
+
+  private long countFiles() throws Exception {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.count();
+    }
+  }
+}
@@ -2,10 +2,12 @@ package com.codetrimmer.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.codetrimmer.config.CodeTrimmerConfig;
 import com.codetrimmer.error.CodeTrimmerException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -42,6 +44,98 @@ class UndoServiceTest {
         assertFalse(Files.exists(backup));
     }
 
+    @Test
+    void testRestoreFromHardLinkedBackup() throws IOException {
+        Path original = tempDir.resolve("linked.txt");
+        Files.writeString(original, "trailing   \n");
+        new FileProcessingService(new CodeTrimmerConfig()).processDirectory(tempDir.toString());
+        assertEquals("trailing\n", Files.readString(original));
+
+        assertTrue(undoService.restoreFile(original.toString()));
+
+        assertEquals("trailing   \n", Files.readString(original));
+        assertFalse(Files.exists(tempDir.resolve("linked.txt.bak")));
+    }
+
+    @Test
+    void testRestoreDirectoryFromBackupStore() throws IOException {
+        CodeTrimmerConfig config = new CodeTrimmerConfig();
+        config.setBackupStore(true);
+        Path subDir = tempDir.resolve("src");
+        Files.createDirectories(subDir);
+        Files.writeString(tempDir.resolve("a.txt"), "top   \n");
+        Files.writeString(subDir.resolve("b.txt"), "nested   \n");
+        new FileProcessingService(config).processDirectory(tempDir.toString());
+        assertFalse(Files.exists(tempDir.resolve("a.txt.bak")));
+
+        assertEquals(List.of(subDir.resolve("b.txt").toString()),
+            undoService.listBackups(subDir.toString(), false));
+        UndoService.RestoreResult result = undoService.restoreDirectory(tempDir.toString(), true);
+
+        assertEquals(2, result.getRestoredCount());
+        assertEquals("top   \n", Files.readString(tempDir.resolve("a.txt")));
+        assertEquals("nested   \n", Files.readString(subDir.resolve("b.txt")));
+        assertTrue(undoService.listBackups(tempDir.toString(), true).isEmpty());
+    }
+
+    @Test
+    void testRestoreFromBackupStoreStepsBackOneRunAtATime() throws IOException {
+        CodeTrimmerConfig config = new CodeTrimmerConfig();
+        config.setBackupStore(true);
+        config.setMaxConsecutiveBlankLines(1);
+        Path file = tempDir.resolve("a.txt");
+        Files.writeString(file, "a\n\n\n\nb   \n");
+        new FileProcessingService(config).processDirectory(tempDir.toString());
+        Files.writeString(file, "c   \n");
+        new FileProcessingService(config).processDirectory(tempDir.toString());
+
+        undoService.restoreDirectory(tempDir.toString(), false);
+        assertEquals("c   \n", Files.readString(file));
+        undoService.restoreDirectory(tempDir.toString(), false);
+        assertEquals("a\n\n\n\nb   \n", Files.readString(file));
+    }
+
+    @Test
+    void testRestoreRunRestoresOnlyThatRun() throws IOException {
+        Path first = tempDir.resolve("first.txt");
+        Path second = tempDir.resolve("second.txt");
+        Files.writeString(first, "one   \n");
+        new FileProcessingService(new CodeTrimmerConfig()).processDirectory(tempDir.toString());
+        Files.writeString(second, "two   \n");
+        new FileProcessingService(new CodeTrimmerConfig()).processDirectory(tempDir.toString());
+
+        List<UndoService.RunSummary> runs = undoService.listRuns(tempDir.toString());
+        assertEquals(2, runs.size());
+        UndoService.RestoreResult result = undoService.restoreRun(tempDir.toString(), runs.get(0).getRunId());
+
+        assertEquals(1, result.getRestoredCount());
+        assertEquals("one   \n", Files.readString(first));
+        assertEquals("two\n", Files.readString(second));
+        assertFalse(Files.exists(tempDir.resolve("first.txt.bak")));
+        assertEquals(1, undoService.listRuns(tempDir.toString()).size());
+    }
+
+    @Test
+    void testRestoreRunSkipsFilesChangedSinceTheRun() throws IOException {
+        Path file = tempDir.resolve("file.txt");
+        Files.writeString(file, "one   \n");
+        new FileProcessingService(new CodeTrimmerConfig()).processDirectory(tempDir.toString());
+        Files.writeString(file, "edited\n");
+
+        String runId = undoService.listRuns(tempDir.toString()).get(0).getRunId();
+        UndoService.RestoreResult result = undoService.restoreRun(tempDir.toString(), runId);
+
+        assertEquals(1, result.getFailedCount());
+        assertEquals(2, result.getExitCode());
+        assertEquals("edited\n", Files.readString(file));
+    }
+
+    @Test
+    void testRestoreRunUnknownId() {
+        assertThrows(CodeTrimmerException.class, () ->
+            undoService.restoreRun(tempDir.toString(), "20000101-000000-000"));
+    }
+
     @Test
     void testRestoreFileNoBackup() {
         Path original = tempDir.resolve("nobackup.txt");
@@ -165,6 +259,64 @@ class UndoServiceTest {
         assertEquals(2, result.getRestoredCount());
     }
 
+    @Test
+    void testRestoreDirectoryInParallel() throws IOException {
+        for (int i = 0; i < 40; i++) {
+            Files.writeString(tempDir.resolve("file" + i + ".txt"), "modified");
+            Files.writeString(tempDir.resolve("file" + i + ".txt.bak"), "original " + i);
+        }
+        // A directory in the way of its original cannot be restored
+        Files.createDirectories(tempDir.resolve("blocked.txt/child"));
+        Files.writeString(tempDir.resolve("blocked.txt.bak"), "original");
+
+        UndoService.RestoreResult result = new UndoService(4).restoreDirectory(tempDir.toString(), false);
+
+        assertEquals(41, result.getTotalFound());
+        assertEquals(40, result.getRestoredCount());
+        assertEquals(tempDir.resolve("blocked.txt").toString(), result.getFailed().get(0).getPath());
+        assertEquals(1, result.getExitCode());
+        for (int i = 0; i < 40; i++) {
+            assertEquals("original " + i, Files.readString(tempDir.resolve("file" + i + ".txt")));
+            assertFalse(Files.exists(tempDir.resolve("file" + i + ".txt.bak")));
+        }
+    }
+
+    @Test
+    void testRestoreMovesHardLinkedBackupBack() throws IOException {
+        Path file = tempDir.resolve("file.txt");
+        Files.writeString(file, "trailing   \n");
+        Object originalKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        new FileProcessingService(new CodeTrimmerConfig()).processDirectory(tempDir.toString());
+
+        undoService.restoreDirectory(tempDir.toString(), false);
+
+        assertEquals("trailing   \n", Files.readString(file));
+        if (originalKey != null) {
+            assertEquals(originalKey, Files.readAttributes(file, BasicFileAttributes.class).fileKey());
+        }
+    }
+
+    @Test
+    void testRestoreKeepsSymbolicAndHardLinks() throws IOException {
+        CodeTrimmerConfig config = new CodeTrimmerConfig();
+        config.setFollowSymlinks(true);
+        Path dir = Files.createDirectories(tempDir.resolve("src"));
+        Path target = tempDir.resolve("target.txt");
+        Files.writeString(target, "linked   \n");
+        Path link = Files.createSymbolicLink(dir.resolve("link.txt"), target);
+        Path file = dir.resolve("file.txt");
+        Files.writeString(file, "shared   \n");
+        Path other = Files.createLink(tempDir.resolve("other.txt"), file);
+        new FileProcessingService(config).processDirectory(dir.toString());
+
+        undoService.restoreDirectory(dir.toString(), false);
+
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals("linked   \n", Files.readString(target));
+        assertTrue(Files.isSameFile(file, other));
+        assertEquals("shared   \n", Files.readString(other));
+    }
+
     @Test
     void testRestoreResultExitCodes() {
         UndoService.RestoreResult result = new UndoService.RestoreResult();
@@ -7,7 +7,9 @@ import static org.mockito.Mockito.*;
 import com.codetrimmer.config.CodeTrimmerConfig;
 import com.codetrimmer.model.FileProcessingResult;
 import com.codetrimmer.model.ProcessingStatistics;
+import com.codetrimmer.service.FileChecker;
 import com.codetrimmer.service.FileProcessingService;
+import com.codetrimmer.service.FileTrimmer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +40,8 @@ class CodeTrimmerCommandsTest {
 
   @Mock private com.codetrimmer.service.DiffGenerator diffGenerator;
 
+  @Mock private FileChecker fileChecker;
+
   @InjectMocks private CodeTrimmerCommands commands;
 
   @TempDir private Path tempDir;
@@ -991,4 +995,65 @@ class CodeTrimmerCommandsTest {
 
     verify(config).setMaxFiles(customMax);
   }
+
+  @Test
+  void testDiffCommandIsADryRunWithDiffs() {
+    when(fileProcessingService.processDirectory(anyString()))
+        .thenReturn(new ArrayList<>());
+    when(fileProcessingService.getStatistics())
+        .thenReturn(new ProcessingStatistics());
+
+    commands.diff("/test", null, null, 0, 0, true, false, false);
+
+    verify(config).setDryRun(true);
+    verify(config).setDiff(true);
+    verify(config).setCreateBackups(false);
+  }
+
+  // ============================================
+  // Tests for check command
+  // ============================================
+
+  @Test
+  void testCheckCommandCleanTreeExitsWithZero() {
+    when(fileChecker.checkDirectory(anyString())).thenReturn(new FileChecker.CheckReport());
+
+    commands.check("/test", null, null, false, null, true, null);
+
+    assertEquals(0, commands.getExitCode());
+    verify(config).setNoLimits(true);
+  }
+
+  @Test
+  void testCheckCommandViolationsExitWithOne() {
+    FileChecker.CheckReport report = new FileChecker.CheckReport();
+    report.addFinding("/test/file.java", FileTrimmer.Violation.TRAILING_WHITESPACE, 3);
+    when(fileChecker.checkDirectory(anyString())).thenReturn(report);
+
+    commands.check("/test", null, null, false, null, true, null);
+
+    assertEquals(1, commands.getExitCode());
+  }
+
+  @Test
+  void testCheckCommandFailuresExitWithTwo() {
+    FileChecker.CheckReport report = new FileChecker.CheckReport();
+    report.addFinding("/test/file.java", FileTrimmer.Violation.FINAL_NEWLINE, 1);
+    report.addFailure("/test/other.java", "Not valid UTF-8");
+    when(fileChecker.checkDirectory(anyString())).thenReturn(report);
+
+    commands.check("/test", null, null, false, null, true, null);
+
+    assertEquals(2, commands.getExitCode());
+  }
+
+  @Test
+  void testCheckCommandMissingDirectoryExitsWithTwo() {
+    when(fileChecker.checkDirectory(anyString())).thenThrow(new com.codetrimmer.error.CodeTrimmerException(
+        com.codetrimmer.error.ErrorCode.CT_0010, "Directory not found: /test"));
+
+    commands.check("/test", null, null, false, null, true, null);
+
+    assertEquals(2, commands.getExitCode());
+  }
 }
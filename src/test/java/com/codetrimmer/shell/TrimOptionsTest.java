@@ -2,6 +2,8 @@ package com.codetrimmer.shell;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.codetrimmer.config.CodeTrimmerConfig;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 class TrimOptionsTest {
@@ -495,4 +497,57 @@ class TrimOptionsTest {
     assertFalse(options.isBackup());
     assertFalse(options.isNoLimits());
   }
+
+  @Test
+  void testParseValuedOptionsAndFlags() {
+    TrimOptions options = TrimOptions.parse(List.of(
+        "--directory", "src", "--include", "java,xml", "--max-files", "200", "--dry-run", "--include-hidden"));
+
+    assertEquals("src", options.getDirectory());
+    assertEquals("java,xml", options.getInclude());
+    assertEquals(200, options.getMaxFiles());
+    assertTrue(options.isDryRun());
+    assertTrue(options.isIncludeHidden());
+    assertFalse(options.isBackup());
+  }
+
+  @Test
+  void testParseAcceptsLeadingDirectory() {
+    TrimOptions options = TrimOptions.parse(List.of(".", "--dry-run"));
+
+    assertEquals(".", options.getDirectory());
+    assertTrue(options.isDryRun());
+  }
+
+  @Test
+  void testParseRejectsUnknownOptionsAndMissingValues() {
+    assertThrows(IllegalArgumentException.class, () -> TrimOptions.parse(List.of("--bogus")));
+    assertThrows(IllegalArgumentException.class, () -> TrimOptions.parse(List.of("src", "test")));
+    assertThrows(IllegalArgumentException.class, () -> TrimOptions.parse(List.of("--dry-run", "src")));
+    assertThrows(IllegalArgumentException.class, () -> TrimOptions.parse(List.of("--directory")));
+    assertThrows(IllegalArgumentException.class, () -> TrimOptions.parse(List.of("--max-size", "big")));
+  }
+
+  @Test
+  void testApplyToUsesDefaultsForUnsetOptions() {
+    CodeTrimmerConfig config = new CodeTrimmerConfig();
+    config.setInclude("java");
+    config.setMaxFiles(7);
+
+    TrimOptions.builder().backup(true).build().applyTo(config);
+
+    assertEquals("*", config.getInclude());
+    assertEquals(50, config.getMaxFiles());
+    assertTrue(config.isCreateBackups());
+  }
+
+  @Test
+  void testApplyToSetsDiff() {
+    CodeTrimmerConfig config = new CodeTrimmerConfig();
+
+    TrimOptions.parse(List.of("--dry-run", "--diff")).applyTo(config);
+
+    assertTrue(config.isDryRun());
+    assertTrue(config.isDiff());
+  }
 }
@@ -0,0 +1,42 @@
+package com.codetrimmer.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileListTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testParsesNulSeparatedList() {
+    assertEquals(List.of(Paths.get("a.txt"), Paths.get("dir/b c.txt")),
+        FileList.parse("a.txt\0dir/b c.txt\0"));
+  }
+
+  @Test
+  void testParsesNewlineSeparatedListWithCarriageReturns() {
+    assertEquals(List.of(Paths.get("a.txt"), Paths.get("b.txt")),
+        FileList.parse("a.txt\r\nb.txt\r\n"));
+  }
+
+  @Test
+  void testSkipsEmptyEntriesAndByteOrderMark() {
+    assertEquals(List.of(Paths.get("a.txt")), FileList.parse("\uFEFFa.txt\n\n\n"));
+    assertTrue(FileList.parse("").isEmpty());
+  }
+
+  @Test
+  void testReadsListFile() throws Exception {
+    Path list = tempDir.resolve("list");
+    Files.writeString(list, "src/a.txt\0b.txt\0");
+
+    assertEquals(List.of(Paths.get("src/a.txt"), Paths.get("b.txt")), FileList.read(list));
+  }
+}